@@ -0,0 +1,47 @@
+package chris234k.yorhawatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The per-frame decisions and layout math that run in onDraw.
+ */
+@State(Scope.Thread)
+public class FrameLogicBenchmark {
+    private final AnimationTrigger mTrigger = new AnimationTrigger();
+    private final GlyphMetrics mMetrics = GlyphMetrics.of("0123456789:".toCharArray(),
+            new float[]{20, 12, 20, 20, 21, 20, 20, 18, 20, 20, 8},
+            new float[]{1, 3, 1, 1, 0, 1, 1, 1, 1, 1, 2},
+            new float[]{-28, -28, -28, -28, -28, -28, -28, -28, -28, -28, -20},
+            new float[]{19, 10, 19, 19, 21, 19, 19, 18, 19, 19, 6},
+            new float[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+    private final char[] mTime = "10:11:59".toCharArray();
+    private long mNow;
+
+    @Benchmark
+    public boolean animationTrigger() {
+        mNow += 1000;
+        boolean start = mTrigger.shouldStart((int) (mNow / 1000 % 60), mNow);
+        if (start) {
+            mTrigger.onAnimationComplete(mNow);
+        }
+        return start;
+    }
+
+    @Benchmark
+    public float textLayout() {
+        mNow++;
+        float textSize = TextLayout.timeTextSize(40f + (mNow & 7), (mNow & 1) == 0);
+        float left = TextLayout.centeredLeft(320, textSize * 5.5f);
+        float baseline = TextLayout.centeredBaseline(160f, -textSize * 0.35f);
+        return left + TextLayout.dateBaseline(baseline, 320) + TextLayout.dateTextSize(textSize);
+    }
+
+    @Benchmark
+    public float glyphMetricsCentering() {
+        mNow++;
+        mTime[7] = (char) ('0' + mNow % 10);
+        return mMetrics.centeredStart(mTime, 0, mTime.length, 160f);
+    }
+}
@@ -0,0 +1,74 @@
+package chris234k.yorhawatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Glitch animation costs: compiling a timeline (off the hot path) and a single frame step.
+ */
+@State(Scope.Thread)
+public class GlitchBenchmark {
+    private static final long FRAME_MS = 1000 / GlitchTimeline.FRAMES_PER_SECOND;
+
+    /**
+     * Frames on demand, one per step call.
+     */
+    private static class SteppedFrameClock extends FrameClock {
+        long mNow;
+
+        SteppedFrameClock() {
+            super(null);
+        }
+
+        @Override
+        public long now() {
+            return mNow;
+        }
+
+        @Override
+        protected void postFrame(long delayMillis) {
+        }
+
+        @Override
+        protected void cancelFrame() {
+        }
+
+        void step() {
+            mNow += FRAME_MS;
+            dispatchFrame(mNow);
+        }
+    }
+
+    private final char[] mTime = "12:34:56 PM".toCharArray();
+    private final char[] mCharset = "1234567890:".toCharArray();
+    private final Random mRandom = new Random(0);
+    private GlitchTimeline mTimeline;
+    private SteppedFrameClock mClock;
+    private GlitchTextWriter mWriter;
+
+    @Setup
+    public void setUp() {
+        mTimeline = new GlitchTimeline();
+        mClock = new SteppedFrameClock();
+        mWriter = new GlitchTextWriter(mClock, "1234567890:", 0);
+    }
+
+    @Benchmark
+    public int compileTimeline() {
+        mTimeline.compile(mTime, 0, mTime.length, mCharset, mCharset.length, mRandom);
+        return mTimeline.getFrameCount();
+    }
+
+    @Benchmark
+    public int writerStep() {
+        if (!mWriter.getIsAnimating()) {
+            mWriter.animateText(mTime, 0, mTime.length, 0, null);
+        }
+        mClock.step();
+        return mWriter.getTextLength();
+    }
+}
@@ -0,0 +1,48 @@
+package chris234k.yorhawatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * One interactive tick worth of time and date formatting, against the DateFormat style baseline.
+ */
+@State(Scope.Thread)
+public class TimeFormatterBenchmark {
+    private TimeFormatter mFormatter;
+    private SimpleDateFormat mTimeFormat, mDateFormat;
+    private Calendar mCalendar;
+    private long mTime;
+
+    @Setup
+    public void setUp() {
+        mFormatter = new TimeFormatter(Locale.US);
+        mTimeFormat = new SimpleDateFormat(TimeFormatter.Pattern.HOUR_12_SECONDS.getFormat(), Locale.US);
+        mDateFormat = new SimpleDateFormat("EEE d", Locale.US);
+        mCalendar = Calendar.getInstance(Locale.US);
+        mTime = mCalendar.getTimeInMillis();
+    }
+
+    @Benchmark
+    public int formatter() {
+        mTime += 1000;
+        mCalendar.setTimeInMillis(mTime);
+        mFormatter.formatTime(mCalendar, TimeFormatter.Pattern.HOUR_12_SECONDS);
+        mFormatter.formatDate(mCalendar);
+        return mFormatter.getTimeLength() + mFormatter.getDateLength();
+    }
+
+    @Benchmark
+    public int dateFormatBaseline() {
+        mTime += 1000;
+        mCalendar.setTimeInMillis(mTime);
+        String time = mTimeFormat.format(mCalendar.getTime());
+        String date = mDateFormat.format(mCalendar.getTime()).toUpperCase();
+        return time.length() + date.length();
+    }
+}
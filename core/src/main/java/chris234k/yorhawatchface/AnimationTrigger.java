@@ -0,0 +1,48 @@
+package chris234k.yorhawatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the glitch animation should play. Scheduled triggers leave the timing to a
+ * WakeupTimeline, which calls forceStart when the glitch is due.
+ */
+public class AnimationTrigger {
+    public static final long MIN_ANIMATION_GAP_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private long mLastAnimationCompletionTime;
+    private boolean mForceAnimationStart;
+    private boolean mScheduled;
+
+    /**
+     * Whether starts only come from forceStart.
+     */
+    public void setScheduled(boolean scheduled) {
+        mScheduled = scheduled;
+    }
+
+    /**
+     * Makes the next shouldStart call return true, e.g. when coming out of ambient mode.
+     */
+    public void forceStart() {
+        mForceAnimationStart = true;
+    }
+
+    public void onAnimationComplete(long nowMillis) {
+        mLastAnimationCompletionTime = nowMillis;
+    }
+
+    /**
+     * @param second the current second of the minute
+     * @return true if an animation should start now, consuming any forced start
+     */
+    public boolean shouldStart(int second, long nowMillis) {
+        // If the ones digit is a 9 and enough time since the last animation has passed
+        boolean canStart = !mScheduled && second % 10 == 9 && nowMillis - mLastAnimationCompletionTime >= MIN_ANIMATION_GAP_MS;
+
+        if (canStart || mForceAnimationStart) {
+            mForceAnimationStart = false;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,142 @@
+package chris234k.yorhawatchface;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads values on a background executor, at most once per key, and shares them with everyone who
+ * asks. Meant to live as long as the process, so engines created later get the loaded value
+ * straight away.
+ */
+public class AsyncCache<K, V> {
+
+    public interface Loader<V> {
+        V load() throws Exception;
+    }
+
+    /**
+     * A value that's loading or loaded. Done once the loader returned or threw.
+     */
+    public static final class Entry<V> {
+        private final Object mLock = new Object();
+        private boolean mDone;
+        private V mValue;
+        private Exception mError;
+        private long mLoadMillis;
+        private ArrayList<Runnable> mCallbacks = new ArrayList<>();
+        private ArrayList<Executor> mCallbackExecutors = new ArrayList<>();
+
+        public boolean isDone() {
+            synchronized (mLock) {
+                return mDone;
+            }
+        }
+
+        /**
+         * The loaded value, null while loading or if loading failed.
+         */
+        public V getValue() {
+            synchronized (mLock) {
+                return mValue;
+            }
+        }
+
+        public Exception getError() {
+            synchronized (mLock) {
+                return mError;
+            }
+        }
+
+        /**
+         * How long the loader took, 0 while loading.
+         */
+        public long getLoadMillis() {
+            synchronized (mLock) {
+                return mLoadMillis;
+            }
+        }
+
+        /**
+         * Runs callback on executor once done, right away if it already is.
+         */
+        public void whenDone(Runnable callback, Executor executor) {
+            synchronized (mLock) {
+                if (!mDone) {
+                    mCallbacks.add(callback);
+                    mCallbackExecutors.add(executor);
+                    return;
+                }
+            }
+            executor.execute(callback);
+        }
+
+        private void finish(V value, Exception error, long loadMillis) {
+            ArrayList<Runnable> callbacks;
+            ArrayList<Executor> executors;
+            synchronized (mLock) {
+                mValue = value;
+                mError = error;
+                mLoadMillis = loadMillis;
+                mDone = true;
+                callbacks = mCallbacks;
+                executors = mCallbackExecutors;
+                mCallbacks = null;
+                mCallbackExecutors = null;
+            }
+            for (int i = 0; i < callbacks.size(); i++) {
+                executors.get(i).execute(callbacks.get(i));
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> mEntries = new ConcurrentHashMap<>();
+    private final Executor mLoadExecutor;
+
+    public AsyncCache(Executor loadExecutor) {
+        mLoadExecutor = loadExecutor;
+    }
+
+    /**
+     * The entry for key, starting loader on the load executor if nobody asked for it before.
+     */
+    public Entry<V> get(K key, final Loader<V> loader) {
+        Entry<V> entry = mEntries.get(key);
+        if (entry != null) {
+            return entry;
+        }
+
+        final Entry<V> created = new Entry<>();
+        entry = mEntries.putIfAbsent(key, created);
+        if (entry != null) {
+            return entry; // Lost the race, someone else is loading it
+        }
+
+        mLoadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                V value = null;
+                Exception error = null;
+                try {
+                    value = loader.load();
+                } catch (Exception e) {
+                    error = e;
+                }
+                created.finish(value, error, (System.nanoTime() - start) / 1000000);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * The entry for key if it was ever requested, null otherwise.
+     */
+    public Entry<V> peek(K key) {
+        return mEntries.get(key);
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+}
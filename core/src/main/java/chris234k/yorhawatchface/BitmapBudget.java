@@ -0,0 +1,342 @@
+package chris234k.yorhawatchface;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Accounts for every cached bitmap in the process in bytes, and drops whole caches when the total
+ * goes over the budget or the system asks for memory back.
+ *
+ * Caches register as Clients with a tier saying how much it costs to rebuild them. Eviction goes
+ * lowest tier first and least recently used first within a tier. Released bitmaps go to a small
+ * pool, and a later acquire of the same size or smaller reuses the allocation instead of making
+ * a new one.
+ *
+ * Thread safe, but clients are trimmed on the thread that calls trim or acquire. Keep clients on
+ * one thread (the main thread), preview workers and the render thread use budgets of their own. A
+ * client drawing with its bitmaps marks itself busy, so making room for another one can't pull
+ * them away mid-frame.
+ */
+public class BitmapBudget<T> {
+    public static final int CONFIG_ARGB_8888 = 0;
+    public static final int CONFIG_RGB_565 = 1;
+
+    /**
+     * Drawn ahead of time, the face draws without them. Dropped first.
+     */
+    public static final int TIER_AHEAD = 0;
+    /**
+     * Redrawn in a frame or two, e.g. the composited background.
+     */
+    public static final int TIER_CACHED = 1;
+    /**
+     * Measured and rasterized again with a visible hitch, e.g. glyph atlases.
+     */
+    public static final int TIER_LAYOUT = 2;
+    /**
+     * Shared resources, counted but never dropped.
+     */
+    public static final int TIER_PINNED = 3;
+    private static final String[] TIER_NAMES = {"ahead", "cached", "layout", "pinned"};
+
+    // The ComponentCallbacks2 levels, core can't see the framework
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    public static final int TRIM_MEMORY_RUNNING_LOW = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_UI_HIDDEN = 20;
+    public static final int TRIM_MEMORY_BACKGROUND = 40;
+    public static final int TRIM_MEMORY_MODERATE = 60;
+    public static final int TRIM_MEMORY_COMPLETE = 80;
+
+    public interface Allocator<T> {
+        T create(int width, int height, int config);
+
+        /**
+         * Reuses bitmap's allocation for a new size and config, clearing it.
+         *
+         * @return false if the allocation is too small
+         */
+        boolean reconfigure(T bitmap, int width, int height, int config);
+
+        long getAllocationBytes(T bitmap);
+
+        void recycle(T bitmap);
+    }
+
+    /**
+     * A cache holding bitmaps from the budget.
+     */
+    public abstract static class Client {
+        private final String mName;
+        private final int mTier;
+        // Guarded by the budget
+        private long mBytes;
+        private long mLastUse;
+        private int mBusy;
+
+        protected Client(String name, int tier) {
+            if (tier < TIER_AHEAD || tier > TIER_PINNED) {
+                throw new IllegalArgumentException("Unknown tier " + tier);
+            }
+            mName = name;
+            mTier = tier;
+        }
+
+        /**
+         * Release or forget every bitmap, they're rebuilt when next needed. Pinned clients are
+         * never asked.
+         */
+        protected abstract void onTrim();
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getTier() {
+            return mTier;
+        }
+    }
+
+    private final Allocator<T> mAllocator;
+    private final long mBudgetBytes;
+    private final long mPoolLimitBytes;
+
+    // Clients holding bytes. Dropped from the list once they hold none.
+    private final ArrayList<Client> mClients = new ArrayList<>();
+    // Free bitmaps, least recently released first
+    private final ArrayList<T> mPool = new ArrayList<>();
+    private long mPoolBytes;
+    private long mUseCounter;
+
+    private long mReuses, mAllocations, mEvictions;
+
+    /**
+     * @param budgetBytes what clients and the pool may hold together, acquire evicts to stay
+     *                    under it
+     * @param poolLimitBytes how much released memory to keep for reuse, 0 to recycle right away
+     */
+    public BitmapBudget(Allocator<T> allocator, long budgetBytes, long poolLimitBytes) {
+        mAllocator = allocator;
+        mBudgetBytes = budgetBytes;
+        mPoolLimitBytes = poolLimitBytes;
+    }
+
+    public static long bytesFor(int width, int height, int config) {
+        return (long) width * height * (config == CONFIG_RGB_565 ? 2 : 4);
+    }
+
+    /**
+     * A cleared bitmap for client, reusing a pooled allocation if one fits. Makes room by
+     * evicting other clients if needed, but never fails: if nothing can go, the budget is
+     * exceeded.
+     */
+    public synchronized T acquire(Client client, int width, int height, int config) {
+        use(client);
+
+        T bitmap = reuse(width, height, config);
+        if (bitmap != null) {
+            mReuses++;
+        } else {
+            makeRoom(bytesFor(width, height, config), client);
+            bitmap = mAllocator.create(width, height, config);
+            mAllocations++;
+        }
+        add(client, mAllocator.getAllocationBytes(bitmap));
+        return bitmap;
+    }
+
+    /**
+     * Counts a bitmap that client created itself, e.g. a decoded resource.
+     */
+    public synchronized void track(Client client, T bitmap) {
+        use(client);
+        add(client, mAllocator.getAllocationBytes(bitmap));
+    }
+
+    /**
+     * client is done with bitmap, it goes to the pool or is recycled. Don't touch it afterwards.
+     */
+    public synchronized void release(Client client, T bitmap) {
+        long bytes = mAllocator.getAllocationBytes(bitmap);
+        client.mBytes -= bytes;
+        if (client.mBytes <= 0) {
+            client.mBytes = 0;
+            mClients.remove(client);
+        }
+
+        mPool.add(bitmap);
+        mPoolBytes += bytes;
+        trimPool(Math.min(mPoolLimitBytes, Math.max(0, mBudgetBytes - getClientBytes())));
+    }
+
+    /**
+     * Marks client as used, for least recently used eviction. Cheap enough to call every frame.
+     */
+    public synchronized void touch(Client client) {
+        use(client);
+    }
+
+    /**
+     * Client isn't trimmed until the matching endUse, e.g. while a frame draws from its bitmaps.
+     * Also counts as a use.
+     */
+    public synchronized void beginUse(Client client) {
+        use(client);
+        client.mBusy++;
+    }
+
+    public synchronized void endUse(Client client) {
+        if (client.mBusy == 0) {
+            throw new IllegalStateException(client.mName + " isn't in use");
+        }
+        client.mBusy--;
+    }
+
+    /**
+     * Answers ComponentCallbacks2.onTrimMemory: empties the pool, then drops the tiers level
+     * calls for.
+     *
+     * @return bytes freed
+     */
+    public synchronized long trim(int level) {
+        long before = getTotalBytes();
+        if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            trimPool(0);
+        }
+        int maxTier = level >= TRIM_MEMORY_BACKGROUND ? TIER_LAYOUT
+                : level >= TRIM_MEMORY_RUNNING_CRITICAL ? TIER_CACHED
+                : level >= TRIM_MEMORY_RUNNING_LOW ? TIER_AHEAD
+                : -1;
+        for (Client client : new ArrayList<>(mClients)) {
+            if (client.mTier <= maxTier && client.mBusy == 0) {
+                trimClient(client);
+            }
+        }
+        // Whatever the clients released
+        trimPool(level >= TRIM_MEMORY_RUNNING_MODERATE ? 0 : mPoolLimitBytes);
+        return before - getTotalBytes();
+    }
+
+    public synchronized long getBytes(Client client) {
+        return client.mBytes;
+    }
+
+    public synchronized long getPoolBytes() {
+        return mPoolBytes;
+    }
+
+    public synchronized long getTotalBytes() {
+        return getClientBytes() + mPoolBytes;
+    }
+
+    public long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    public synchronized long getReuses() {
+        return mReuses;
+    }
+
+    public synchronized long getAllocations() {
+        return mAllocations;
+    }
+
+    public synchronized long getEvictions() {
+        return mEvictions;
+    }
+
+    public synchronized void dump(PrintWriter writer) {
+        writer.println("Bitmap budget: " + getTotalBytes() / 1024 + " of " + mBudgetBytes / 1024 + " KB, pool "
+                + mPoolBytes / 1024 + " KB (" + mPool.size() + "), " + mAllocations + " allocated, " + mReuses
+                + " reused, " + mEvictions + " evicted");
+        for (Client client : mClients) {
+            writer.println("  " + client.mName + " (" + TIER_NAMES[client.mTier] + "): " + client.mBytes / 1024 + " KB");
+        }
+    }
+
+    private void use(Client client) {
+        client.mLastUse = ++mUseCounter;
+    }
+
+    private void add(Client client, long bytes) {
+        if (client.mBytes == 0) {
+            mClients.add(client);
+        }
+        client.mBytes += bytes;
+    }
+
+    private long getClientBytes() {
+        long bytes = 0;
+        for (int i = 0; i < mClients.size(); i++) {
+            bytes += mClients.get(i).mBytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * Takes the smallest pooled allocation that fits, so big ones stay for big requests.
+     */
+    private T reuse(int width, int height, int config) {
+        long needed = bytesFor(width, height, config);
+        int best = -1;
+        long bestBytes = Long.MAX_VALUE;
+        for (int i = 0; i < mPool.size(); i++) {
+            long bytes = mAllocator.getAllocationBytes(mPool.get(i));
+            if (bytes >= needed && bytes < bestBytes) {
+                best = i;
+                bestBytes = bytes;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+
+        T bitmap = mPool.remove(best);
+        mPoolBytes -= bestBytes;
+        if (!mAllocator.reconfigure(bitmap, width, height, config)) {
+            mAllocator.recycle(bitmap);
+            return null;
+        }
+        return bitmap;
+    }
+
+    private void makeRoom(long needed, Client requester) {
+        trimPool(Math.max(0, mBudgetBytes - needed - getClientBytes()));
+        while (getClientBytes() + needed > mBudgetBytes) {
+            Client victim = null;
+            for (int i = 0; i < mClients.size(); i++) {
+                Client client = mClients.get(i);
+                if (client == requester || client.mTier == TIER_PINNED || client.mBusy > 0) {
+                    continue;
+                }
+                if (victim == null || client.mTier < victim.mTier
+                        || (client.mTier == victim.mTier && client.mLastUse < victim.mLastUse)) {
+                    victim = client;
+                }
+            }
+            if (victim == null) {
+                return; // Over budget, drawing matters more
+            }
+            trimClient(victim);
+            trimPool(0);
+        }
+    }
+
+    private void trimClient(Client client) {
+        client.onTrim();
+        mEvictions++;
+        // Anything it didn't release is forgotten, the client dropped its references
+        if (client.mBytes > 0) {
+            client.mBytes = 0;
+            mClients.remove(client);
+        }
+    }
+
+    private void trimPool(long limitBytes) {
+        while (mPoolBytes > limitBytes && !mPool.isEmpty()) {
+            T bitmap = mPool.remove(0);
+            mPoolBytes -= mAllocator.getAllocationBytes(bitmap);
+            mAllocator.recycle(bitmap);
+        }
+    }
+}
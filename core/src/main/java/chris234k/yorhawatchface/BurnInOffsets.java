@@ -0,0 +1,44 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Small whole pixel shifts for ambient frames on screens that need burn-in protection, one per
+ * minute. The table is built once, so picking a shift is a lookup.
+ *
+ * The shifts walk a ring around the center one step per minute, so no pixel stays lit for long and
+ * the content never jumps more than maxShift at a time.
+ */
+public class BurnInOffsets {
+    // Unit steps around the center, clockwise from the right
+    private static final int[] RING_X = {0, 1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] RING_Y = {0, 0, 1, 1, 1, 0, -1, -1, -1};
+
+    private final int[] mXs = new int[RING_X.length];
+    private final int[] mYs = new int[RING_Y.length];
+
+    public BurnInOffsets(int maxShift) {
+        for (int i = 0; i < mXs.length; i++) {
+            mXs[i] = RING_X[i] * maxShift;
+            mYs[i] = RING_Y[i] * maxShift;
+        }
+    }
+
+    public int size() {
+        return mXs.length;
+    }
+
+    /**
+     * @param minute any running minute count, e.g. minutes since the epoch
+     */
+    public int getX(long minute) {
+        return mXs[indexOf(minute)];
+    }
+
+    public int getY(long minute) {
+        return mYs[indexOf(minute)];
+    }
+
+    private int indexOf(long minute) {
+        int index = (int) (minute % mXs.length);
+        return index < 0 ? index + mXs.length : index;
+    }
+}
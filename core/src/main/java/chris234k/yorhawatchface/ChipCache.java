@@ -0,0 +1,108 @@
+package chris234k.yorhawatchface;
+
+/**
+ * One rendered chip per slot, kept until the chip's data or ambient/low bit state changes, so the
+ * chips are rendered when their data updates rather than every frame.
+ *
+ * Chips are looked up by ChipData.cacheKey and confirmed with equals, so a hash collision can't
+ * show a stale chip. The old buffer is handed back to the renderer for reuse.
+ */
+public class ChipCache<T> {
+
+    public interface Renderer<T> {
+        /**
+         * @param reuse the slot's last buffer, or null
+         */
+        T render(ChipData data, boolean ambient, boolean lowBit, T reuse);
+    }
+
+    private static final long NO_KEY = Long.MIN_VALUE;
+
+    private final Renderer<T> mRenderer;
+    private final Object[] mChips;
+    private final ChipData[] mData;
+    private final long[] mKeys;
+
+    private long mHits, mMisses, mRenderNanos;
+
+    public ChipCache(int slots, Renderer<T> renderer) {
+        mRenderer = renderer;
+        mChips = new Object[slots];
+        mData = new ChipData[slots];
+        mKeys = new long[slots];
+        invalidate();
+    }
+
+    /**
+     * The rendered chip for data, rendering it if the slot holds anything else.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int slot, ChipData data, boolean ambient, boolean lowBit) {
+        long key = data.cacheKey(ambient, lowBit);
+        if (key == mKeys[slot] && data.equals(mData[slot])) {
+            mHits++;
+            return (T) mChips[slot];
+        }
+
+        mMisses++;
+        long start = System.nanoTime();
+        mChips[slot] = mRenderer.render(data, ambient, lowBit, (T) mChips[slot]);
+        mRenderNanos += System.nanoTime() - start;
+        mData[slot] = data;
+        mKeys[slot] = key;
+        return (T) mChips[slot];
+    }
+
+    /**
+     * Renders every chip again on its next get, e.g. after a size or font change. Buffers are kept
+     * for reuse.
+     */
+    public void invalidate() {
+        for (int i = 0; i < mKeys.length; i++) {
+            mKeys[i] = NO_KEY;
+            mData[i] = null;
+        }
+    }
+
+    /**
+     * The slot's buffer, for releasing it. Null if nothing was rendered.
+     */
+    @SuppressWarnings("unchecked")
+    public T peek(int slot) {
+        return (T) mChips[slot];
+    }
+
+    /**
+     * Forgets every buffer, after the caller released them.
+     */
+    public void clear() {
+        for (int i = 0; i < mChips.length; i++) {
+            mChips[i] = null;
+        }
+        invalidate();
+    }
+
+    public int getSlotCount() {
+        return mChips.length;
+    }
+
+    public long getHits() {
+        return mHits;
+    }
+
+    public long getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * Total time spent in Renderer.render.
+     */
+    public long getRenderNanos() {
+        return mRenderNanos;
+    }
+
+    public float getHitRate() {
+        long total = mHits + mMisses;
+        return total == 0 ? 0 : (float) mHits / total;
+    }
+}
@@ -0,0 +1,117 @@
+package chris234k.yorhawatchface;
+
+/**
+ * What a complication chip shows, copied out of the platform's ComplicationData so it can be
+ * compared, hashed and drawn off-device. Immutable.
+ */
+public final class ChipData {
+    public static final int TYPE_EMPTY = 0;
+    public static final int TYPE_SHORT_TEXT = 1;
+    public static final int TYPE_RANGED_VALUE = 2;
+
+    public static final ChipData EMPTY = new ChipData(TYPE_EMPTY, "", "", 0, 0, 0);
+
+    private final int mType;
+    private final String mText, mTitle;
+    private final float mValue, mMin, mMax;
+    private final int mHash;
+
+    private ChipData(int type, String text, String title, float value, float min, float max) {
+        mType = type;
+        mText = text != null ? text : "";
+        mTitle = title != null ? title : "";
+        mValue = value;
+        mMin = min;
+        mMax = max;
+
+        int hash = type;
+        hash = 31 * hash + mText.hashCode();
+        hash = 31 * hash + mTitle.hashCode();
+        hash = 31 * hash + Float.floatToIntBits(value);
+        hash = 31 * hash + Float.floatToIntBits(min);
+        hash = 31 * hash + Float.floatToIntBits(max);
+        mHash = hash;
+    }
+
+    public static ChipData shortText(String text, String title) {
+        return new ChipData(TYPE_SHORT_TEXT, text, title, 0, 0, 0);
+    }
+
+    /**
+     * A value between min and max, drawn as a bar under the text.
+     */
+    public static ChipData rangedValue(String text, String title, float value, float min, float max) {
+        return new ChipData(TYPE_RANGED_VALUE, text, title, value, min, max);
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public boolean isEmpty() {
+        return mType == TYPE_EMPTY;
+    }
+
+    public String getText() {
+        return mText;
+    }
+
+    public String getTitle() {
+        return mTitle;
+    }
+
+    public float getValue() {
+        return mValue;
+    }
+
+    public float getMin() {
+        return mMin;
+    }
+
+    public float getMax() {
+        return mMax;
+    }
+
+    /**
+     * How full the bar of a ranged value is, 0-1.
+     */
+    public float getFraction() {
+        if (mMax <= mMin) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, (mValue - mMin) / (mMax - mMin)));
+    }
+
+    /**
+     * Identifies the chip's pixels: its data and how it's drawn.
+     */
+    public long cacheKey(boolean ambient, boolean lowBit) {
+        return ((long) mHash << 2) | (ambient ? 1 : 0) | (lowBit ? 2 : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChipData)) {
+            return false;
+        }
+        ChipData other = (ChipData) o;
+        return mHash == other.mHash && mType == other.mType
+                && Float.compare(mValue, other.mValue) == 0
+                && Float.compare(mMin, other.mMin) == 0
+                && Float.compare(mMax, other.mMax) == 0
+                && mText.equals(other.mText) && mTitle.equals(other.mTitle);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
+
+    @Override
+    public String toString() {
+        return "ChipData{" + mType + " " + mTitle + " " + mText + (mType == TYPE_RANGED_VALUE ? " " + mValue + "/" + mMax : "") + "}";
+    }
+}
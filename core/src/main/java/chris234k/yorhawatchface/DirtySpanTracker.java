@@ -0,0 +1,110 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Remembers the string drawn in one place on the last frame, and finds the characters that differ
+ * from the string drawn there this frame.
+ *
+ * Most ticks only change the seconds digits, and a glitch only rewrites the tail of its buffer, so
+ * the span is usually a character or two.
+ */
+public class DirtySpanTracker {
+    private char[] mPrevious = new char[16];
+    private char[] mCurrent = new char[16];
+    private int mPreviousLength, mCurrentLength;
+    private boolean mHasPrevious, mHasCurrent;
+    private int mDirtyStart, mDirtyEnd;
+
+    /**
+     * Forgets the last string, the next update reports all of its text dirty.
+     */
+    public void reset() {
+        mHasCurrent = false;
+    }
+
+    /**
+     * Records the text drawn this frame and compares it with the last.
+     *
+     * @return true if anything changed
+     */
+    public boolean update(char[] text, int start, int length) {
+        char[] swap = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = swap;
+        mPreviousLength = mCurrentLength;
+        mHasPrevious = mHasCurrent;
+
+        if (mCurrent.length < length) {
+            mCurrent = new char[length];
+        }
+        System.arraycopy(text, start, mCurrent, 0, length);
+        mCurrentLength = length;
+        mHasCurrent = true;
+
+        if (!mHasPrevious) {
+            mDirtyStart = 0;
+            mDirtyEnd = length;
+            return true;
+        }
+
+        int common = Math.min(mPreviousLength, mCurrentLength);
+        int first = 0;
+        while (first < common && mPrevious[first] == mCurrent[first]) {
+            first++;
+        }
+        mDirtyStart = first;
+
+        if (mPreviousLength != mCurrentLength) {
+            // Everything past the first change shifted
+            mDirtyEnd = Math.max(mPreviousLength, mCurrentLength);
+        } else {
+            int last = mCurrentLength;
+            while (last > first && mPrevious[last - 1] == mCurrent[last - 1]) {
+                last--;
+            }
+            mDirtyEnd = last;
+        }
+        return mDirtyEnd > mDirtyStart;
+    }
+
+    public boolean isDirty() {
+        return mDirtyEnd > mDirtyStart;
+    }
+
+    /**
+     * False on the first update after a reset, there's nothing to compare against.
+     */
+    public boolean hasPrevious() {
+        return mHasPrevious;
+    }
+
+    /**
+     * First changed character, the ones before it are the same in both strings.
+     */
+    public int getDirtyStart() {
+        return mDirtyStart;
+    }
+
+    /**
+     * One past the last changed character. Past the end of the shorter string when the lengths
+     * differ.
+     */
+    public int getDirtyEnd() {
+        return mDirtyEnd;
+    }
+
+    public char[] getPrevious() {
+        return mPrevious;
+    }
+
+    public int getPreviousLength() {
+        return mPreviousLength;
+    }
+
+    public char[] getCurrent() {
+        return mCurrent;
+    }
+
+    public int getCurrentLength() {
+        return mCurrentLength;
+    }
+}
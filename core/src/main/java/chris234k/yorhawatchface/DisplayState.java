@@ -0,0 +1,114 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Display settings derived from system state: the 24 hour setting, the time patterns and text
+ * sizes that follow from it, and the range of time the current date string is good for.
+ *
+ * Nothing here is looked up per frame. The setters are called from the receivers and observers
+ * that see a change, and return true if anything derived from them needs rebuilding.
+ */
+public class DisplayState {
+    private boolean mIs24Hour;
+    private TimeFormatter.Pattern mInteractivePattern, mAmbientPattern;
+
+    private float mBaseTextSize;
+    private float mTimeTextSize, mDateTextSize;
+
+    // The date string is valid from mDateStart (inclusive) to mDateEnd (exclusive), local midnights
+    private long mDateStart, mDateEnd;
+
+    public DisplayState(boolean is24Hour) {
+        mIs24Hour = is24Hour;
+        updatePatterns();
+        invalidateDate();
+    }
+
+    /**
+     * @return true if the setting changed, the time text size changes with it
+     */
+    public boolean setIs24Hour(boolean is24Hour) {
+        if (is24Hour == mIs24Hour) {
+            return false;
+        }
+        mIs24Hour = is24Hour;
+        updatePatterns();
+        updateTextSizes();
+        return true;
+    }
+
+    /**
+     * @return true if the text sizes changed
+     */
+    public boolean setBaseTextSize(float baseTextSize) {
+        if (baseTextSize == mBaseTextSize) {
+            return false;
+        }
+        mBaseTextSize = baseTextSize;
+        updateTextSizes();
+        return true;
+    }
+
+    private void updatePatterns() {
+        mInteractivePattern = TimeFormatter.Pattern.of(mIs24Hour, false);
+        mAmbientPattern = TimeFormatter.Pattern.of(mIs24Hour, true);
+    }
+
+    private void updateTextSizes() {
+        mTimeTextSize = TextLayout.timeTextSize(mBaseTextSize, mIs24Hour);
+        mDateTextSize = TextLayout.dateTextSize(mBaseTextSize);
+    }
+
+    public boolean is24Hour() {
+        return mIs24Hour;
+    }
+
+    public TimeFormatter.Pattern getPattern(boolean ambient) {
+        return ambient ? mAmbientPattern : mInteractivePattern;
+    }
+
+    /**
+     * False until the base text size is known, i.e. before the window insets are applied.
+     */
+    public boolean hasTextSize() {
+        return mBaseTextSize > 0;
+    }
+
+    public float getBaseTextSize() {
+        return mBaseTextSize;
+    }
+
+    public float getTimeTextSize() {
+        return mTimeTextSize;
+    }
+
+    public float getDateTextSize() {
+        return mDateTextSize;
+    }
+
+    /**
+     * The time zone or clock changed, the date has to be formatted again on the next frame.
+     */
+    public void invalidateDate() {
+        mDateStart = Long.MAX_VALUE;
+        mDateEnd = Long.MIN_VALUE;
+    }
+
+    /**
+     * Also false after the clock is set backwards past midnight.
+     */
+    public boolean isDateValid(long nowMillis) {
+        return nowMillis >= mDateStart && nowMillis < mDateEnd;
+    }
+
+    public void setDateValidRange(long startMillis, long endMillis) {
+        mDateStart = startMillis;
+        mDateEnd = endMillis;
+    }
+
+    /**
+     * The next midnight, when the date has to change.
+     */
+    public long getDateEnd() {
+        return mDateEnd;
+    }
+}
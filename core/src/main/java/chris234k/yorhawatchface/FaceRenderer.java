@@ -0,0 +1,432 @@
+package chris234k.yorhawatchface;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything onDraw does, against a RenderTarget: formats the time, decides when to glitch and
+ * lays out and draws the text and complication chips.
+ */
+public class FaceRenderer {
+    public static final int COLOR_AMBIENT_BACKGROUND = 0xFF000000;
+
+    public static final int CHIP_SLOTS = 2;
+
+    /**
+     * Animations are requested a second ahead, so they play as the new value appears. They type
+     * out the time as it will be then, not the time they were requested at.
+     */
+    public static final long ANIMATION_START_DELAY_MS = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * Dirty rectangles grow by this much of the text height, for glyphs drawn past their advance.
+     */
+    private static final float DIRTY_PADDING = 0.1f;
+
+    private final FrameClock mFrameClock;
+    private final Calendar mCalendar;
+    private final TimeFormatter mTimeFormatter;
+    // The time and date the glitch types out, ANIMATION_START_DELAY_MS after it was requested
+    private final Calendar mTargetCalendar;
+    private final TimeFormatter mTargetFormatter;
+    private final DisplayState mDisplayState;
+    private final AnimationTrigger mAnimationTrigger = new AnimationTrigger();
+    private final GlitchTextWriter mGlitchTimeWriter, mGlitchDateWriter;
+    private final ICompletionCallback mOnTextAnimationComplete = new ICompletionCallback() {
+        // Callback updates last animation time
+        @Override
+        public void onComplete() {
+            mAnimationTrigger.onAnimationComplete(mFrameClock.now());
+            if (mAnimationCompleteCallback != null) {
+                mAnimationCompleteCallback.onComplete();
+            }
+        }
+    };
+    private ICompletionCallback mAnimationCompleteCallback;
+
+    private int mWidth, mHeight;
+    private float mCenterX, mCenterY;
+    // The metrics the baselines were worked out with, null to work them out again. The baselines
+    // use the whole charset's height, so the text doesn't bob with each number changed.
+    private GlyphMetrics mTimeMetrics, mDateMetrics;
+    private float mTextY;
+    // Where the strings are drawn, centered again every frame, and where the last frame drew them
+    private float mTimeX, mLastTimeX, mDateX, mLastDateX;
+
+    // The strings on screen, and what changed since the last frame
+    private final DirtySpanTracker mTimeSpan = new DirtySpanTracker();
+    private final DirtySpanTracker mDateSpan = new DirtySpanTracker();
+    private boolean mFullFrameNeeded = true;
+    private boolean mLastAmbient, mLastLowBit;
+    private boolean mAnimationsEnabled = true;
+
+    // Chip data from the providers, and what the last frame drew
+    private final ChipData[] mChips = new ChipData[CHIP_SLOTS];
+    private final ChipData[] mDrawnChips = new ChipData[CHIP_SLOTS];
+    private final float[][] mChipBounds = new float[CHIP_SLOTS][4];
+
+    public FaceRenderer(FrameClock frameClock, TimeZone timeZone, Locale locale, boolean is24Hour) {
+        mFrameClock = frameClock;
+        mCalendar = Calendar.getInstance(timeZone, locale);
+        mTimeFormatter = new TimeFormatter(locale);
+        mTargetCalendar = Calendar.getInstance(timeZone, locale);
+        mTargetFormatter = new TimeFormatter(locale);
+        mDisplayState = new DisplayState(is24Hour);
+
+        mGlitchTimeWriter = new GlitchTextWriter(frameClock, "1234567890:");
+        mGlitchDateWriter = new GlitchTextWriter(frameClock, ""); // random chars are assigned later
+        // Only what changed since the last glitch types out again, shortening the 60 fps window
+        mGlitchTimeWriter.setTransition(GlitchTextWriter.TRANSITION_CHANGED);
+        mGlitchDateWriter.setTransition(GlitchTextWriter.TRANSITION_CHANGED);
+
+        for (int i = 0; i < CHIP_SLOTS; i++) {
+            mChips[i] = ChipData.EMPTY;
+        }
+    }
+
+    public void setSurfaceSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+
+        /*
+         * Find the coordinates of the center point on the screen.
+         * Ignore the window insets so that, on round watches
+         * with a "chin", the watch face is centered on the entire screen,
+         * not just the usable portion.
+         */
+        mCenterX = mWidth / 2f;
+        mCenterY = mHeight / 2f;
+        for (int i = 0; i < CHIP_SLOTS; i++) {
+            TextLayout.chipBounds(i, CHIP_SLOTS, width, height, mChipBounds[i]);
+        }
+        invalidateLayout();
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mCalendar.setTimeZone(timeZone);
+        mTargetCalendar.setTimeZone(timeZone);
+        onTimeSet();
+    }
+
+    /**
+     * The clock jumped, the date and time are formatted from scratch on the next frame.
+     */
+    public void onTimeSet() {
+        mTimeFormatter.reset();
+        mTargetFormatter.reset();
+        mDisplayState.invalidateDate();
+    }
+
+    /**
+     * Allocates when the locale differs, call from the locale change broadcast.
+     *
+     * @return true if the locale changed, the glyph atlases need the new charsets
+     */
+    public boolean setLocale(Locale locale) {
+        if (locale.equals(mTimeFormatter.getLocale())) {
+            return false;
+        }
+        mTimeFormatter.setLocale(locale);
+        mTargetFormatter.setLocale(locale);
+        mDisplayState.invalidateDate();
+        invalidateLayout();
+        return true;
+    }
+
+    /**
+     * @return true if the chip changed and the face needs drawing
+     */
+    public boolean setChip(int slot, ChipData chip) {
+        if (chip.equals(mChips[slot])) {
+            return false;
+        }
+        mChips[slot] = chip;
+        return true;
+    }
+
+    public ChipData getChip(int slot) {
+        return mChips[slot];
+    }
+
+    /**
+     * The slot of the chip drawn at x, y, or -1. Empty slots aren't drawn.
+     */
+    public int chipAt(float x, float y) {
+        for (int i = 0; i < CHIP_SLOTS; i++) {
+            float[] bounds = mChipBounds[i];
+            if (!mChips[i].isEmpty() && x >= bounds[0] && y >= bounds[1] && x < bounds[2] && y < bounds[3]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void setFrameStats(FrameStats stats) {
+        mGlitchTimeWriter.setFrameStats(stats);
+        mGlitchDateWriter.setFrameStats(stats);
+    }
+
+    /**
+     * Surface size or mode changed, lay the text out again on the next frame.
+     */
+    public void invalidateLayout() {
+        mTimeMetrics = null;
+    }
+
+    /**
+     * Leaves the glitch timing to the caller, who starts it with forceAnimationStart (see
+     * WakeupTimeline). Callback is told when each glitch finishes.
+     */
+    public void setAnimationsScheduled(boolean scheduled, ICompletionCallback callback) {
+        mAnimationTrigger.setScheduled(scheduled);
+        mAnimationCompleteCallback = callback;
+    }
+
+    public void forceAnimationStart() {
+        mAnimationTrigger.forceStart();
+    }
+
+    public void stopAnimations() {
+        mGlitchTimeWriter.stopAnimation();
+        mGlitchDateWriter.stopAnimation();
+    }
+
+    public boolean isAnimating() {
+        return mGlitchTimeWriter.getIsAnimating() || mGlitchDateWriter.getIsAnimating();
+    }
+
+    /**
+     * Whether frames now draw the glitch. False while a requested glitch waits out
+     * ANIMATION_START_DELAY_MS, those frames are plain ticks.
+     */
+    public boolean isPlaying() {
+        return mGlitchTimeWriter.getIsPlaying() || mGlitchDateWriter.getIsPlaying();
+    }
+
+    public TimeFormatter getTimeFormatter() {
+        return mTimeFormatter;
+    }
+
+    public DisplayState getDisplayState() {
+        return mDisplayState;
+    }
+
+    /**
+     * Skips the glitch, for stills like the previews and frames drawn ahead on a render thread.
+     */
+    public void setAnimationsEnabled(boolean enabled) {
+        mAnimationsEnabled = enabled;
+        if (!enabled) {
+            stopAnimations();
+        }
+    }
+
+    public void render(RenderTarget target, long nowMillis, boolean ambient, boolean lowBit) {
+        update(nowMillis, ambient);
+        draw(target, ambient, lowBit);
+    }
+
+    /**
+     * Formats the time for nowMillis and starts the glitch when it's due, without drawing. Keeps
+     * the glitch on time for frames drawn elsewhere, e.g. blitted from a render thread.
+     */
+    public void update(long nowMillis, boolean ambient) {
+        mCalendar.setTimeInMillis(nowMillis);
+
+        mTimeFormatter.formatTime(mCalendar, mDisplayState.getPattern(ambient));
+        if (!mDisplayState.isDateValid(nowMillis)) {
+            updateDate(nowMillis);
+        }
+
+        if (!ambient && mAnimationsEnabled) {
+            if (mAnimationTrigger.shouldStart(mCalendar.get(Calendar.SECOND), mFrameClock.now())) {
+                // The glitch plays after the delay, type out the time on screen by then
+                mTargetCalendar.setTimeInMillis(nowMillis + ANIMATION_START_DELAY_MS);
+                mTargetFormatter.formatTime(mTargetCalendar, mDisplayState.getPattern(false));
+                mTargetFormatter.formatDate(mTargetCalendar);
+                char[] timeChars = mTargetFormatter.getTimeChars();
+                int timeLength = mTargetFormatter.getTimeLength();
+                char[] dateChars = mTargetFormatter.getDateChars();
+                int dateLength = mTargetFormatter.getDateLength();
+
+                mGlitchTimeWriter.animateText(timeChars, 0, timeLength, ANIMATION_START_DELAY_MS, mOnTextAnimationComplete);
+
+                mGlitchDateWriter.setRandomCharacterSet(dateChars, 0, dateLength); // Pass in the current string to use as the random set of characters
+                mGlitchDateWriter.animateText(dateChars, 0, dateLength, ANIMATION_START_DELAY_MS, null);
+            }
+        }
+    }
+
+    /**
+     * Draws the time from the last update.
+     */
+    public void draw(RenderTarget target, boolean ambient, boolean lowBit) {
+        target.beginFrame(ambient, lowBit);
+
+        char[] timeChars = mTimeFormatter.getTimeChars();
+        int timeLength = mTimeFormatter.getTimeLength();
+        char[] dateChars = mTimeFormatter.getDateChars();
+        int dateLength = mTimeFormatter.getDateLength();
+
+        updateTextPositions(target);
+        float dateY = TextLayout.dateBaseline(mTextY, mHeight);
+
+        // Draw text using animated text values, once they've started playing
+        if (!ambient && mGlitchTimeWriter.getIsPlaying()) {
+            mTimeSpan.update(mGlitchTimeWriter.getText(), 0, mGlitchTimeWriter.getTextLength());
+            timeChars = mTargetFormatter.getTimeChars();
+            timeLength = mTargetFormatter.getTimeLength();
+        } else {
+            mTimeSpan.update(timeChars, 0, timeLength);
+        }
+
+        if (!ambient && mGlitchDateWriter.getIsPlaying()) {
+            mDateSpan.update(mGlitchDateWriter.getText(), 0, mGlitchDateWriter.getTextLength());
+        } else {
+            mDateSpan.update(dateChars, 0, dateLength);
+        }
+
+        // Exact centering from the metrics tables. The time centers its final string, so the
+        // glitch types out from where the time will be. The date centers whatever is drawn.
+        mLastTimeX = mTimeX;
+        mTimeX = mTimeMetrics.centeredStart(timeChars, 0, timeLength, mCenterX);
+        mLastDateX = mDateX;
+        char[] date = mDateSpan.getCurrent();
+        int drawnDateLength = mDateSpan.getCurrentLength();
+        mDateX = mDateMetrics.centeredStart(date, 0, drawnDateLength, mCenterX)
+                + mDateMetrics.measure(date, 0, drawnDateLength) / 2;
+
+        // Anything that moves or restyles the whole face needs a full frame
+        boolean partial = !mFullFrameNeeded && target.hasPreviousFrame()
+                && ambient == mLastAmbient && lowBit == mLastLowBit;
+        mFullFrameNeeded = false;
+        mLastAmbient = ambient;
+        mLastLowBit = lowBit;
+
+        if (partial) {
+            if (mTimeSpan.isDirty() || mTimeX != mLastTimeX) {
+                redrawDirty(target, mTimeMetrics, mTimeSpan, mLastTimeX, mTimeX, mTextY, RenderTarget.ALIGN_LEFT, ambient, dateY);
+            }
+            if (mDateSpan.isDirty() || mDateX != mLastDateX) {
+                redrawDirty(target, mDateMetrics, mDateSpan, mLastDateX, mDateX, dateY, RenderTarget.ALIGN_CENTER, ambient, dateY);
+            }
+            for (int i = 0; i < CHIP_SLOTS; i++) {
+                if (mChips[i] != mDrawnChips[i]) {
+                    float[] bounds = mChipBounds[i];
+                    target.clipRect(bounds[0], bounds[1], bounds[2], bounds[3]);
+                    drawLayers(target, ambient, dateY);
+                    target.clearClip();
+                }
+            }
+        } else {
+            drawLayers(target, ambient, dateY);
+        }
+        System.arraycopy(mChips, 0, mDrawnChips, 0, CHIP_SLOTS);
+
+        target.endFrame();
+    }
+
+    /**
+     * Draws everything, limited to the clip when repainting part of the last frame.
+     */
+    private void drawLayers(RenderTarget target, boolean ambient, float dateY) {
+        // Draw the background.
+        if (ambient) {
+            target.drawColor(COLOR_AMBIENT_BACKGROUND);
+        } else {
+            target.drawBackground();
+        }
+
+        for (int i = 0; i < CHIP_SLOTS; i++) {
+            if (!mChips[i].isEmpty()) {
+                float[] bounds = mChipBounds[i];
+                target.drawChip(i, mChips[i], bounds[0], bounds[1], bounds[2], bounds[3]);
+            }
+        }
+
+        target.drawText(RenderTarget.TEXT_TIME, mTimeSpan.getCurrent(), 0, mTimeSpan.getCurrentLength(), mTimeX, mTextY, RenderTarget.ALIGN_LEFT);
+        target.drawText(RenderTarget.TEXT_DATE, mDateSpan.getCurrent(), 0, mDateSpan.getCurrentLength(), mDateX, dateY, RenderTarget.ALIGN_CENTER);
+    }
+
+    /**
+     * Repaints the pixels covered by the changed characters of span, on the last frame and this
+     * one. Everything under them is drawn again with a clip, so overhanging glyphs stay whole.
+     *
+     * @param previousX where the last frame drew the span, x is where this one does
+     */
+    private void redrawDirty(RenderTarget target, GlyphMetrics metrics, DirtySpanTracker span, float previousX, float x,
+                             float y, int align, boolean ambient, float dateY) {
+        char[] previous = span.getPrevious();
+        char[] current = span.getCurrent();
+        int previousLength = span.getPreviousLength();
+        int currentLength = span.getCurrentLength();
+        int dirtyStart = span.getDirtyStart();
+        int dirtyEnd = span.getDirtyEnd();
+
+        float previousWidth = metrics.measure(previous, 0, previousLength);
+        float currentWidth = metrics.measure(current, 0, currentLength);
+        float previousLeft = align == RenderTarget.ALIGN_CENTER ? previousX - previousWidth / 2 : previousX;
+        float currentLeft = align == RenderTarget.ALIGN_CENTER ? x - currentWidth / 2 : x;
+
+        float left, right;
+        if (previousLeft != currentLeft) {
+            // Centered text changed width, or was centered again, every glyph moved
+            left = Math.min(previousLeft, currentLeft);
+            right = Math.max(previousLeft + previousWidth, currentLeft + currentWidth);
+        } else {
+            left = currentLeft + metrics.measure(current, 0, dirtyStart);
+            float previousEnd = previousLeft + metrics.measure(previous, 0, Math.min(dirtyEnd, previousLength));
+            float currentEnd = currentLeft + metrics.measure(current, 0, Math.min(dirtyEnd, currentLength));
+            if (previousEnd == currentEnd) {
+                right = currentEnd;
+            } else {
+                // The changed glyphs are a different width, the ones after them moved
+                right = Math.max(previousLeft + previousWidth, currentLeft + currentWidth);
+            }
+        }
+
+        float top = y + metrics.getTop();
+        float bottom = y + metrics.getBottom();
+        float padding = (bottom - top) * DIRTY_PADDING;
+
+        target.clipRect(left - padding, top - padding, right + padding, bottom + padding);
+        drawLayers(target, ambient, dateY);
+        target.clearClip();
+    }
+
+    /**
+     * Formats the date and works out the local midnights it's good between. Leaves mCalendar at
+     * nowMillis.
+     */
+    private void updateDate(long nowMillis) {
+        mTimeFormatter.formatDate(mCalendar);
+
+        // Not always 24 hours apart, DST changes make 23 and 25 hour days
+        mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+        mCalendar.set(Calendar.MINUTE, 0);
+        mCalendar.set(Calendar.SECOND, 0);
+        mCalendar.set(Calendar.MILLISECOND, 0);
+        long dayStart = mCalendar.getTimeInMillis();
+        mCalendar.add(Calendar.DAY_OF_MONTH, 1);
+        mDisplayState.setDateValidRange(dayStart, mCalendar.getTimeInMillis());
+
+        mCalendar.setTimeInMillis(nowMillis);
+    }
+
+    /**
+     * Works out the baselines when the metrics change, with the target's text configuration.
+     * Horizontal positions are worked out every frame in draw.
+     */
+    private void updateTextPositions(RenderTarget target) {
+        GlyphMetrics timeMetrics = target.getGlyphMetrics(RenderTarget.TEXT_TIME);
+        GlyphMetrics dateMetrics = target.getGlyphMetrics(RenderTarget.TEXT_DATE);
+        if (timeMetrics != mTimeMetrics || dateMetrics != mDateMetrics) {
+            mTimeMetrics = timeMetrics;
+            mDateMetrics = dateMetrics;
+            mFullFrameNeeded = true;
+            mTextY = TextLayout.centeredBaseline(mCenterY, timeMetrics.getCenterY());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Options set in the companion app. Immutable, the with methods return changed copies.
+ *
+ * Every field fits in one unsigned byte, see SettingsCodec.
+ */
+public final class FaceSettings {
+    public static final int THEME_LIGHT = 0;
+    public static final int THEME_DARK = 1;
+
+    public static final int HOUR_FORMAT_SYSTEM = 0;
+    public static final int HOUR_FORMAT_12 = 1;
+    public static final int HOUR_FORMAT_24 = 2;
+
+    /**
+     * Glitch interval that turns the glitch off.
+     */
+    public static final int GLITCH_OFF = 0;
+
+    public static final FaceSettings DEFAULT = new FaceSettings(THEME_LIGHT, HOUR_FORMAT_SYSTEM, 10, FrameBudget.FPS_FULL, false);
+
+    private final int mTheme;
+    private final int mHourFormat;
+    private final int mGlitchIntervalSeconds;
+    private final int mMaxFps;
+    private final boolean mBuzzOnHour;
+
+    /**
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public FaceSettings(int theme, int hourFormat, int glitchIntervalSeconds, int maxFps, boolean buzzOnHour) {
+        if (theme < THEME_LIGHT || theme > THEME_DARK) {
+            throw new IllegalArgumentException("Unknown theme " + theme);
+        }
+        if (hourFormat < HOUR_FORMAT_SYSTEM || hourFormat > HOUR_FORMAT_24) {
+            throw new IllegalArgumentException("Unknown hour format " + hourFormat);
+        }
+        if (glitchIntervalSeconds < 0 || glitchIntervalSeconds > 255) {
+            throw new IllegalArgumentException("Glitch interval out of range: " + glitchIntervalSeconds);
+        }
+        if (maxFps < 1 || maxFps > FrameBudget.FPS_FULL) {
+            throw new IllegalArgumentException("Frame rate out of range: " + maxFps);
+        }
+        mTheme = theme;
+        mHourFormat = hourFormat;
+        mGlitchIntervalSeconds = glitchIntervalSeconds;
+        mMaxFps = maxFps;
+        mBuzzOnHour = buzzOnHour;
+    }
+
+    public int getTheme() {
+        return mTheme;
+    }
+
+    public int getHourFormat() {
+        return mHourFormat;
+    }
+
+    /**
+     * Whether to show 24 hour time, given the system setting.
+     */
+    public boolean is24Hour(boolean system24Hour) {
+        return mHourFormat == HOUR_FORMAT_SYSTEM ? system24Hour : mHourFormat == HOUR_FORMAT_24;
+    }
+
+    /**
+     * Seconds between glitches, GLITCH_OFF for none.
+     */
+    public int getGlitchIntervalSeconds() {
+        return mGlitchIntervalSeconds;
+    }
+
+    /**
+     * Cap on the animation frame rate, FrameBudget may go lower.
+     */
+    public int getMaxFps() {
+        return mMaxFps;
+    }
+
+    /**
+     * Whether the watch vibrates at the top of every hour. Off unless asked for.
+     */
+    public boolean isBuzzOnHour() {
+        return mBuzzOnHour;
+    }
+
+    public FaceSettings withTheme(int theme) {
+        return new FaceSettings(theme, mHourFormat, mGlitchIntervalSeconds, mMaxFps, mBuzzOnHour);
+    }
+
+    public FaceSettings withHourFormat(int hourFormat) {
+        return new FaceSettings(mTheme, hourFormat, mGlitchIntervalSeconds, mMaxFps, mBuzzOnHour);
+    }
+
+    public FaceSettings withGlitchIntervalSeconds(int glitchIntervalSeconds) {
+        return new FaceSettings(mTheme, mHourFormat, glitchIntervalSeconds, mMaxFps, mBuzzOnHour);
+    }
+
+    public FaceSettings withMaxFps(int maxFps) {
+        return new FaceSettings(mTheme, mHourFormat, mGlitchIntervalSeconds, maxFps, mBuzzOnHour);
+    }
+
+    public FaceSettings withBuzzOnHour(boolean buzzOnHour) {
+        return new FaceSettings(mTheme, mHourFormat, mGlitchIntervalSeconds, mMaxFps, buzzOnHour);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FaceSettings)) {
+            return false;
+        }
+        FaceSettings other = (FaceSettings) o;
+        return mTheme == other.mTheme && mHourFormat == other.mHourFormat
+                && mGlitchIntervalSeconds == other.mGlitchIntervalSeconds && mMaxFps == other.mMaxFps
+                && mBuzzOnHour == other.mBuzzOnHour;
+    }
+
+    @Override
+    public int hashCode() {
+        return (((mTheme * 31 + mHourFormat) * 31 + mGlitchIntervalSeconds) * 31 + mMaxFps) * 31 + (mBuzzOnHour ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "FaceSettings{theme " + mTheme + ", hours " + mHourFormat + ", glitch " + mGlitchIntervalSeconds
+                + "s, " + mMaxFps + " fps" + (mBuzzOnHour ? ", buzz on hour" : "") + "}";
+    }
+}
@@ -0,0 +1,79 @@
+package chris234k.yorhawatchface;
+
+/**
+ * The colors of one look of the face. Immutable, each theme is built once and shared.
+ */
+public final class FaceTheme {
+    /**
+     * The YoRHa UI, dark text on parchment.
+     */
+    public static final FaceTheme LIGHT = new FaceTheme("light", 0xFFD6D0B8, 0xFF5D5548, 0x80C3BDA5, false);
+    /**
+     * The title menu, parchment text on the dark brown behind it.
+     */
+    public static final FaceTheme DARK = new FaceTheme("dark", 0xFF3A3631, 0xFFD6D0B8, 0x805D5548, false);
+    /**
+     * Black, no grid, the text and chips keep the light theme's color so they stay dim.
+     */
+    public static final FaceTheme AMBIENT = new FaceTheme("ambient", FaceRenderer.COLOR_AMBIENT_BACKGROUND,
+            0xFF5D5548, 0, true);
+
+    private final String mName;
+    private final int mBackgroundColor, mTextColor, mGridColor;
+    private final boolean mAmbient;
+
+    private FaceTheme(String name, int backgroundColor, int textColor, int gridColor, boolean ambient) {
+        mName = name;
+        mBackgroundColor = backgroundColor;
+        mTextColor = textColor;
+        mGridColor = gridColor;
+        mAmbient = ambient;
+    }
+
+    /**
+     * The interactive theme for a FaceSettings theme.
+     *
+     * @throws IllegalArgumentException for an unknown theme
+     */
+    public static FaceTheme of(int theme) {
+        switch (theme) {
+            case FaceSettings.THEME_LIGHT:
+                return LIGHT;
+            case FaceSettings.THEME_DARK:
+                return DARK;
+            default:
+                throw new IllegalArgumentException("Unknown theme " + theme);
+        }
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    /**
+     * Also the color of the chips, their labels are cut out in the background color.
+     */
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    /**
+     * Multiplied over the grid tile, 0 for no grid.
+     */
+    public int getGridColor() {
+        return mGridColor;
+    }
+
+    public boolean isAmbient() {
+        return mAmbient;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
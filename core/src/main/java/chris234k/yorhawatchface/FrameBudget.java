@@ -0,0 +1,72 @@
+package chris234k.yorhawatchface;
+
+/**
+ * How many animation frames a second the face may draw, lowered automatically when power is short.
+ *
+ * Animations step by elapsed time, so a lower rate keeps their duration and only skips in between
+ * steps, trading smoothness for fewer wakeups and draws.
+ */
+public class FrameBudget {
+    public static final int FPS_FULL = 60;
+    public static final int FPS_REDUCED = 30;
+    public static final int FPS_LOW = 20;
+
+    /**
+     * At or below this, and not charging, the budget drops to FPS_REDUCED.
+     */
+    public static final int LOW_BATTERY_PERCENT = 15;
+
+    private int mMaxFps;
+    private boolean mPowerSave;
+    private int mBatteryPercent = 100;
+    private boolean mCharging;
+
+    public FrameBudget(int maxFps) {
+        setMaxFps(maxFps);
+    }
+
+    /**
+     * The configured rate, used while power is fine.
+     */
+    public void setMaxFps(int maxFps) {
+        if (maxFps <= 0 || maxFps > FPS_FULL) {
+            throw new IllegalArgumentException("maxFps must be 1-" + FPS_FULL + ", was " + maxFps);
+        }
+        mMaxFps = maxFps;
+    }
+
+    public int getMaxFps() {
+        return mMaxFps;
+    }
+
+    public void setPowerSave(boolean powerSave) {
+        mPowerSave = powerSave;
+    }
+
+    public void setBattery(int percent, boolean charging) {
+        mBatteryPercent = percent;
+        mCharging = charging;
+    }
+
+    public boolean isLowBattery() {
+        return !mCharging && mBatteryPercent <= LOW_BATTERY_PERCENT;
+    }
+
+    public int getFps() {
+        if (mPowerSave) {
+            return Math.min(mMaxFps, FPS_LOW);
+        }
+        if (isLowBattery()) {
+            return Math.min(mMaxFps, FPS_REDUCED);
+        }
+        return mMaxFps;
+    }
+
+    /**
+     * Minimum time between frames for FrameClock.setFrameInterval, 0 at the full rate.
+     */
+    public long getFrameIntervalMillis() {
+        int fps = getFps();
+        return fps >= FPS_FULL ? 0 : 1000 / fps;
+    }
+}
@@ -0,0 +1,154 @@
+package chris234k.yorhawatchface;
+
+import java.util.ArrayList;
+
+/**
+ * Drives every animated element from a single frame callback.
+ *
+ * Each frame, all registered listeners are advanced in order and then the face is invalidated
+ * exactly once, so animation steps can't drift apart from each other or from the draws. The clock
+ * only runs while it has listeners.
+ *
+ * Subclasses decide where frames come from (see ChoreographerFrameClock), the time source is
+ * injectable so animations can be stepped deterministically off-device.
+ */
+public abstract class FrameClock {
+    // Half a 60 Hz vsync. Throttled frames are requested this early, so they land on the vsync
+    // nearest the interval instead of the one after it.
+    private static final long VSYNC_SLACK_MS = 8;
+
+    public interface TimeSource {
+        long uptimeMillis();
+    }
+
+    public interface FrameListener {
+        void onFrame(long frameTimeMillis);
+    }
+
+    public interface Invalidator {
+        void invalidate();
+    }
+
+    private final TimeSource mTimeSource;
+    private final ArrayList<FrameListener> mListeners = new ArrayList<>();
+    // Copy of mListeners used while dispatching, so listeners can remove themselves mid frame
+    private FrameListener[] mDispatchListeners = new FrameListener[4];
+    private Invalidator mInvalidator;
+
+    private boolean mFrameScheduled;
+    private long mScheduledFrameTime;
+    private long mFrameIntervalMillis;
+
+    protected FrameClock(TimeSource timeSource) {
+        mTimeSource = timeSource;
+    }
+
+    public long now() {
+        return mTimeSource.uptimeMillis();
+    }
+
+    public void setInvalidator(Invalidator invalidator) {
+        mInvalidator = invalidator;
+    }
+
+    /**
+     * Minimum time between frames, 0 for every vsync (see FrameBudget). Listeners that step by
+     * elapsed time get fewer frames and keep their timing.
+     */
+    public void setFrameInterval(long intervalMillis) {
+        mFrameIntervalMillis = intervalMillis;
+    }
+
+    public long getFrameInterval() {
+        return mFrameIntervalMillis;
+    }
+
+    /**
+     * Starts sending frames to listener, the first no sooner than delayMillis from now.
+     */
+    public void addListener(FrameListener listener, long delayMillis) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+
+        long frameTime = now() + delayMillis;
+        if (!mFrameScheduled || frameTime < mScheduledFrameTime) {
+            scheduleFrame(frameTime);
+        }
+    }
+
+    public void removeListener(FrameListener listener) {
+        mListeners.remove(listener);
+        if (mListeners.isEmpty() && mFrameScheduled) {
+            mFrameScheduled = false;
+            cancelFrame();
+        }
+    }
+
+    /**
+     * Whether frames are currently being produced. While running, the clock invalidates the face
+     * every frame, so other timers don't need to.
+     */
+    public boolean isRunning() {
+        return !mListeners.isEmpty();
+    }
+
+    /**
+     * Drops all listeners and pending frames.
+     */
+    public void stop() {
+        mListeners.clear();
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            cancelFrame();
+        }
+    }
+
+    /**
+     * Called by subclasses when the requested frame arrives.
+     */
+    protected void dispatchFrame(long frameTimeMillis) {
+        mFrameScheduled = false;
+
+        int count = mListeners.size();
+        if (count == 0) {
+            return;
+        }
+        if (mDispatchListeners.length < count) {
+            mDispatchListeners = new FrameListener[count * 2];
+        }
+        mListeners.toArray(mDispatchListeners);
+
+        for (int i = 0; i < count; i++) {
+            mDispatchListeners[i].onFrame(frameTimeMillis);
+            mDispatchListeners[i] = null;
+        }
+
+        if (mInvalidator != null) {
+            mInvalidator.invalidate();
+        }
+
+        if (!mListeners.isEmpty() && !mFrameScheduled) {
+            scheduleFrame(Math.max(now(), frameTimeMillis + mFrameIntervalMillis - VSYNC_SLACK_MS));
+        }
+    }
+
+    private void scheduleFrame(long frameTimeMillis) {
+        if (mFrameScheduled) {
+            cancelFrame();
+        }
+        mFrameScheduled = true;
+        mScheduledFrameTime = frameTimeMillis;
+        postFrame(Math.max(0, frameTimeMillis - now()));
+    }
+
+    /**
+     * Requests a single call to dispatchFrame on the next frame at least delayMillis from now.
+     */
+    protected abstract void postFrame(long delayMillis);
+
+    /**
+     * Cancels the pending postFrame request.
+     */
+    protected abstract void cancelFrame();
+}
@@ -0,0 +1,176 @@
+package chris234k.yorhawatchface;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frame timing for the watch face: draw durations and wakeup intervals per mode, how long the
+ * background takes within a draw and animation steps lost to late frames.
+ *
+ * Recording is lock-free and allocation free, so it can stay on in release builds. Reading it
+ * back (dump, toCompactString) allocates and is meant for the rare report.
+ */
+public class FrameStats {
+    public static final int MODE_INTERACTIVE = 0;
+    public static final int MODE_ANIMATING = 1;
+    public static final int MODE_AMBIENT = 2;
+    private static final String[] MODE_NAMES = {"interactive", "animating", "ambient"};
+
+    // One 60 Hz frame
+    public static final long FRAME_BUDGET_US = 16667;
+
+    private static final long[] DRAW_BUCKETS_US = {250, 500, 1000, 2000, 4000, 8000, FRAME_BUDGET_US, 33333, 66667};
+    // Interactive wakes up once a second, ambient once a minute
+    private static final long[] WAKEUP_BUCKETS_MS = {100, 500, 900, 990, 1010, 1100, 1500, 2000, 5000, 59000, 61000, 120000};
+
+    private final Histogram[] mDrawTimes = new Histogram[MODE_NAMES.length];
+    private final Histogram mBackgroundDrawTimes = new Histogram(DRAW_BUCKETS_US);
+    private final Histogram[] mWakeupIntervals = new Histogram[MODE_NAMES.length];
+    private final AtomicLongArray mLastWakeup = new AtomicLongArray(MODE_NAMES.length);
+    private final AtomicLong mLateFrames = new AtomicLong();
+    private final AtomicLong mSkippedSteps = new AtomicLong();
+    private volatile long mStartTime;
+
+    public FrameStats(long nowMillis) {
+        for (int i = 0; i < mDrawTimes.length; i++) {
+            mDrawTimes[i] = new Histogram(DRAW_BUCKETS_US);
+            mWakeupIntervals[i] = new Histogram(WAKEUP_BUCKETS_MS);
+        }
+        breakWakeupInterval();
+        mStartTime = nowMillis;
+    }
+
+    public void recordDraw(int mode, long durationNanos) {
+        mDrawTimes[mode].record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    /**
+     * The part of a frame spent drawing the background, the blit of the cached composite unless
+     * it was trimmed.
+     */
+    public void recordBackgroundDraw(long durationNanos) {
+        mBackgroundDrawTimes.record(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    }
+
+    /**
+     * Records the interval since the previous wakeup in mode: the update timer while interactive,
+     * the time tick in ambient.
+     */
+    public void recordWakeup(int mode, long nowMillis) {
+        long previous = mLastWakeup.getAndSet(mode, nowMillis);
+        if (previous >= 0) {
+            mWakeupIntervals[mode].record(nowMillis - previous);
+        }
+    }
+
+    /**
+     * The mode changed or the face was hidden, the next wakeups don't follow from the last ones.
+     */
+    public void breakWakeupInterval() {
+        for (int i = 0; i < mLastWakeup.length(); i++) {
+            mLastWakeup.set(i, -1);
+        }
+    }
+
+    /**
+     * An animation frame arrived late enough that steps were never drawn. Only animations step,
+     * so these always belong to MODE_ANIMATING.
+     */
+    public void recordSkippedSteps(int steps) {
+        mLateFrames.incrementAndGet();
+        mSkippedSteps.addAndGet(steps);
+    }
+
+    public Histogram getDrawTimes(int mode) {
+        return mDrawTimes[mode];
+    }
+
+    public Histogram getBackgroundDrawTimes() {
+        return mBackgroundDrawTimes;
+    }
+
+    public Histogram getWakeupIntervals(int mode) {
+        return mWakeupIntervals[mode];
+    }
+
+    public long getLateFrames() {
+        return mLateFrames.get();
+    }
+
+    public long getSkippedSteps() {
+        return mSkippedSteps.get();
+    }
+
+    public void reset(long nowMillis) {
+        for (Histogram histogram : mDrawTimes) {
+            histogram.reset();
+        }
+        for (Histogram histogram : mWakeupIntervals) {
+            histogram.reset();
+        }
+        mBackgroundDrawTimes.reset();
+        breakWakeupInterval();
+        mLateFrames.set(0);
+        mSkippedSteps.set(0);
+        mStartTime = nowMillis;
+    }
+
+    public void dump(PrintWriter writer, long nowMillis) {
+        long elapsed = Math.max(1, nowMillis - mStartTime);
+        writer.println("Frame stats over " + TimeUnit.MILLISECONDS.toSeconds(elapsed) + "s");
+
+        for (int mode = 0; mode < mDrawTimes.length; mode++) {
+            Histogram draws = mDrawTimes[mode];
+            long frames = draws.getTotalCount();
+            writer.println("  " + MODE_NAMES[mode] + ": " + frames + " frames (" + frames * TimeUnit.HOURS.toMillis(1) / elapsed + "/h)"
+                    + ", over budget " + draws.getCountAbove(FRAME_BUDGET_US));
+            writer.println("    draw us: mean " + draws.getMean() + " p50 " + draws.getPercentile(50)
+                    + " p90 " + draws.getPercentile(90) + " p99 " + draws.getPercentile(99) + " max " + draws.getMax());
+            dumpBuckets(writer, draws, "us");
+
+            Histogram wakeups = mWakeupIntervals[mode];
+            if (wakeups.getTotalCount() > 0) {
+                writer.println("    wakeups: " + wakeups.getTotalCount() + " intervals, mean " + wakeups.getMean()
+                        + "ms max " + wakeups.getMax() + "ms");
+                dumpBuckets(writer, wakeups, "ms");
+            }
+        }
+
+        writer.println("  background: " + mBackgroundDrawTimes.getTotalCount() + " draws, mean "
+                + mBackgroundDrawTimes.getMean() + "us p90 " + mBackgroundDrawTimes.getPercentile(90) + "us max "
+                + mBackgroundDrawTimes.getMax() + "us");
+
+        writer.println("  animation: " + mLateFrames.get() + " late frames, " + mSkippedSteps.get() + " skipped steps");
+    }
+
+    private static void dumpBuckets(PrintWriter writer, Histogram histogram, String unit) {
+        StringBuilder builder = new StringBuilder("    ");
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            long bound = histogram.getUpperBound(i);
+            builder.append(bound == Long.MAX_VALUE ? ">" + histogram.getUpperBound(i - 1) : "<=" + bound)
+                    .append(unit).append(':').append(histogram.getCount(i)).append(' ');
+        }
+        writer.println(builder.toString().trim());
+    }
+
+    /**
+     * One line summary for the periodic log.
+     */
+    public String toCompactString(long nowMillis) {
+        long elapsed = Math.max(1, nowMillis - mStartTime);
+        StringBuilder builder = new StringBuilder();
+        builder.append(TimeUnit.MILLISECONDS.toSeconds(elapsed)).append('s');
+        for (int mode = 0; mode < mDrawTimes.length; mode++) {
+            Histogram draws = mDrawTimes[mode];
+            builder.append(' ').append(MODE_NAMES[mode]).append('=').append(draws.getTotalCount())
+                    .append('/').append(draws.getPercentile(90)).append("us")
+                    .append('/').append(draws.getCountAbove(FRAME_BUDGET_US))
+                    .append('/').append(mWakeupIntervals[mode].getTotalCount()).append('w');
+        }
+        builder.append(" late=").append(mLateFrames.get())
+                .append(" skipped=").append(mSkippedSteps.get());
+        return builder.toString();
+    }
+}
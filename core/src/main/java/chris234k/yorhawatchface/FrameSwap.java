@@ -0,0 +1,119 @@
+package chris234k.yorhawatchface;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Two frame buffers shared by one producer thread, which renders ahead, and one consumer thread,
+ * which shows the frames. Lock-free, and neither side ever waits for the other.
+ *
+ * The consumer owns the front buffer and the producer draws into the other one. A finished frame
+ * is published as ready, and the consumer swaps it to the front only if it shows the key the
+ * consumer wants (e.g. the current second). The producer takes back a ready frame that was never
+ * swapped in before drawing over it.
+ *
+ * Every frame is stamped with the epoch it was requested in. Anything that changes how frames
+ * should look (ambient, visibility, settings) advances the epoch, so frames that were in flight
+ * during the change are never shown.
+ */
+public class FrameSwap<T> {
+    // State bits: the front buffer index, and whether the other buffer holds a ready frame
+    private static final int FRONT_MASK = 1;
+    private static final int READY = 2;
+
+    private final Object[] mBuffers;
+    private final AtomicInteger mState = new AtomicInteger();
+    private final AtomicLong mEpoch = new AtomicLong();
+    // Written by the producer for its back buffer only, before publishing it
+    private final AtomicLongArray mEpochs = new AtomicLongArray(2);
+    private final AtomicLongArray mKeys = new AtomicLongArray(2);
+
+    // Producer only
+    private int mBackIndex = -1;
+
+    public FrameSwap(T first, T second) {
+        mBuffers = new Object[]{first, second};
+        // Nothing is valid until the first frame is published
+        mEpochs.set(0, -1);
+        mEpochs.set(1, -1);
+    }
+
+    public long getEpoch() {
+        return mEpoch.get();
+    }
+
+    /**
+     * Discards every frame rendered or in flight, from any thread.
+     *
+     * @return the new epoch
+     */
+    public long advanceEpoch() {
+        return mEpoch.incrementAndGet();
+    }
+
+    /**
+     * Producer: the buffer to render the next frame into. A ready frame the consumer hasn't taken
+     * is taken back, it's about to be overwritten.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquireBack() {
+        int state;
+        do {
+            state = mState.get();
+        } while (!mState.compareAndSet(state, state & FRONT_MASK));
+
+        mBackIndex = 1 - (state & FRONT_MASK);
+        return (T) mBuffers[mBackIndex];
+    }
+
+    /**
+     * Producer: hands the buffer from acquireBack to the consumer.
+     *
+     * @param epoch the epoch the frame was requested in
+     * @param key   what the frame shows, e.g. the second it's for
+     * @return false if the epoch already moved on, the frame will never be shown
+     */
+    public boolean publish(long epoch, long key) {
+        if (mBackIndex < 0) {
+            throw new IllegalStateException("publish without acquireBack");
+        }
+        mEpochs.set(mBackIndex, epoch);
+        mKeys.set(mBackIndex, key);
+        // Only the consumer changes the front, and it can't while nothing is ready
+        mState.set((1 - mBackIndex) | READY);
+        mBackIndex = -1;
+        return epoch == mEpoch.get();
+    }
+
+    /**
+     * Consumer: swaps in the ready frame if it's for key in the current epoch.
+     *
+     * @return the front buffer if it shows key in the current epoch, null if the caller has to
+     * draw the frame itself
+     */
+    @SuppressWarnings("unchecked")
+    public T take(long key) {
+        long epoch = mEpoch.get();
+        while (true) {
+            int state = mState.get();
+            if ((state & READY) == 0) {
+                break;
+            }
+            int ready = 1 - (state & FRONT_MASK);
+            if (mEpochs.get(ready) != epoch || mKeys.get(ready) != key) {
+                break; // Stale or early, the producer will reuse it
+            }
+            if (mState.compareAndSet(state, ready)) {
+                break;
+            }
+        }
+
+        // The producer may have republished between the checks and the swap, check what's in front
+        int front = mState.get() & FRONT_MASK;
+        if (mEpochs.get(front) == epoch && mKeys.get(front) == key) {
+            return (T) mBuffers[front];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,277 @@
+package chris234k.yorhawatchface;
+
+import java.util.Random;
+
+/**
+ * Created by Chris on 6/27/2017.
+ */
+
+public class GlitchTextWriter {
+    /**
+     * Every animation types out the whole string.
+     */
+    public static final int TRANSITION_FULL = 0;
+    /**
+     * Characters that match the last animation's text stay put, the glitch starts at the first one
+     * that changed. The last character always glitches, so an unchanged string still gets a short
+     * glitch.
+     */
+    public static final int TRANSITION_CHANGED = 1;
+
+    private boolean mIsAnimating;
+    private boolean mIsPlaying; // Past the delay, the frames are the animation's
+    private long mStartTime; // Frames before this belong to other animations
+    private int mLastFrame;
+    private FrameStats mFrameStats;
+
+    // The end result and every frame on the way there, compiled when the animation is requested
+    private final GlitchTimeline mTimeline = new GlitchTimeline();
+    // Buffers only grow, so steady state steps don't allocate
+    private char[] mCurrentText = new char[16]; // Current string value, as it animates toward the timeline's target
+    private int mCurrentLength;
+    private final CharSequence mCurrentTextView = new CharSequence() {
+        @Override
+        public int length() {
+            return mCurrentLength;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return mCurrentText[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(mCurrentText, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(mCurrentText, 0, mCurrentLength);
+        }
+    };
+
+    private int mTransition = TRANSITION_FULL;
+    // What the last animation typed out, for TRANSITION_CHANGED
+    private char[] mLastTarget = new char[16];
+    private int mLastTargetLength = -1;
+
+    private final Random mRandom;
+    private final FrameClock mFrameClock;
+    private final FrameClock.FrameListener mFrameListener;
+
+    private ICompletionCallback mCompletionCallback;
+
+    // NieR selects random characters from the end result string
+    // Instead, we select random characters from all valid time string values
+    // With numbers, the effect is much less pronounced:
+    // 10:00:00 only has 3 unique chars
+    private char[] mRandomCharSet = new char[16]; // For example: "1234567890:";
+    private int mRandomCharSetLength;
+
+    /**
+     * Plays on frameClock, which is shared with everything else on screen.
+     */
+    public GlitchTextWriter(FrameClock frameClock, String randomCharSet) {
+        this(frameClock, randomCharSet, new Random());
+    }
+
+    /**
+     * Seeded, the same text always animates through the same characters.
+     */
+    public GlitchTextWriter(FrameClock frameClock, String randomCharSet, long seed) {
+        this(frameClock, randomCharSet, new Random(seed));
+    }
+
+    private GlitchTextWriter(FrameClock frameClock, String randomCharSet, Random random) {
+        mFrameClock = frameClock;
+        mRandom = random;
+        setRandomCharacterSet(randomCharSet);
+
+        mFrameListener = new FrameClock.FrameListener() {
+            @Override
+            public void onFrame(long frameTimeMillis) {
+                if (frameTimeMillis < mStartTime) {
+                    return;
+                }
+
+                // Here's an example progression from NieR
+                // L
+                // a
+                // Lg
+                // LL
+                // LaL
+                // Laa
+                // Lang
+                // LanL
+                // Langg
+                // Langg
+                // LanguL
+                // Langue
+                // LanguaL
+                // Languag
+                // Languaga
+                // Language
+                //
+                // The timeline holds every one of those frames, pick the one for the current time.
+                // A late frame skips ahead rather than stretching the animation out.
+
+                mIsAnimating = true;
+                mIsPlaying = true;
+
+                int frame = mTimeline.frameAt(frameTimeMillis - mStartTime);
+                int lastFrame = mTimeline.getFrameCount() - 1;
+                // Steps the frame budget skips on purpose aren't late
+                int budgetSteps = Math.max(1, mTimeline.frameAt(mFrameClock.getFrameInterval()));
+                int skippedSteps = Math.min(frame, lastFrame) - mLastFrame - budgetSteps;
+                if (mFrameStats != null && skippedSteps > 0) {
+                    mFrameStats.recordSkippedSteps(skippedSteps);
+                }
+                mLastFrame = frame;
+                mCurrentLength = mTimeline.write(Math.min(frame, lastFrame), mCurrentText);
+
+                if(frame >= lastFrame) {
+                    mIsAnimating = false;
+                    mIsPlaying = false;
+                    mFrameClock.removeListener(mFrameListener);
+
+                    if(mCompletionCallback != null) {
+                        mCompletionCallback.onComplete();
+                    }
+                }
+            }
+        };
+    }
+
+    public void setRandomCharacterSet(String characterSet) {
+        mRandomCharSet = ensureCapacity(mRandomCharSet, characterSet.length());
+        characterSet.getChars(0, characterSet.length(), mRandomCharSet, 0);
+        mRandomCharSetLength = characterSet.length();
+    }
+
+    /**
+     * Uses the characters in text as the random set, skipping spaces (a blank doesn't read as a
+     * glitch).
+     */
+    public void setRandomCharacterSet(char[] text, int start, int count) {
+        mRandomCharSet = ensureCapacity(mRandomCharSet, count);
+        mRandomCharSetLength = 0;
+        for (int i = start; i < start + count; i++) {
+            if (text[i] != ' ') {
+                mRandomCharSet[mRandomCharSetLength++] = text[i];
+            }
+        }
+    }
+
+    /**
+     * TRANSITION_FULL or TRANSITION_CHANGED, from the next animation.
+     */
+    public void setTransition(int transition) {
+        mTransition = transition;
+    }
+
+    /**
+     * Frames that arrive too late to show every step are reported to stats.
+     */
+    public void setFrameStats(FrameStats stats) {
+        mFrameStats = stats;
+    }
+
+    public boolean getIsAnimating() {
+        return mIsAnimating;
+    }
+
+    /**
+     * True once the animation's first frame has played. Until then getText() is only the target,
+     * which may not be on screen yet.
+     */
+    public boolean getIsPlaying() {
+        return mIsPlaying;
+    }
+
+    /**
+     * The current text, valid up to getTextLength(). Changes as the animation steps.
+     */
+    public char[] getText() {
+        return mCurrentText;
+    }
+
+    public int getTextLength() {
+        return mCurrentLength;
+    }
+
+    /**
+     * A live view of the current text, reading it doesn't allocate.
+     */
+    public CharSequence getTextView() {
+        return mCurrentTextView;
+    }
+
+    /**
+     * Allocates, prefer getText() or getTextView() when drawing.
+     */
+    public String getTextValue() {
+        return mCurrentTextView.toString();
+    }
+
+    /**
+     * Allocates, prefer the char[] overload on the draw path.
+     */
+    public void animateText(String text, long delayMillis, ICompletionCallback completionCallback) {
+        animateText(text.toCharArray(), 0, text.length(), delayMillis, completionCallback);
+    }
+
+    /**
+     * Compiles the animation towards text right away and starts playing it after delayMillis.
+     */
+    public void animateText(char[] text, int start, int count, long delayMillis, ICompletionCallback completionCallback) {
+        // Don't allow animations to be interrupted, stopAnimation should be called directly.
+        if(mIsAnimating || count == 0) {
+            return;
+        }
+
+        int firstIndex = mTransition == TRANSITION_CHANGED ? firstChange(text, start, count) : 0;
+        mTimeline.compile(text, start, count, firstIndex, mRandomCharSet, mRandomCharSetLength, mRandom);
+        mLastTarget = ensureCapacity(mLastTarget, count);
+        System.arraycopy(text, start, mLastTarget, 0, count);
+        mLastTargetLength = count;
+
+        mCurrentText = ensureCapacity(mCurrentText, count);
+        System.arraycopy(text, start, mCurrentText, 0, count);
+        mCurrentLength = count;
+        mIsAnimating = true;
+        mCompletionCallback = completionCallback;
+        mLastFrame = -1;
+
+        mStartTime = mFrameClock.now() + delayMillis;
+        mFrameClock.addListener(mFrameListener, delayMillis);
+    }
+
+    public void stopAnimation() {
+        if(mIsAnimating) {
+            mFrameClock.removeListener(mFrameListener);
+            mIsAnimating = false;
+            mIsPlaying = false;
+        }
+    }
+
+    /**
+     * Index of the first character that differs from the last animation's text, at most the last
+     * index. 0 before the first animation.
+     */
+    private int firstChange(char[] text, int start, int count) {
+        if (mLastTargetLength < 0) {
+            return 0;
+        }
+        int limit = Math.min(count - 1, mLastTargetLength);
+        int index = 0;
+        while (index < limit && text[start + index] == mLastTarget[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    private static char[] ensureCapacity(char[] buffer, int length) {
+        return buffer.length >= length ? buffer : new char[length * 2];
+    }
+}
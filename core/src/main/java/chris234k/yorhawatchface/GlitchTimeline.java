@@ -0,0 +1,117 @@
+package chris234k.yorhawatchface;
+
+import java.util.Random;
+
+/**
+ * The whole glitch progression for one string, compiled ahead of time.
+ *
+ * For a given target, charset and random sequence the progression is fully determined, so it's
+ * built while the writer waits out its start delay. Playback is then a lookup keyed by elapsed
+ * time: no random rolls in the 60 fps window, and a late frame lands on the right state instead of
+ * slowing the animation down.
+ */
+public class GlitchTimeline {
+    public static final int FRAMES_PER_INDEX = 3; // NieR uses 2, but only deals with letters. 3 looks better for numbers.
+    public static final int FRAMES_PER_SECOND = 60;
+
+    // Buffers only grow, recompiling doesn't allocate in steady state
+    private char[] mTarget = new char[16];
+    private int mLength;
+    private char[] mFrameChars = new char[16 * FRAMES_PER_INDEX]; // Character shown at the glitching index, per frame
+    private int mFrameCount;
+    private int mFirstIndex;
+
+    /**
+     * Builds the progression towards text, rolling glitch characters from charset.
+     */
+    public void compile(char[] text, int start, int count, char[] charset, int charsetLength, Random random) {
+        compile(text, start, count, 0, charset, charsetLength, random);
+    }
+
+    /**
+     * Builds the progression towards text starting at firstIndex. Characters before it are shown
+     * from the first frame and never glitch.
+     */
+    public void compile(char[] text, int start, int count, int firstIndex, char[] charset, int charsetLength,
+                        Random random) {
+        if (firstIndex < 0 || firstIndex >= count) {
+            throw new IllegalArgumentException("First index " + firstIndex + " outside of " + count + " chars");
+        }
+        if (mTarget.length < count) {
+            mTarget = new char[count * 2];
+            mFrameChars = new char[count * 2 * FRAMES_PER_INDEX];
+        }
+        System.arraycopy(text, start, mTarget, 0, count);
+        mLength = count;
+        mFirstIndex = firstIndex;
+        mFrameCount = (count - firstIndex) * FRAMES_PER_INDEX;
+
+        // Consecutively display each character in the string
+        //
+        // For index x
+        // Draw correct letters from 0 to x-1
+        // Frames 1..n-1 - display random letter at x
+        // Frame n - display value at index 0 at x
+        // Advance index
+        //
+        // This gives the appearance that index 0 is moving through the string to populate it.
+        // Starting later, the first glitching index moves instead.
+        for (int frame = 0; frame < mFrameCount; frame++) {
+            boolean lastFrameOfIndex = frame % FRAMES_PER_INDEX == FRAMES_PER_INDEX - 1;
+            if (!lastFrameOfIndex && charsetLength > 0) {
+                mFrameChars[frame] = charset[random.nextInt(charsetLength)];
+            } else {
+                mFrameChars[frame] = mTarget[firstIndex];
+            }
+        }
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getDurationMillis() {
+        return (mFrameCount * 1000L + FRAMES_PER_SECOND - 1) / FRAMES_PER_SECOND;
+    }
+
+    /**
+     * The frame to show elapsedMillis after the start, rounded to the nearest vsync. May be past
+     * the last frame, meaning the animation is over.
+     */
+    public int frameAt(long elapsedMillis) {
+        if (elapsedMillis <= 0) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (elapsedMillis * FRAMES_PER_SECOND + 500) / 1000);
+    }
+
+    /**
+     * Writes the text for frame into out, which must hold at least getLength() chars.
+     *
+     * @return the length of the text
+     */
+    public int write(int frame, char[] out) {
+        int length = mFirstIndex + frame / FRAMES_PER_INDEX + 1;
+        System.arraycopy(mTarget, 0, out, 0, length - 1);
+        out[length - 1] = mFrameChars[frame];
+        return length;
+    }
+
+    /**
+     * Length of the target text.
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Index of the first character that glitches.
+     */
+    public int getFirstIndex() {
+        return mFirstIndex;
+    }
+
+    public char[] getTarget() {
+        return mTarget;
+    }
+}
@@ -0,0 +1,178 @@
+package chris234k.yorhawatchface;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Advance and ink bounds of every glyph in a character set, measured once per text configuration
+ * (see GlyphMetricsCache). Lays out any string of those glyphs with table lookups and arithmetic,
+ * so text can be centered exactly on every frame without measuring or allocating.
+ *
+ * Bounds are relative to the pen position and baseline, as from Paint.getTextBounds. Characters
+ * outside the set get the fallback glyph's metrics.
+ */
+public final class GlyphMetrics {
+    private final char[] mChars; // Sorted, for binary search
+    private final float[] mAdvances, mLefts, mRights;
+    private final float mFallbackAdvance, mFallbackLeft, mFallbackRight;
+    // The whole set's vertical extent, so the baseline doesn't move with the string
+    private final float mTop, mBottom;
+
+    private GlyphMetrics(char[] chars, float[] advances, float[] lefts, float[] rights, float top, float bottom,
+                         float fallbackAdvance, float fallbackLeft, float fallbackRight) {
+        mChars = chars;
+        mAdvances = advances;
+        mLefts = lefts;
+        mRights = rights;
+        mTop = top;
+        mBottom = bottom;
+        mFallbackAdvance = fallbackAdvance;
+        mFallbackLeft = fallbackLeft;
+        mFallbackRight = fallbackRight;
+    }
+
+    /**
+     * Builds the tables from per glyph measurements, in the order of chars. Duplicates keep the
+     * first measurement. The widest glyph is the fallback.
+     *
+     * @param tops    bounds tops, negative above the baseline
+     * @param bottoms bounds bottoms
+     */
+    public static GlyphMetrics of(char[] chars, float[] advances, float[] lefts, float[] tops,
+                                  float[] rights, float[] bottoms) {
+        int length = chars.length;
+        Integer[] order = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+        final char[] unsorted = chars;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return unsorted[a] != unsorted[b] ? unsorted[a] - unsorted[b] : a - b;
+            }
+        });
+
+        char[] sortedChars = new char[length];
+        float[] sortedAdvances = new float[length];
+        float[] sortedLefts = new float[length];
+        float[] sortedRights = new float[length];
+        float top = 0, bottom = 0;
+        int widest = -1;
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int glyph = order[i];
+            if (count > 0 && sortedChars[count - 1] == chars[glyph]) {
+                continue;
+            }
+            sortedChars[count] = chars[glyph];
+            sortedAdvances[count] = advances[glyph];
+            sortedLefts[count] = lefts[glyph];
+            sortedRights[count] = rights[glyph];
+            top = Math.min(top, tops[glyph]);
+            bottom = Math.max(bottom, bottoms[glyph]);
+            if (widest < 0 || advances[glyph] > sortedAdvances[widest]) {
+                widest = count;
+            }
+            count++;
+        }
+
+        if (widest < 0) {
+            return new GlyphMetrics(new char[0], new float[0], new float[0], new float[0], top, bottom, 0, 0, 0);
+        }
+        return new GlyphMetrics(Arrays.copyOf(sortedChars, count), Arrays.copyOf(sortedAdvances, count),
+                Arrays.copyOf(sortedLefts, count), Arrays.copyOf(sortedRights, count), top, bottom,
+                sortedAdvances[widest], sortedLefts[widest], sortedRights[widest]);
+    }
+
+    /**
+     * Every character gets the same box, advance wide, from top to bottom.
+     */
+    public static GlyphMetrics monospace(float advance, float top, float bottom) {
+        return new GlyphMetrics(new char[0], new float[0], new float[0], new float[0], top, bottom,
+                advance, 0, advance);
+    }
+
+    /**
+     * Sum of the advances, as Paint.measureText.
+     */
+    public float measure(char[] text, int start, int count) {
+        float width = 0;
+        for (int i = start; i < start + count; i++) {
+            width += advanceOf(text[i]);
+        }
+        return width;
+    }
+
+    public float advanceOf(char c) {
+        int index = Arrays.binarySearch(mChars, c);
+        return index >= 0 ? mAdvances[index] : mFallbackAdvance;
+    }
+
+    /**
+     * Left edge of the glyph's ink, relative to the pen.
+     */
+    public float leftOf(char c) {
+        int index = Arrays.binarySearch(mChars, c);
+        return index >= 0 ? mLefts[index] : mFallbackLeft;
+    }
+
+    /**
+     * Right edge of the glyph's ink, relative to the pen.
+     */
+    public float rightOf(char c) {
+        int index = Arrays.binarySearch(mChars, c);
+        return index >= 0 ? mRights[index] : mFallbackRight;
+    }
+
+    /**
+     * Left edge of the text's ink, relative to its pen start.
+     */
+    public float inkLeft(char[] text, int start, int count) {
+        return count == 0 ? 0 : leftOf(text[start]);
+    }
+
+    /**
+     * Right edge of the text's ink, relative to its pen start.
+     */
+    public float inkRight(char[] text, int start, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        return measure(text, start, count - 1) + rightOf(text[start + count - 1]);
+    }
+
+    /**
+     * Pen start that puts the text's ink centered on centerX. Side bearings can make this differ
+     * from centering the advance width.
+     */
+    public float centeredStart(char[] text, int start, int count, float centerX) {
+        return centerX - (inkLeft(text, start, count) + inkRight(text, start, count)) / 2;
+    }
+
+    /**
+     * Top of the tallest glyph in the set, relative to the baseline (negative).
+     */
+    public float getTop() {
+        return mTop;
+    }
+
+    /**
+     * Bottom of the lowest glyph in the set, relative to the baseline.
+     */
+    public float getBottom() {
+        return mBottom;
+    }
+
+    /**
+     * Vertical center of the set's bounds, relative to the baseline. The same for every string, so
+     * the text doesn't bob as digits change.
+     */
+    public float getCenterY() {
+        return (mTop + mBottom) / 2;
+    }
+
+    public int size() {
+        return mChars.length;
+    }
+}
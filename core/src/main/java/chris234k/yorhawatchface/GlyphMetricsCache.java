@@ -0,0 +1,49 @@
+package chris234k.yorhawatchface;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * GlyphMetrics for the last few text configurations, so switching back to one (24 hour setting,
+ * ambient and interactive, a locale) doesn't measure every glyph again.
+ *
+ * Keyed by everything that changes the metrics, see key. Not thread safe.
+ */
+public class GlyphMetricsCache {
+    private final Map<String, GlyphMetrics> mEntries;
+
+    public GlyphMetricsCache(final int capacity) {
+        // Access ordered, the least recently used configuration goes first
+        mEntries = new LinkedHashMap<String, GlyphMetrics>(capacity + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, GlyphMetrics> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Allocates, call when the configuration changes. The 24 hour setting and round or square
+     * screens are covered by the text sizes and charsets they pick, ambient by anti-aliasing.
+     *
+     * @param typeface identifies the font, e.g. its identity hash
+     */
+    public static String key(float textSize, int typeface, boolean antiAlias, String charset) {
+        return textSize + "/" + typeface + "/" + antiAlias + "/" + charset;
+    }
+
+    /**
+     * @return null if the configuration isn't cached
+     */
+    public GlyphMetrics get(String key) {
+        return mEntries.get(key);
+    }
+
+    public void put(String key, GlyphMetrics metrics) {
+        mEntries.put(key, metrics);
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+}
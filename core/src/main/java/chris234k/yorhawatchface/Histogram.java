@@ -0,0 +1,106 @@
+package chris234k.yorhawatchface;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram over fixed buckets. Recording is a few atomic adds, never allocates.
+ */
+public class Histogram {
+    private final long[] mUpperBounds; // Inclusive and ascending, anything larger goes in the overflow bucket
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    public Histogram(long... upperBounds) {
+        mUpperBounds = upperBounds.clone();
+        mCounts = new AtomicLongArray(upperBounds.length + 1);
+    }
+
+    public void record(long value) {
+        int bucket = 0;
+        while (bucket < mUpperBounds.length && value > mUpperBounds[bucket]) {
+            bucket++;
+        }
+        mCounts.incrementAndGet(bucket);
+        mSum.addAndGet(value);
+
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    public int getBucketCount() {
+        return mCounts.length();
+    }
+
+    /**
+     * Upper bound of bucket, Long.MAX_VALUE for the overflow bucket.
+     */
+    public long getUpperBound(int bucket) {
+        return bucket < mUpperBounds.length ? mUpperBounds[bucket] : Long.MAX_VALUE;
+    }
+
+    public long getCount(int bucket) {
+        return mCounts.get(bucket);
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            total += mCounts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Number of recorded values above threshold, exact when threshold is one of the bounds.
+     */
+    public long getCountAbove(long threshold) {
+        long count = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            if (getUpperBound(i) > threshold) {
+                count += mCounts.get(i);
+            }
+        }
+        return count;
+    }
+
+    public long getMean() {
+        long total = getTotalCount();
+        return total == 0 ? 0 : mSum.get() / total;
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-100), or the max if it's in the
+     * overflow bucket.
+     */
+    public long getPercentile(double percentile) {
+        long total = getTotalCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            seen += mCounts.get(i);
+            if (seen >= rank) {
+                return i < mUpperBounds.length ? mUpperBounds[i] : getMax();
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mSum.set(0);
+        mMax.set(0);
+    }
+}
@@ -0,0 +1,8 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Told when an animation finishes.
+ */
+interface ICompletionCallback {
+    void onComplete();
+}
@@ -0,0 +1,83 @@
+package chris234k.yorhawatchface;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Renders a batch of previews in parallel. Each one gets its own FaceRenderer and target, nothing
+ * mutable is shared between threads.
+ */
+public final class PreviewBatch {
+    private PreviewBatch() {
+    }
+
+    public interface Renderer<T> {
+        /**
+         * Called on an executor thread, possibly several at once.
+         */
+        T render(PreviewSpec spec) throws Exception;
+    }
+
+    /**
+     * @return the results in the order of specs
+     * @throws ExecutionException wrapping the first failure, the rest are cancelled
+     */
+    public static <T> List<T> renderAll(List<PreviewSpec> specs, final Renderer<T> renderer, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        ArrayList<Future<T>> futures = new ArrayList<>(specs.size());
+        for (final PreviewSpec spec : specs) {
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return renderer.render(spec);
+                }
+            }));
+        }
+
+        ArrayList<T> results = new ArrayList<>(specs.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * A renderer set up to draw spec at PreviewSpec.TIME_MILLIS, with the preview chips and no
+     * glitch. Call render with that time.
+     */
+    public static FaceRenderer newFaceRenderer(PreviewSpec spec, float baseTextSize) {
+        FrameClock stillClock = new FrameClock(new FrameClock.TimeSource() {
+            @Override
+            public long uptimeMillis() {
+                return 0;
+            }
+        }) {
+            @Override
+            protected void postFrame(long delayMillis) {
+            }
+
+            @Override
+            protected void cancelFrame() {
+            }
+        };
+
+        FaceRenderer renderer = new FaceRenderer(stillClock, PreviewSpec.TIME_ZONE, PreviewSpec.LOCALE, spec.is24Hour());
+        renderer.setAnimationsEnabled(false);
+        renderer.setSurfaceSize(spec.getWidth(), spec.getHeight());
+        renderer.getDisplayState().setBaseTextSize(baseTextSize);
+        for (int i = 0; i < PreviewSpec.CHIPS.length; i++) {
+            renderer.setChip(i, PreviewSpec.CHIPS[i]);
+        }
+        return renderer;
+    }
+}
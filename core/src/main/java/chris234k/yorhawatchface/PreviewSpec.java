@@ -0,0 +1,124 @@
+package chris234k.yorhawatchface;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * One watch face preview image: theme, screen shape and size, hour format and mode. Always shows
+ * the same moment and chips, so previews only change when the look does.
+ */
+public final class PreviewSpec {
+    public static final TimeZone TIME_ZONE = TimeZone.getTimeZone("UTC");
+    public static final Locale LOCALE = Locale.US;
+
+    /**
+     * 10:08:36 PM, a Tuesday. Every digit slot shows a different glyph in 24 hour time.
+     */
+    public static final long TIME_MILLIS;
+
+    static {
+        Calendar calendar = new GregorianCalendar(TIME_ZONE, LOCALE);
+        calendar.clear();
+        calendar.set(2017, Calendar.JUNE, 27, 22, 8, 36);
+        TIME_MILLIS = calendar.getTimeInMillis();
+    }
+
+    /**
+     * Round and square screens the previews are made for, {width, height, round}.
+     */
+    public static final int[][] SCREENS = {{320, 320, 1}, {280, 280, 0}};
+
+    public static final ChipData[] CHIPS = {
+            ChipData.rangedValue("76%", "BATT", 76, 0, 100),
+            ChipData.shortText("4213", "STEPS"),
+    };
+
+    // digital_text_size and digital_text_size_round in the wear resources, which the watch reads
+    // instead. PreviewGoldenTest checks they still match.
+    private static final float BASE_TEXT_SIZE_DP = 35;
+    private static final float BASE_TEXT_SIZE_ROUND_DP = 40;
+
+    private final int mTheme;
+    private final int mWidth, mHeight;
+    private final boolean mRound;
+    private final boolean mIs24Hour;
+    private final boolean mAmbient;
+
+    public PreviewSpec(int theme, int width, int height, boolean round, boolean is24Hour, boolean ambient) {
+        mTheme = theme;
+        mWidth = width;
+        mHeight = height;
+        mRound = round;
+        mIs24Hour = is24Hour;
+        mAmbient = ambient;
+    }
+
+    /**
+     * Every combination of theme, screen, hour format and mode, in a stable order.
+     */
+    public static List<PreviewSpec> all() {
+        ArrayList<PreviewSpec> specs = new ArrayList<>();
+        for (int theme = FaceSettings.THEME_LIGHT; theme <= FaceSettings.THEME_DARK; theme++) {
+            for (int[] screen : SCREENS) {
+                for (int hours = 0; hours < 2; hours++) {
+                    for (int mode = 0; mode < 2; mode++) {
+                        specs.add(new PreviewSpec(theme, screen[0], screen[1], screen[2] != 0, hours == 1, mode == 1));
+                    }
+                }
+            }
+        }
+        return specs;
+    }
+
+    public int getTheme() {
+        return mTheme;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public boolean isRound() {
+        return mRound;
+    }
+
+    /**
+     * The text size the engine would pick for this screen, in dp. For the JVM, which can't read the
+     * wear resources.
+     */
+    public float getBaseTextSizeDp() {
+        return mRound ? BASE_TEXT_SIZE_ROUND_DP : BASE_TEXT_SIZE_DP;
+    }
+
+    public boolean is24Hour() {
+        return mIs24Hour;
+    }
+
+    public boolean isAmbient() {
+        return mAmbient;
+    }
+
+    /**
+     * File name friendly, e.g. preview_dark_round_320_24h_ambient.
+     */
+    public String getName() {
+        return "preview_" + (mTheme == FaceSettings.THEME_DARK ? "dark" : "light")
+                + (mRound ? "_round_" : "_square_") + mWidth
+                + (mWidth != mHeight ? "x" + mHeight : "")
+                + (mIs24Hour ? "_24h" : "_12h")
+                + (mAmbient ? "_ambient" : "_interactive");
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,314 @@
+package chris234k.yorhawatchface;
+
+import java.util.Locale;
+
+/**
+ * RenderTarget that records the draw calls of each frame instead of drawing, for profiling and
+ * testing the render logic off-device.
+ *
+ * Commands are kept in preallocated arrays and cleared by beginFrame, so recording doesn't
+ * allocate. Text is measured with a fixed advance per character, and is twice the height of its
+ * center above the baseline, unless setGlyphMetrics gives other metrics.
+ *
+ * Targets keep the previous frame when setRetainsFrames is on, letting the renderer draw partial
+ * frames.
+ */
+public class RecordingRenderTarget implements RenderTarget {
+    public static final int COMMAND_BACKGROUND = 0;
+    public static final int COMMAND_COLOR = 1;
+    public static final int COMMAND_TEXT = 2;
+    public static final int COMMAND_CLIP = 3;
+    public static final int COMMAND_CLEAR_CLIP = 4;
+    public static final int COMMAND_CHIP = 5;
+
+    private static final int MAX_COMMANDS = 32;
+    private static final int MAX_TEXT_CHARS = 512;
+
+    private GlyphMetrics mGlyphMetrics;
+
+    private boolean mAmbient, mLowBit;
+    private int mCommandCount;
+    private final int[] mTypes = new int[MAX_COMMANDS];
+    private final int[] mArgs = new int[MAX_COMMANDS]; // Color, text style or chip slot
+    private final ChipData[] mChips = new ChipData[MAX_COMMANDS];
+    private final int[] mAligns = new int[MAX_COMMANDS];
+    private final float[] mXs = new float[MAX_COMMANDS];
+    private final float[] mYs = new float[MAX_COMMANDS];
+    private final float[] mRights = new float[MAX_COMMANDS];
+    private final float[] mBottoms = new float[MAX_COMMANDS];
+    private final int[] mTextStarts = new int[MAX_COMMANDS];
+    private final int[] mTextLengths = new int[MAX_COMMANDS];
+    private final char[] mText = new char[MAX_TEXT_CHARS];
+    private int mTextUsed;
+
+    private boolean mRetainsFrames, mHasPreviousFrame;
+
+    // Totals across every frame
+    private long mFrames, mTotalCommands, mTotalTextChars, mPartialFrames;
+
+    public RecordingRenderTarget(float charAdvance, float textCenterY) {
+        mGlyphMetrics = GlyphMetrics.monospace(charAdvance, textCenterY * 2, 0);
+    }
+
+    /**
+     * Metrics for both text styles from the next frame, like a text size change.
+     */
+    public void setGlyphMetrics(GlyphMetrics metrics) {
+        mGlyphMetrics = metrics;
+    }
+
+    @Override
+    public void beginFrame(boolean ambient, boolean lowBit) {
+        mAmbient = ambient;
+        mLowBit = lowBit;
+        mCommandCount = 0;
+        mTextUsed = 0;
+        mFrames++;
+    }
+
+    @Override
+    public void endFrame() {
+        // Frames with nothing to repaint count too
+        if (mCommandCount == 0 || mTypes[0] == COMMAND_CLIP) {
+            mPartialFrames++;
+        }
+        mHasPreviousFrame = mRetainsFrames;
+    }
+
+    @Override
+    public boolean hasPreviousFrame() {
+        return mHasPreviousFrame;
+    }
+
+    /**
+     * Whether to act like a target that keeps its last frame. Turning it on takes effect after the
+     * next frame.
+     */
+    public void setRetainsFrames(boolean retainsFrames) {
+        mRetainsFrames = retainsFrames;
+        if (!retainsFrames) {
+            mHasPreviousFrame = false;
+        }
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+        int index = add(COMMAND_CLIP, 0, left, top, ALIGN_LEFT);
+        mRights[index] = right;
+        mBottoms[index] = bottom;
+    }
+
+    @Override
+    public void clearClip() {
+        add(COMMAND_CLEAR_CLIP, 0, 0, 0, ALIGN_LEFT);
+    }
+
+    @Override
+    public void drawBackground() {
+        add(COMMAND_BACKGROUND, 0, 0, 0, ALIGN_LEFT);
+    }
+
+    @Override
+    public void drawColor(int color) {
+        add(COMMAND_COLOR, color, 0, 0, ALIGN_LEFT);
+    }
+
+    @Override
+    public void drawText(int style, char[] text, int start, int count, float x, float y, int align) {
+        int index = add(COMMAND_TEXT, style, x, y, align);
+        int copied = Math.min(count, MAX_TEXT_CHARS - mTextUsed);
+        System.arraycopy(text, start, mText, mTextUsed, copied);
+        mTextStarts[index] = mTextUsed;
+        mTextLengths[index] = copied;
+        mTextUsed += copied;
+        mTotalTextChars += count;
+    }
+
+    @Override
+    public void drawChip(int slot, ChipData chip, float left, float top, float right, float bottom) {
+        int index = add(COMMAND_CHIP, slot, left, top, ALIGN_LEFT);
+        mRights[index] = right;
+        mBottoms[index] = bottom;
+        mChips[index] = chip;
+    }
+
+    private int add(int type, int arg, float x, float y, int align) {
+        if (mCommandCount == MAX_COMMANDS) {
+            throw new IllegalStateException("More than " + MAX_COMMANDS + " draw calls in a frame");
+        }
+        int index = mCommandCount++;
+        mTypes[index] = type;
+        mArgs[index] = arg;
+        mXs[index] = x;
+        mYs[index] = y;
+        mAligns[index] = align;
+        mTextLengths[index] = 0;
+        mChips[index] = null;
+        mTotalCommands++;
+        return index;
+    }
+
+    @Override
+    public GlyphMetrics getGlyphMetrics(int style) {
+        return mGlyphMetrics;
+    }
+
+    public boolean isAmbient() {
+        return mAmbient;
+    }
+
+    public boolean isLowBit() {
+        return mLowBit;
+    }
+
+    /**
+     * Draw calls in the current frame.
+     */
+    public int getCommandCount() {
+        return mCommandCount;
+    }
+
+    public int getType(int command) {
+        return mTypes[command];
+    }
+
+    /**
+     * The color of a COMMAND_COLOR, the style of a COMMAND_TEXT or the slot of a COMMAND_CHIP.
+     */
+    public int getArg(int command) {
+        return mArgs[command];
+    }
+
+    public float getX(int command) {
+        return mXs[command];
+    }
+
+    public float getY(int command) {
+        return mYs[command];
+    }
+
+    /**
+     * Right edge of a COMMAND_CLIP or COMMAND_CHIP, its left edge is getX.
+     */
+    public float getRight(int command) {
+        return mRights[command];
+    }
+
+    /**
+     * Bottom edge of a COMMAND_CLIP or COMMAND_CHIP, its top edge is getY.
+     */
+    public float getBottom(int command) {
+        return mBottoms[command];
+    }
+
+    /**
+     * The data of a COMMAND_CHIP.
+     */
+    public ChipData getChip(int command) {
+        return mChips[command];
+    }
+
+    /**
+     * Counts the chip draws for slot in the current frame.
+     */
+    public int countChips(int slot) {
+        int count = 0;
+        for (int i = 0; i < mCommandCount; i++) {
+            if (mTypes[i] == COMMAND_CHIP && mArgs[i] == slot) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getAlign(int command) {
+        return mAligns[command];
+    }
+
+    /**
+     * Counts the text draws with style in the current frame.
+     */
+    public int countText(int style) {
+        int count = 0;
+        for (int i = 0; i < mCommandCount; i++) {
+            if (mTypes[i] == COMMAND_TEXT && mArgs[i] == style) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Allocates, for tests and reports.
+     */
+    public String getText(int command) {
+        return new String(mText, mTextStarts[command], mTextLengths[command]);
+    }
+
+    /**
+     * Allocates, the last text drawn with style in the current frame, or null.
+     */
+    public String findText(int style) {
+        for (int i = mCommandCount - 1; i >= 0; i--) {
+            if (mTypes[i] == COMMAND_TEXT && mArgs[i] == style) {
+                return getText(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Allocates, the current frame as one line per draw call. Stable across runs and machines, so
+     * it can be compared against a golden copy.
+     */
+    public String describeFrame() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(mAmbient ? (mLowBit ? "ambient low bit" : "ambient") : "interactive").append('\n');
+        for (int i = 0; i < mCommandCount; i++) {
+            switch (mTypes[i]) {
+                case COMMAND_BACKGROUND:
+                    builder.append("background");
+                    break;
+                case COMMAND_COLOR:
+                    builder.append(String.format(Locale.US, "color #%08X", mArgs[i]));
+                    break;
+                case COMMAND_TEXT:
+                    builder.append(String.format(Locale.US, "text %s \"%s\" %.1f,%.1f %s",
+                            mArgs[i] == TEXT_TIME ? "time" : "date", getText(i), mXs[i], mYs[i],
+                            mAligns[i] == ALIGN_CENTER ? "center" : "left"));
+                    break;
+                case COMMAND_CLIP:
+                    builder.append(String.format(Locale.US, "clip %.1f,%.1f %.1f,%.1f", mXs[i], mYs[i], mRights[i], mBottoms[i]));
+                    break;
+                case COMMAND_CLEAR_CLIP:
+                    builder.append("clear clip");
+                    break;
+                case COMMAND_CHIP:
+                    builder.append(String.format(Locale.US, "chip %d %s %.1f,%.1f %.1f,%.1f", mArgs[i], mChips[i],
+                            mXs[i], mYs[i], mRights[i], mBottoms[i]));
+                    break;
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    public long getFrames() {
+        return mFrames;
+    }
+
+    public long getTotalCommands() {
+        return mTotalCommands;
+    }
+
+    public long getTotalTextChars() {
+        return mTotalTextChars;
+    }
+
+    /**
+     * Frames that only repainted clipped parts of the last frame, or nothing.
+     */
+    public long getPartialFrames() {
+        return mPartialFrames;
+    }
+}
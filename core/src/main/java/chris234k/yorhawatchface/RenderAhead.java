@@ -0,0 +1,133 @@
+package chris234k.yorhawatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders each second's frame ahead of time on a thread of its own, into one of two buffers
+ * handed to the main thread through a FrameSwap, so drawing a steady second is only a blit.
+ *
+ * The render thread keeps its own time. It renders the next second's frame as soon as it's
+ * started, and then halfway through every second, which leaves the main thread the first half to
+ * take the frame before its buffer is drawn over. The main thread only starts it (visible and
+ * interactive, or again after anything that changes how frames look) and stops it (ambient,
+ * hidden). Either drops every frame rendered or in flight, so nothing drawn before a mode change
+ * is ever shown after it.
+ *
+ * start, stop and take are for the main thread, everything else runs on the scheduler's thread.
+ */
+public class RenderAhead<T> {
+    public static final long FRAME_INTERVAL_MS = TimeUnit.SECONDS.toMillis(1);
+
+    public interface Painter<T> {
+        /**
+         * Render thread: draws the frame for frameTimeMillis into buffer.
+         *
+         * @return false if it couldn't (e.g. not configured yet), nothing is published
+         */
+        boolean paint(T buffer, long frameTimeMillis);
+    }
+
+    /**
+     * Runs tasks on the render thread, a Handler on the watch.
+     */
+    public interface Scheduler {
+        void post(Runnable task, long delayMillis);
+
+        /**
+         * Drops task if it's waiting to run, from any thread.
+         */
+        void remove(Runnable task);
+    }
+
+    private final FrameSwap<T> mSwap;
+    private final Painter<T> mPainter;
+    private final Scheduler mScheduler;
+    private final WakeupTimeline.WallClock mClock;
+
+    // The epoch frames are rendered for, -1 while stopped. Only written by the main thread.
+    private volatile long mRunningEpoch = -1;
+
+    private final Runnable mRestart = new Runnable() {
+        @Override
+        public void run() {
+            // The only place the pending render is replaced, so there's never more than one
+            mScheduler.remove(mRenderNext);
+            renderNext();
+        }
+    };
+    private final Runnable mRenderNext = new Runnable() {
+        @Override
+        public void run() {
+            renderNext();
+        }
+    };
+
+    public RenderAhead(T first, T second, Painter<T> painter, Scheduler scheduler, WakeupTimeline.WallClock clock) {
+        mSwap = new FrameSwap<>(first, second);
+        mPainter = painter;
+        mScheduler = scheduler;
+        mClock = clock;
+    }
+
+    /**
+     * Main thread: starts rendering ahead, or starts over if running. Frames from before are
+     * dropped.
+     */
+    public void start() {
+        mRunningEpoch = mSwap.advanceEpoch();
+        restart();
+    }
+
+    /**
+     * Main thread: stops rendering, dropping every frame rendered or in flight.
+     */
+    public void stop() {
+        mRunningEpoch = -1;
+        mSwap.advanceEpoch();
+        restart();
+    }
+
+    public boolean isRunning() {
+        return mRunningEpoch >= 0;
+    }
+
+    /**
+     * Main thread: the frame for the second of frameTimeMillis.
+     *
+     * @return null if it isn't ready, the caller draws the frame itself
+     */
+    public T take(long frameTimeMillis) {
+        return mSwap.take(keyOf(frameTimeMillis));
+    }
+
+    private static long keyOf(long frameTimeMillis) {
+        return frameTimeMillis / FRAME_INTERVAL_MS;
+    }
+
+    private void restart() {
+        // Starts and stops in a row only need one restart
+        mScheduler.remove(mRestart);
+        mScheduler.post(mRestart, 0);
+    }
+
+    private void renderNext() {
+        long epoch = mRunningEpoch;
+        if (epoch < 0) {
+            return;
+        }
+        long now = mClock.currentTimeMillis();
+        long frameTime = now - now % FRAME_INTERVAL_MS + FRAME_INTERVAL_MS;
+
+        T back = mSwap.acquireBack();
+        if (mPainter.paint(back, frameTime)) {
+            // Not shown if a start or stop came while painting
+            mSwap.publish(epoch, keyOf(frameTime));
+        }
+
+        // Otherwise the restart the start or stop queued takes over
+        if (epoch == mRunningEpoch) {
+            long next = frameTime + FRAME_INTERVAL_MS / 2;
+            mScheduler.post(mRenderNext, Math.max(0, next - mClock.currentTimeMillis()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package chris234k.yorhawatchface;
+
+/**
+ * The draw calls the watch face makes, so the render logic can run against a Canvas on the watch
+ * or a recorder on the JVM.
+ */
+public interface RenderTarget {
+    int TEXT_TIME = 0;
+    int TEXT_DATE = 1;
+
+    int ALIGN_LEFT = 0;
+    int ALIGN_CENTER = 1;
+
+    /**
+     * Starts a frame. Low bit frames are drawn without anti-aliasing.
+     */
+    void beginFrame(boolean ambient, boolean lowBit);
+
+    /**
+     * Ends a frame, after its last draw call.
+     */
+    void endFrame();
+
+    /**
+     * Whether the target still holds the last frame drawn to it, so the next frame only has to
+     * repaint what changed. False after anything the target draws with changes.
+     */
+    boolean hasPreviousFrame();
+
+    /**
+     * Limits drawing to the rectangle until clearClip.
+     */
+    void clipRect(float left, float top, float right, float bottom);
+
+    void clearClip();
+
+    /**
+     * The interactive background, with the grid.
+     */
+    void drawBackground();
+
+    void drawColor(int color);
+
+    void drawText(int style, char[] text, int start, int count, float x, float y, int align);
+
+    /**
+     * Draws a complication chip filling the rectangle. Targets cache the rendered chip until its
+     * data or the ambient/low bit state changes.
+     */
+    void drawChip(int slot, ChipData chip, float left, float top, float right, float bottom);
+
+    /**
+     * Glyph metrics for style as drawn in the current frame, the same instance until the text
+     * configuration changes.
+     */
+    GlyphMetrics getGlyphMetrics(int style);
+}
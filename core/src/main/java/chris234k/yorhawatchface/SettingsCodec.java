@@ -0,0 +1,182 @@
+package chris234k.yorhawatchface;
+
+/**
+ * The binary form of FaceSettings sent from the phone, a few bytes instead of a DataMap:
+ *
+ * <pre>
+ * byte 0     version, VERSION
+ * byte 1     flags, FLAG_FULL for a whole snapshot, otherwise a delta on the previous sequence
+ * bytes 2-3  sequence, unsigned big endian, wraps
+ * byte 4     mask of the fields that follow, FIELD_ bits
+ * byte 5..   one unsigned byte per field in the mask, lowest bit first
+ * </pre>
+ *
+ * Every field is one byte, so a decoder skips fields newer than it. Changes that break this bump
+ * the version, which older decoders reject.
+ */
+public final class SettingsCodec {
+    public static final int VERSION = 1;
+    public static final int FLAG_FULL = 1;
+
+    public static final int FIELD_THEME = 1;
+    public static final int FIELD_HOUR_FORMAT = 1 << 1;
+    public static final int FIELD_GLITCH_INTERVAL = 1 << 2;
+    public static final int FIELD_MAX_FPS = 1 << 3;
+    public static final int FIELD_BUZZ_ON_HOUR = 1 << 4;
+    private static final int ALL_FIELDS = FIELD_THEME | FIELD_HOUR_FORMAT | FIELD_GLITCH_INTERVAL | FIELD_MAX_FPS
+            | FIELD_BUZZ_ON_HOUR;
+
+    private static final int HEADER_SIZE = 5;
+    private static final int SEQUENCE_MASK = 0xFFFF;
+
+    private SettingsCodec() {
+    }
+
+    /**
+     * The next sequence number, after wrapping.
+     */
+    public static int nextSequence(int sequence) {
+        return (sequence + 1) & SEQUENCE_MASK;
+    }
+
+    public static byte[] encodeFull(FaceSettings settings, int sequence) {
+        return encode(settings, ALL_FIELDS, FLAG_FULL, sequence);
+    }
+
+    /**
+     * Only the fields that differ between from and to.
+     *
+     * @param sequence the sequence of to, the delta applies to from's sequence before it
+     */
+    public static byte[] encodeDelta(FaceSettings from, FaceSettings to, int sequence) {
+        int mask = 0;
+        if (from.getTheme() != to.getTheme()) {
+            mask |= FIELD_THEME;
+        }
+        if (from.getHourFormat() != to.getHourFormat()) {
+            mask |= FIELD_HOUR_FORMAT;
+        }
+        if (from.getGlitchIntervalSeconds() != to.getGlitchIntervalSeconds()) {
+            mask |= FIELD_GLITCH_INTERVAL;
+        }
+        if (from.getMaxFps() != to.getMaxFps()) {
+            mask |= FIELD_MAX_FPS;
+        }
+        if (from.isBuzzOnHour() != to.isBuzzOnHour()) {
+            mask |= FIELD_BUZZ_ON_HOUR;
+        }
+        return encode(to, mask, 0, sequence);
+    }
+
+    private static byte[] encode(FaceSettings settings, int mask, int flags, int sequence) {
+        byte[] blob = new byte[HEADER_SIZE + Integer.bitCount(mask)];
+        blob[0] = VERSION;
+        blob[1] = (byte) flags;
+        blob[2] = (byte) (sequence >> 8);
+        blob[3] = (byte) sequence;
+        blob[4] = (byte) mask;
+
+        int offset = HEADER_SIZE;
+        if ((mask & FIELD_THEME) != 0) {
+            blob[offset++] = (byte) settings.getTheme();
+        }
+        if ((mask & FIELD_HOUR_FORMAT) != 0) {
+            blob[offset++] = (byte) settings.getHourFormat();
+        }
+        if ((mask & FIELD_GLITCH_INTERVAL) != 0) {
+            blob[offset++] = (byte) settings.getGlitchIntervalSeconds();
+        }
+        if ((mask & FIELD_MAX_FPS) != 0) {
+            blob[offset++] = (byte) settings.getMaxFps();
+        }
+        if ((mask & FIELD_BUZZ_ON_HOUR) != 0) {
+            blob[offset] = (byte) (settings.isBuzzOnHour() ? 1 : 0);
+        }
+        return blob;
+    }
+
+    /**
+     * Whether blob is in the format this decoder reads. Asking the sender again would only get
+     * the same version back, so blobs from another version are dropped rather than resynced.
+     */
+    public static boolean isKnownVersion(byte[] blob) {
+        return blob != null && blob.length > 0 && blob[0] == VERSION;
+    }
+
+    /**
+     * @throws IllegalArgumentException if blob is truncated or from another version
+     */
+    public static boolean isFull(byte[] blob) {
+        checkHeader(blob);
+        return (blob[1] & FLAG_FULL) != 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if blob is truncated or from another version
+     */
+    public static int getSequence(byte[] blob) {
+        checkHeader(blob);
+        return ((blob[2] & 0xFF) << 8) | (blob[3] & 0xFF);
+    }
+
+    /**
+     * Applies the fields in blob to base. Fields blob doesn't have, and a full snapshot's unknown
+     * fields, keep base's values.
+     *
+     * @throws IllegalArgumentException if blob is malformed or a value is out of range
+     */
+    public static FaceSettings decode(byte[] blob, FaceSettings base) {
+        checkHeader(blob);
+        int mask = blob[4] & 0xFF;
+        if (blob.length < HEADER_SIZE + Integer.bitCount(mask)) {
+            throw new IllegalArgumentException("Settings truncated, " + blob.length + " bytes for mask " + mask);
+        }
+
+        int theme = base.getTheme();
+        int hourFormat = base.getHourFormat();
+        int glitchInterval = base.getGlitchIntervalSeconds();
+        int maxFps = base.getMaxFps();
+        boolean buzzOnHour = base.isBuzzOnHour();
+
+        int offset = HEADER_SIZE;
+        for (int field = 1; field <= 0x80; field <<= 1) {
+            if ((mask & field) == 0) {
+                continue;
+            }
+            int value = blob[offset++] & 0xFF;
+            switch (field) {
+                case FIELD_THEME:
+                    theme = value;
+                    break;
+                case FIELD_HOUR_FORMAT:
+                    hourFormat = value;
+                    break;
+                case FIELD_GLITCH_INTERVAL:
+                    glitchInterval = value;
+                    break;
+                case FIELD_MAX_FPS:
+                    maxFps = value;
+                    break;
+                case FIELD_BUZZ_ON_HOUR:
+                    if (value > 1) {
+                        throw new IllegalArgumentException("Buzz on hour out of range: " + value);
+                    }
+                    buzzOnHour = value == 1;
+                    break;
+                default:
+                    // From a newer app, skipped
+                    break;
+            }
+        }
+        return new FaceSettings(theme, hourFormat, glitchInterval, maxFps, buzzOnHour);
+    }
+
+    private static void checkHeader(byte[] blob) {
+        if (blob == null || blob.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Settings truncated");
+        }
+        if (blob[0] != VERSION) {
+            throw new IllegalArgumentException("Settings version " + blob[0] + ", expected " + VERSION);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Phone side of the settings sync: sends only the fields that changed since the last push, and a
+ * full snapshot when the watch asks for one.
+ *
+ * The caller persists getSettings and getSequence between runs, so deltas keep following on from
+ * what the watch last saw.
+ */
+public class SettingsPublisher {
+    private final SettingsTransport mTransport;
+    private FaceSettings mSettings;
+    private int mSequence;
+
+    public SettingsPublisher(SettingsTransport transport, FaceSettings lastSent, int sequence) {
+        mTransport = transport;
+        mSettings = lastSent;
+        mSequence = sequence;
+    }
+
+    /**
+     * @return true if anything changed and was sent
+     */
+    public boolean push(FaceSettings settings) {
+        if (settings.equals(mSettings)) {
+            return false;
+        }
+        FaceSettings from = mSettings;
+        mSequence = SettingsCodec.nextSequence(mSequence);
+        mSettings = settings;
+        // State first, a resync can be answered before send returns
+        mTransport.send(SettingsCodec.encodeDelta(from, settings, mSequence));
+        return true;
+    }
+
+    /**
+     * Answers a resync request.
+     */
+    public void sendFull() {
+        mTransport.send(SettingsCodec.encodeFull(mSettings, mSequence));
+    }
+
+    public FaceSettings getSettings() {
+        return mSettings;
+    }
+
+    public int getSequence() {
+        return mSequence;
+    }
+}
@@ -0,0 +1,85 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Watch side of the settings sync. Applies full snapshots, and deltas that follow on from the
+ * current sequence. A delta after a gap means one was lost, the phone is asked for a full
+ * snapshot instead. Only a gap asks, a blob from another codec version is dropped.
+ */
+public class SettingsReceiver {
+    public static final int RESULT_APPLIED = 0;
+    public static final int RESULT_IGNORED = 1;
+    public static final int RESULT_NEEDS_RESYNC = 2;
+    public static final int RESULT_UNKNOWN_VERSION = 3;
+
+    private FaceSettings mSettings;
+    private int mSequence;
+    private boolean mSynced;
+
+    /**
+     * Starts from defaults, nothing received yet. Any delta asks for a resync.
+     */
+    public SettingsReceiver() {
+        mSettings = FaceSettings.DEFAULT;
+    }
+
+    /**
+     * Starts from a stored full snapshot.
+     *
+     * @throws IllegalArgumentException if snapshot is malformed
+     */
+    public SettingsReceiver(byte[] snapshot) {
+        this();
+        if (!SettingsCodec.isFull(snapshot)) {
+            throw new IllegalArgumentException("Not a full snapshot");
+        }
+        mSettings = SettingsCodec.decode(snapshot, FaceSettings.DEFAULT);
+        mSequence = SettingsCodec.getSequence(snapshot);
+        mSynced = true;
+    }
+
+    /**
+     * @return a RESULT_ constant
+     * @throws IllegalArgumentException if blob is malformed
+     */
+    public int receive(byte[] blob) {
+        if (!SettingsCodec.isKnownVersion(blob)) {
+            return RESULT_UNKNOWN_VERSION;
+        }
+        int sequence = SettingsCodec.getSequence(blob);
+        if (SettingsCodec.isFull(blob)) {
+            mSettings = SettingsCodec.decode(blob, FaceSettings.DEFAULT);
+            mSequence = sequence;
+            mSynced = true;
+            return RESULT_APPLIED;
+        }
+
+        if (mSynced && sequence == mSequence) {
+            return RESULT_IGNORED; // Delivered twice
+        }
+        if (!mSynced || sequence != SettingsCodec.nextSequence(mSequence)) {
+            return RESULT_NEEDS_RESYNC;
+        }
+        mSettings = SettingsCodec.decode(blob, mSettings);
+        mSequence = sequence;
+        return RESULT_APPLIED;
+    }
+
+    public FaceSettings getSettings() {
+        return mSettings;
+    }
+
+    public int getSequence() {
+        return mSequence;
+    }
+
+    public boolean isSynced() {
+        return mSynced;
+    }
+
+    /**
+     * The current state as a full snapshot, for storing.
+     */
+    public byte[] toSnapshot() {
+        return SettingsCodec.encodeFull(mSettings, mSequence);
+    }
+}
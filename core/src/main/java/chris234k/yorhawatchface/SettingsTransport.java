@@ -0,0 +1,23 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Carries SettingsCodec blobs between the phone and the watch, the Data Layer's message API on
+ * device.
+ */
+public interface SettingsTransport {
+    /**
+     * Message path of settings blobs, phone to watch.
+     */
+    String PATH_SETTINGS = "/yorha/settings";
+
+    /**
+     * Message path of resync requests, watch to phone. The phone answers with a full snapshot.
+     */
+    String PATH_RESYNC = "/yorha/settings/resync";
+
+    /**
+     * Sends a settings blob to the watch. Delivery isn't guaranteed, a missed delta is noticed by
+     * its sequence and repaired with a resync.
+     */
+    void send(byte[] blob);
+}
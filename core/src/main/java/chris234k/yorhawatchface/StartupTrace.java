@@ -0,0 +1,79 @@
+package chris234k.yorhawatchface;
+
+import java.util.ArrayList;
+
+/**
+ * Times how long an engine takes from creation to its first fully rendered frame, with marks for
+ * the steps in between.
+ *
+ * Only meant for the handful of marks made at startup, marking allocates.
+ */
+public class StartupTrace {
+    private final long mStartMillis;
+    private final ArrayList<String> mNames = new ArrayList<>();
+    private final ArrayList<Long> mTimes = new ArrayList<>();
+    private long mFinishMillis = -1;
+
+    public StartupTrace(long startMillis) {
+        mStartMillis = startMillis;
+    }
+
+    /**
+     * Records that the step called name finished at nowMillis. Ignored once finished.
+     */
+    public synchronized void mark(String name, long nowMillis) {
+        if (mFinishMillis < 0) {
+            mNames.add(name);
+            mTimes.add(nowMillis);
+        }
+    }
+
+    /**
+     * Marks the first full frame, later calls are ignored.
+     *
+     * @return true the first time, when the trace is worth reporting
+     */
+    public synchronized boolean finish(long nowMillis) {
+        if (mFinishMillis >= 0) {
+            return false;
+        }
+        mark("first frame", nowMillis);
+        mFinishMillis = nowMillis;
+        return true;
+    }
+
+    public synchronized boolean isFinished() {
+        return mFinishMillis >= 0;
+    }
+
+    /**
+     * Time to the first full frame, -1 until there is one.
+     */
+    public synchronized long getTotalMillis() {
+        return mFinishMillis < 0 ? -1 : mFinishMillis - mStartMillis;
+    }
+
+    /**
+     * Time from the start to the first mark called name, -1 if there's none.
+     */
+    public synchronized long getMillisTo(String name) {
+        int index = mNames.indexOf(name);
+        return index < 0 ? -1 : mTimes.get(index) - mStartMillis;
+    }
+
+    /**
+     * e.g. "startup 412ms: engine created +30ms, resources loaded +350ms, first frame +32ms".
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("startup ");
+        builder.append(mFinishMillis < 0 ? "unfinished" : (mFinishMillis - mStartMillis) + "ms");
+        long previous = mStartMillis;
+        for (int i = 0; i < mNames.size(); i++) {
+            builder.append(i == 0 ? ": " : ", ");
+            builder.append(mNames.get(i)).append(" +").append(mTimes.get(i) - previous).append("ms");
+            previous = mTimes.get(i);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package chris234k.yorhawatchface;
+
+/**
+ * Sizing and positioning math for the time and date text, and the complication chips.
+ */
+public final class TextLayout {
+    private TextLayout() {
+    }
+
+    /**
+     * "AM" and "PM" text makes the string just a bit too long so we need to shrink it.
+     */
+    public static float timeTextSize(float baseTextSize, boolean is24Hour) {
+        return baseTextSize * (is24Hour ? 1.0f : 0.7f);
+    }
+
+    public static float dateTextSize(float baseTextSize) {
+        return baseTextSize * 0.4f;
+    }
+
+    /**
+     * Left edge for text of textWidth to be horizontally centered on a surface of surfaceWidth.
+     */
+    public static float centeredLeft(int surfaceWidth, float textWidth) {
+        return (surfaceWidth - textWidth) / 2;
+    }
+
+    /**
+     * Baseline that vertically centers text on centerY, given the vertical center of the text's
+     * bounds relative to its baseline (Rect.exactCenterY from getTextBounds).
+     */
+    public static float centeredBaseline(float centerY, float boundsCenterY) {
+        // https://stackoverflow.com/a/24969713
+        return centerY - boundsCenterY;
+    }
+
+    /**
+     * The date sits just below the time.
+     */
+    public static float dateBaseline(float timeBaseline, int surfaceHeight) {
+        return timeBaseline + surfaceHeight * 0.1f;
+    }
+
+    /**
+     * Chips sit side by side above the time, inside the round screen's edge. Writes the left, top,
+     * right and bottom of slot's chip to out.
+     */
+    public static void chipBounds(int slot, int slotCount, int surfaceWidth, int surfaceHeight, float[] out) {
+        float chipWidth = surfaceWidth * 0.3f;
+        float gap = surfaceWidth * 0.04f;
+        float rowLeft = (surfaceWidth - (chipWidth * slotCount + gap * (slotCount - 1))) / 2;
+
+        out[0] = rowLeft + slot * (chipWidth + gap);
+        out[1] = surfaceHeight * 0.18f;
+        out[2] = out[0] + chipWidth;
+        out[3] = out[1] + surfaceHeight * 0.1f;
+    }
+}
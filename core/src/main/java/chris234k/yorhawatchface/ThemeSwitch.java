@@ -0,0 +1,69 @@
+package chris234k.yorhawatchface;
+
+/**
+ * One prebuilt bundle per theme, plus one for ambient. Everything a theme draws with is built up
+ * front, so switching themes or modes only swaps which bundle the next frame reads and never
+ * allocates.
+ */
+public class ThemeSwitch<B> {
+    public interface Factory<B> {
+        /**
+         * Builds everything theme draws with. Called once per theme, from the constructor.
+         */
+        B create(FaceTheme theme);
+    }
+
+    private static final int THEME_COUNT = FaceSettings.THEME_DARK + 1;
+
+    // Indexed by FaceSettings theme, then ambient last
+    private final Object[] mBundles = new Object[THEME_COUNT + 1];
+    private int mTheme = FaceSettings.THEME_LIGHT;
+
+    public ThemeSwitch(Factory<B> factory) {
+        for (int theme = 0; theme < THEME_COUNT; theme++) {
+            mBundles[theme] = factory.create(FaceTheme.of(theme));
+        }
+        mBundles[THEME_COUNT] = factory.create(FaceTheme.AMBIENT);
+    }
+
+    /**
+     * Selects the interactive theme, a FaceSettings theme.
+     *
+     * @return whether it changed, the next interactive frame has to be drawn in full
+     */
+    public boolean setTheme(int theme) {
+        if (theme < 0 || theme >= THEME_COUNT) {
+            throw new IllegalArgumentException("Unknown theme " + theme);
+        }
+        if (theme == mTheme) {
+            return false;
+        }
+        mTheme = theme;
+        return true;
+    }
+
+    public int getTheme() {
+        return mTheme;
+    }
+
+    /**
+     * The bundle to draw a frame with.
+     */
+    @SuppressWarnings("unchecked")
+    public B get(boolean ambient) {
+        return (B) mBundles[ambient ? THEME_COUNT : mTheme];
+    }
+
+    /**
+     * Every bundle, the interactive themes first and ambient last. For work that applies to all
+     * of them, like a new text size.
+     */
+    public int getBundleCount() {
+        return mBundles.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public B getBundle(int index) {
+        return (B) mBundles[index];
+    }
+}
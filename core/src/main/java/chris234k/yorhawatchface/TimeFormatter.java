@@ -0,0 +1,264 @@
+package chris234k.yorhawatchface;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Formats the time and date strings into preallocated char buffers.
+ *
+ * DateFormat.format allocates a handful of Strings and Spannables on every call, which adds up at
+ * 60 fps during glitch animations. This writes digits straight into a char[] and only touches the
+ * fields that changed since the last call. Draw the result with
+ * Canvas.drawText(char[], int, int, float, float, Paint).
+ */
+public class TimeFormatter {
+
+    // NOTE(chris) "HH" refers to 00-23, while "h" gives us 1-12
+    // https://developer.android.com/reference/java/text/SimpleDateFormat
+    public enum Pattern {
+        HOUR_24("HH:mm"),
+        HOUR_24_SECONDS("HH:mm:ss"),
+        HOUR_12("h:mm a"),
+        HOUR_12_SECONDS("h:mm:ss a");
+
+        private final String mFormat;
+
+        Pattern(String format) {
+            mFormat = format;
+        }
+
+        public String getFormat() {
+            return mFormat;
+        }
+
+        public boolean is24Hour() {
+            return this == HOUR_24 || this == HOUR_24_SECONDS;
+        }
+
+        public boolean hasSeconds() {
+            return this == HOUR_24_SECONDS || this == HOUR_12_SECONDS;
+        }
+
+        public static Pattern of(boolean is24Hour, boolean ambient) {
+            if (is24Hour) {
+                return ambient ? HOUR_24 : HOUR_24_SECONDS;
+            } else {
+                return ambient ? HOUR_12 : HOUR_12_SECONDS;
+            }
+        }
+    }
+
+    private static final int UNSET = -1;
+
+    private Locale mLocale;
+    private char[][] mAmPm; // Calendar.AM, Calendar.PM
+    private char[][] mDayNames; // Indexed by Calendar.DAY_OF_WEEK, upper case
+
+    private char[] mTime;
+    private int mTimeLength;
+    private Pattern mPattern;
+    private int mMinuteOffset, mSecondOffset;
+    private int mHour = UNSET, mMinute = UNSET, mSecond = UNSET;
+
+    private char[] mDate;
+    private int mDateLength;
+    private int mDayKey = UNSET;
+
+    public TimeFormatter(Locale locale) {
+        setLocale(locale);
+    }
+
+    /**
+     * Rebuilds the AM/PM and day name tables. Allocates, so only call this when the locale changes.
+     */
+    public void setLocale(Locale locale) {
+        mLocale = locale;
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+
+        String[] amPm = symbols.getAmPmStrings();
+        mAmPm = new char[][]{amPm[Calendar.AM].toCharArray(), amPm[Calendar.PM].toCharArray()};
+
+        String[] weekdays = symbols.getShortWeekdays();
+        mDayNames = new char[weekdays.length][];
+        int longestDay = 0;
+        for (int i = 0; i < weekdays.length; i++) {
+            mDayNames[i] = weekdays[i].toUpperCase(locale).toCharArray();
+            longestDay = Math.max(longestDay, mDayNames[i].length);
+        }
+
+        // "hh:mm:ss " plus the longest of AM/PM
+        mTime = new char[9 + Math.max(mAmPm[0].length, mAmPm[1].length)];
+        // "EEE dd"
+        mDate = new char[longestDay + 3];
+
+        reset();
+    }
+
+    public Locale getLocale() {
+        return mLocale;
+    }
+
+    /**
+     * Every character the time buffer can contain in the current locale.
+     */
+    public String getTimeCharset() {
+        return "0123456789: " + new String(mAmPm[0]) + new String(mAmPm[1]);
+    }
+
+    /**
+     * Every character the date buffer can contain in the current locale.
+     */
+    public String getDateCharset() {
+        StringBuilder builder = new StringBuilder("0123456789 ");
+        for (char[] dayName : mDayNames) {
+            builder.append(dayName);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Forces the next format calls to rewrite every field.
+     */
+    public void reset() {
+        mPattern = null;
+        mHour = UNSET;
+        mMinute = UNSET;
+        mSecond = UNSET;
+        mDayKey = UNSET;
+    }
+
+    /**
+     * Writes the time in calendar into the time buffer.
+     *
+     * @return true if the buffer contents changed
+     */
+    public boolean formatTime(Calendar calendar, Pattern pattern) {
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int minute = calendar.get(Calendar.MINUTE);
+        int second = pattern.hasSeconds() ? calendar.get(Calendar.SECOND) : 0;
+
+        // The hour decides the width of the 12 hour string and the AM/PM marker, so rebuild it all
+        if (pattern != mPattern || hour != mHour) {
+            mPattern = pattern;
+            mHour = hour;
+            mMinute = minute;
+            mSecond = second;
+            writeAll();
+            return true;
+        }
+
+        boolean changed = false;
+        if (minute != mMinute) {
+            mMinute = minute;
+            writeTwoDigits(mTime, mMinuteOffset, minute);
+            changed = true;
+        }
+        if (second != mSecond) {
+            mSecond = second;
+            writeTwoDigits(mTime, mSecondOffset, second);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void writeAll() {
+        int i = 0;
+        if (mPattern.is24Hour()) {
+            writeTwoDigits(mTime, i, mHour);
+            i += 2;
+        } else {
+            int hour12 = mHour % 12;
+            if (hour12 == 0) {
+                hour12 = 12;
+            }
+            if (hour12 >= 10) {
+                mTime[i++] = (char) ('0' + hour12 / 10);
+            }
+            mTime[i++] = (char) ('0' + hour12 % 10);
+        }
+
+        mTime[i++] = ':';
+        mMinuteOffset = i;
+        writeTwoDigits(mTime, i, mMinute);
+        i += 2;
+
+        if (mPattern.hasSeconds()) {
+            mTime[i++] = ':';
+            mSecondOffset = i;
+            writeTwoDigits(mTime, i, mSecond);
+            i += 2;
+        }
+
+        if (!mPattern.is24Hour()) {
+            char[] marker = mAmPm[mHour < 12 ? Calendar.AM : Calendar.PM];
+            mTime[i++] = ' ';
+            System.arraycopy(marker, 0, mTime, i, marker.length);
+            i += marker.length;
+        }
+
+        mTimeLength = i;
+    }
+
+    /**
+     * Writes the date in calendar as "EEE d" in upper case into the date buffer.
+     *
+     * @return true if the buffer contents changed
+     */
+    public boolean formatDate(Calendar calendar) {
+        int dayKey = calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+        if (dayKey == mDayKey) {
+            return false;
+        }
+        mDayKey = dayKey;
+
+        char[] dayName = mDayNames[calendar.get(Calendar.DAY_OF_WEEK)];
+        int i = dayName.length;
+        System.arraycopy(dayName, 0, mDate, 0, i);
+        mDate[i++] = ' ';
+
+        int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+        if (dayOfMonth >= 10) {
+            mDate[i++] = (char) ('0' + dayOfMonth / 10);
+        }
+        mDate[i++] = (char) ('0' + dayOfMonth % 10);
+
+        mDateLength = i;
+        return true;
+    }
+
+    private static void writeTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    public char[] getTimeChars() {
+        return mTime;
+    }
+
+    public int getTimeLength() {
+        return mTimeLength;
+    }
+
+    public char[] getDateChars() {
+        return mDate;
+    }
+
+    public int getDateLength() {
+        return mDateLength;
+    }
+
+    /**
+     * Allocates, meant for the rare callers that need a String (e.g. starting an animation).
+     */
+    public String getTimeString() {
+        return new String(mTime, 0, mTimeLength);
+    }
+
+    /**
+     * Allocates, meant for the rare callers that need a String (e.g. starting an animation).
+     */
+    public String getDateString() {
+        return new String(mDate, 0, mDateLength);
+    }
+}
@@ -0,0 +1,198 @@
+package chris234k.yorhawatchface;
+
+/**
+ * When the face wakes up and what each wakeup does, without Android: which timeline events run in
+ * each mode, when the update timer runs, and the glitch and redraw a wakeup asks for.
+ *
+ * YoRHaWatchFace.Engine drives it from its Handler and lifecycle callbacks, DaySimulation from fake
+ * clocks, so a change here shows up in the simulated day as it would on the watch.
+ */
+public class WakeupScheduler {
+    /**
+     * Timeline events handled while interactive, and in ambient where onTimeTick is the only
+     * wakeup.
+     */
+    public static final int INTERACTIVE_EVENTS = WakeupTimeline.EVENT_SECOND | WakeupTimeline.EVENT_MINUTE
+            | WakeupTimeline.EVENT_HOUR | WakeupTimeline.EVENT_DATE | WakeupTimeline.EVENT_GLITCH;
+    public static final int AMBIENT_EVENTS = WakeupTimeline.EVENT_MINUTE | WakeupTimeline.EVENT_HOUR
+            | WakeupTimeline.EVENT_DATE;
+
+    /**
+     * What the platform does for the scheduler, a Handler and the engine on the watch.
+     */
+    public interface Host {
+        /**
+         * Calls onTimer delayMillis from now, replacing a call already posted.
+         */
+        void postTimer(long delayMillis);
+
+        void cancelTimer();
+
+        /**
+         * The face needs drawing.
+         */
+        void invalidate();
+
+        /**
+         * Everything that was due in this wakeup, for work besides the glitch and the redraw
+         * (chips, the hourly buzz). WakeupTimeline.EVENT_ flags, never 0.
+         */
+        void onEvents(int events);
+
+        /**
+         * Milliseconds on a clock that keeps counting while the device sleeps, for wakeup stats.
+         */
+        long elapsedRealtime();
+    }
+
+    private final WakeupTimeline mTimeline;
+    private final FaceRenderer mRenderer;
+    private final FrameClock mFrameClock;
+    private final Host mHost;
+    private FrameStats mFrameStats;
+
+    private boolean mVisible, mAmbient;
+    private FaceSettings mSettings = FaceSettings.DEFAULT;
+
+    /**
+     * Takes over the renderer's glitch timing, see FaceRenderer.setAnimationsScheduled.
+     */
+    public WakeupScheduler(WakeupTimeline timeline, FaceRenderer renderer, FrameClock frameClock, Host host) {
+        mTimeline = timeline;
+        mRenderer = renderer;
+        mFrameClock = frameClock;
+        mHost = host;
+        mRenderer.setAnimationsScheduled(true, new ICompletionCallback() {
+            @Override
+            public void onComplete() {
+                mTimeline.onGlitchComplete();
+            }
+        });
+    }
+
+    public void setFrameStats(FrameStats stats) {
+        mFrameStats = stats;
+    }
+
+    /**
+     * A glitch playing when the face goes away is stopped, its frames would never be seen.
+     */
+    public void setVisible(boolean visible) {
+        mVisible = visible;
+        if (!visible) {
+            mRenderer.stopAnimations();
+        }
+        updateTimer();
+    }
+
+    /**
+     * The glitch stops in ambient and plays again on the way out.
+     */
+    public void setAmbient(boolean ambient) {
+        if (mAmbient != ambient) {
+            mAmbient = ambient;
+            // Allow position to be recalculated, prevents text out of position when entering / exiting ambient mode
+            mRenderer.invalidateLayout();
+            mHost.invalidate();
+        }
+
+        if (ambient) {
+            // Don't allow animations in ambient mode, a playing glitch would keep the frame clock
+            // invalidating every vsync for frames ambient never draws
+            mRenderer.stopAnimations();
+        } else {
+            mRenderer.forceAnimationStart();
+        }
+        updateTimer();
+    }
+
+    /**
+     * Applies the glitch interval and the events the settings turn off.
+     */
+    public void setSettings(FaceSettings settings) {
+        mSettings = settings;
+        if (settings.getGlitchIntervalSeconds() != FaceSettings.GLITCH_OFF) {
+            mTimeline.setGlitchInterval(settings.getGlitchIntervalSeconds());
+        }
+        updateTimer();
+    }
+
+    /**
+     * The update timer only runs while visible and interactive.
+     */
+    public boolean isTimerRunning() {
+        return mVisible && !mAmbient;
+    }
+
+    /**
+     * The update timer fired. Handles the timeline's events, then sleeps until the next ones.
+     */
+    public void onTimer() {
+        if (mFrameStats != null) {
+            mFrameStats.recordWakeup(FrameStats.MODE_INTERACTIVE, mHost.elapsedRealtime());
+        }
+        handleEvents(mTimeline.poll());
+        if (isTimerRunning()) {
+            mHost.postTimer(mTimeline.getDelayMillis());
+        }
+    }
+
+    /**
+     * The system's minute tick, the only wakeup in ambient.
+     */
+    public void onTimeTick() {
+        if (mAmbient && mFrameStats != null) {
+            mFrameStats.recordWakeup(FrameStats.MODE_AMBIENT, mHost.elapsedRealtime());
+        }
+        // Redraws even without events, the tick is when ambient shows the new minute
+        if (!handleEvents(mTimeline.poll())) {
+            mHost.invalidate();
+        }
+    }
+
+    /**
+     * Enables the events for the current mode and settings, and starts or stops the update timer.
+     */
+    private void updateTimer() {
+        int events = mAmbient ? AMBIENT_EVENTS : INTERACTIVE_EVENTS;
+        if (mSettings.getGlitchIntervalSeconds() == FaceSettings.GLITCH_OFF) {
+            events &= ~WakeupTimeline.EVENT_GLITCH;
+        }
+        if (!mSettings.isBuzzOnHour()) {
+            events &= ~WakeupTimeline.EVENT_HOUR;
+        }
+        mTimeline.setEnabled(mVisible ? events : 0);
+        mHost.cancelTimer();
+        // Restarting the timer breaks the once a second cadence, and the ambient ticks stop or
+        // start, don't count either as an interval
+        if (mFrameStats != null) {
+            mFrameStats.breakWakeupInterval();
+        }
+        if (isTimerRunning()) {
+            mHost.postTimer(0);
+        }
+    }
+
+    /**
+     * Reacts to the events WakeupTimeline.poll returned, everything due in this wakeup.
+     *
+     * @return true if the face was invalidated
+     */
+    private boolean handleEvents(int events) {
+        if (events == 0) {
+            return false;
+        }
+        if ((events & WakeupTimeline.EVENT_GLITCH) != 0) {
+            mRenderer.forceAnimationStart();
+        }
+        mHost.onEvents(events);
+
+        // Seconds, the glitch and the new date show on the next frame. While animating, the
+        // frame clock already invalidates every frame.
+        if (mFrameClock.isRunning()) {
+            return false;
+        }
+        mHost.invalidate();
+        return true;
+    }
+}
@@ -0,0 +1,193 @@
+package chris234k.yorhawatchface;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every time based event the face reacts to, scheduled ahead of time: second and minute ticks, the
+ * hourly buzz, the date rollover and the glitch. The engine sleeps until getNextWakeup and handles
+ * whatever poll returns, instead of checking the time on every frame.
+ *
+ * Events falling within MERGE_WINDOW_MS of the earliest one share its wakeup, which happens at the
+ * latest of them. Events are never handled early, only up to the window late.
+ */
+public class WakeupTimeline {
+    public interface WallClock {
+        long currentTimeMillis();
+    }
+
+    public static final int EVENT_SECOND = 1;
+    public static final int EVENT_MINUTE = 1 << 1;
+    public static final int EVENT_HOUR = 1 << 2;
+    public static final int EVENT_DATE = 1 << 3;
+    public static final int EVENT_GLITCH = 1 << 4;
+    private static final int EVENT_COUNT = 5;
+
+    public static final long MERGE_WINDOW_MS = 25;
+
+    private static final long SECOND_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private final WallClock mClock;
+    private final Calendar mCalendar;
+    private final long[] mDue = new long[EVENT_COUNT];
+    private int mEnabled;
+    private long mLastGlitchEnd;
+    private int mGlitchIntervalSeconds = 10;
+
+    public WakeupTimeline(WallClock clock, TimeZone timeZone) {
+        mClock = clock;
+        mCalendar = Calendar.getInstance(timeZone);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            mDue[i] = NEVER;
+        }
+    }
+
+    /**
+     * Which events to schedule, e.g. no seconds or glitches in ambient. Newly enabled events are
+     * scheduled from now.
+     */
+    public void setEnabled(int events) {
+        int added = events & ~mEnabled;
+        mEnabled = events;
+        long now = mClock.currentTimeMillis();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            int event = 1 << i;
+            if ((events & event) == 0) {
+                mDue[i] = NEVER;
+            } else if ((added & event) != 0) {
+                mDue[i] = nextAfter(event, now);
+            }
+        }
+    }
+
+    public int getEnabled() {
+        return mEnabled;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mCalendar.setTimeZone(timeZone);
+        onTimeSet();
+    }
+
+    /**
+     * The clock jumped, everything is scheduled again from now.
+     */
+    public void onTimeSet() {
+        int enabled = mEnabled;
+        mEnabled = 0;
+        setEnabled(enabled);
+    }
+
+    /**
+     * Glitches on the last second of every interval, e.g. on seconds ending in 9 for 10. Still at
+     * least AnimationTrigger.MIN_ANIMATION_GAP_MS apart.
+     */
+    public void setGlitchInterval(int seconds) {
+        if (seconds < 1) {
+            throw new IllegalArgumentException("Glitch interval must be positive: " + seconds);
+        }
+        mGlitchIntervalSeconds = seconds;
+        if ((mEnabled & EVENT_GLITCH) != 0) {
+            mDue[indexOf(EVENT_GLITCH)] = nextAfter(EVENT_GLITCH, mClock.currentTimeMillis());
+        }
+    }
+
+    /**
+     * The glitch finished, the next one waits at least AnimationTrigger.MIN_ANIMATION_GAP_MS.
+     */
+    public void onGlitchComplete() {
+        mLastGlitchEnd = mClock.currentTimeMillis();
+        if ((mEnabled & EVENT_GLITCH) != 0) {
+            mDue[indexOf(EVENT_GLITCH)] = nextAfter(EVENT_GLITCH, mLastGlitchEnd);
+        }
+    }
+
+    /**
+     * When to wake up next, as a wall clock time. Long.MAX_VALUE if nothing is enabled.
+     */
+    public long getNextWakeup() {
+        long earliest = NEVER;
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            earliest = Math.min(earliest, mDue[i]);
+        }
+        if (earliest == NEVER) {
+            return NEVER;
+        }
+        long wakeup = earliest;
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            if (mDue[i] <= earliest + MERGE_WINDOW_MS) {
+                wakeup = Math.max(wakeup, mDue[i]);
+            }
+        }
+        return wakeup;
+    }
+
+    /**
+     * Milliseconds until getNextWakeup, 0 if it's already due.
+     */
+    public long getDelayMillis() {
+        return Math.max(0, getNextWakeup() - mClock.currentTimeMillis());
+    }
+
+    /**
+     * Takes the events due by now, scheduling the next of each.
+     *
+     * @return the EVENT_ flags of the due events, 0 if none
+     */
+    public int poll() {
+        long now = mClock.currentTimeMillis();
+        int due = 0;
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            if (mDue[i] <= now) {
+                int event = 1 << i;
+                due |= event;
+                if (event == EVENT_GLITCH) {
+                    // Until the glitch reports that it's done, assume it just ended
+                    mLastGlitchEnd = now;
+                }
+                mDue[i] = nextAfter(event, now);
+            }
+        }
+        return due;
+    }
+
+    private static int indexOf(int event) {
+        return Integer.numberOfTrailingZeros(event);
+    }
+
+    /**
+     * The first time after timeMillis the event happens.
+     */
+    private long nextAfter(int event, long timeMillis) {
+        switch (event) {
+            case EVENT_SECOND:
+                return (timeMillis / SECOND_MS + 1) * SECOND_MS;
+            case EVENT_GLITCH:
+                // The interval's last second, once the gap after the last glitch has passed. Local
+                // offsets are whole minutes, so it's the same second in every zone.
+                long start = Math.max(timeMillis, mLastGlitchEnd + AnimationTrigger.MIN_ANIMATION_GAP_MS - 1);
+                long second = start / SECOND_MS + 1;
+                int interval = mGlitchIntervalSeconds;
+                second += (interval * 2 - 1 - second % interval) % interval;
+                return second * SECOND_MS;
+            default:
+                // Calendar fields, hours and days aren't always the same length
+                mCalendar.setTimeInMillis(timeMillis);
+                mCalendar.set(Calendar.MILLISECOND, 0);
+                mCalendar.set(Calendar.SECOND, 0);
+                if (event == EVENT_MINUTE) {
+                    mCalendar.add(Calendar.MINUTE, 1);
+                } else if (event == EVENT_HOUR) {
+                    mCalendar.set(Calendar.MINUTE, 0);
+                    mCalendar.add(Calendar.HOUR_OF_DAY, 1);
+                } else {
+                    mCalendar.set(Calendar.MINUTE, 0);
+                    mCalendar.set(Calendar.HOUR_OF_DAY, 0);
+                    mCalendar.add(Calendar.DAY_OF_MONTH, 1);
+                }
+                return mCalendar.getTimeInMillis();
+        }
+    }
+}
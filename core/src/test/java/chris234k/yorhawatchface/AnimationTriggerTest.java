@@ -0,0 +1,46 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnimationTriggerTest {
+
+    @Test
+    public void startsOnSecondsEndingInNine() throws Exception {
+        AnimationTrigger trigger = new AnimationTrigger();
+        long now = 60000;
+        for (int second = 0; second < 60; second++) {
+            assertEquals("second " + second, second % 10 == 9, trigger.shouldStart(second, now));
+        }
+    }
+
+    @Test
+    public void waitsAfterLastAnimation() throws Exception {
+        AnimationTrigger trigger = new AnimationTrigger();
+        trigger.onAnimationComplete(100000);
+
+        assertFalse(trigger.shouldStart(9, 100000 + AnimationTrigger.MIN_ANIMATION_GAP_MS - 1));
+        assertTrue(trigger.shouldStart(9, 100000 + AnimationTrigger.MIN_ANIMATION_GAP_MS));
+    }
+
+    @Test
+    public void forcedStart_firesOnce() throws Exception {
+        AnimationTrigger trigger = new AnimationTrigger();
+        trigger.onAnimationComplete(100000);
+        trigger.forceStart();
+
+        assertTrue(trigger.shouldStart(3, 100001));
+        assertFalse(trigger.shouldStart(3, 100002));
+    }
+
+    @Test
+    public void scheduled_onlyForcedStarts() throws Exception {
+        AnimationTrigger trigger = new AnimationTrigger();
+        trigger.setScheduled(true);
+
+        assertFalse(trigger.shouldStart(9, 60000));
+        trigger.forceStart();
+        assertTrue(trigger.shouldStart(3, 60000));
+    }
+}
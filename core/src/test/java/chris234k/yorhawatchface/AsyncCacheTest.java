@@ -0,0 +1,152 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncCacheTest {
+    // Runs everything queued on it when drained, like a looper
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> mQueue = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueue.add(command);
+        }
+
+        int drain() {
+            int count = 0;
+            while (!mQueue.isEmpty()) {
+                mQueue.remove(0).run();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    @Test
+    public void sameKey_loadsOnce() throws Exception {
+        QueueExecutor loads = new QueueExecutor();
+        AsyncCache<String, String> cache = new AsyncCache<>(loads);
+        final AtomicInteger calls = new AtomicInteger();
+        AsyncCache.Loader<String> loader = new AsyncCache.Loader<String>() {
+            @Override
+            public String load() throws Exception {
+                calls.incrementAndGet();
+                return "font";
+            }
+        };
+
+        AsyncCache.Entry<String> first = cache.get("a", loader);
+        AsyncCache.Entry<String> second = cache.get("a", loader);
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        assertNull(first.getValue());
+
+        assertEquals(1, loads.drain());
+        assertEquals(1, calls.get());
+        assertTrue(first.isDone());
+        assertEquals("font", first.getValue());
+        assertSame(first, cache.peek("a"));
+        assertNull(cache.peek("b"));
+    }
+
+    @Test
+    public void callbacks_runOnTheirExecutorWhenDone() throws Exception {
+        QueueExecutor loads = new QueueExecutor();
+        QueueExecutor main = new QueueExecutor();
+        AsyncCache<String, Integer> cache = new AsyncCache<>(loads);
+        final List<String> order = new ArrayList<>();
+
+        AsyncCache.Entry<Integer> entry = cache.get("a", new AsyncCache.Loader<Integer>() {
+            @Override
+            public Integer load() throws Exception {
+                return 1;
+            }
+        });
+        entry.whenDone(record(order, "before"), main);
+        assertEquals(0, main.drain());
+
+        loads.drain();
+        entry.whenDone(record(order, "after"), main);
+        assertEquals(2, main.drain());
+        assertEquals(java.util.Arrays.asList("before", "after"), order);
+    }
+
+    @Test
+    public void failedLoad_doneWithError() throws Exception {
+        QueueExecutor loads = new QueueExecutor();
+        AsyncCache<String, String> cache = new AsyncCache<>(loads);
+        AsyncCache.Entry<String> entry = cache.get("missing", new AsyncCache.Loader<String>() {
+            @Override
+            public String load() throws Exception {
+                throw new IOException("no such asset");
+            }
+        });
+        loads.drain();
+
+        assertTrue(entry.isDone());
+        assertNull(entry.getValue());
+        assertTrue(entry.getError() instanceof IOException);
+    }
+
+    @Test
+    public void concurrentRequests_loadOnce() throws Exception {
+        ExecutorService loads = Executors.newSingleThreadExecutor();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        final AsyncCache<String, Object> cache = new AsyncCache<>(loads);
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(64);
+        final AsyncCache.Loader<Object> loader = new AsyncCache.Loader<Object>() {
+            @Override
+            public Object load() throws Exception {
+                calls.incrementAndGet();
+                return new Object();
+            }
+        };
+
+        for (int i = 0; i < 64; i++) {
+            callers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    cache.get("shared", loader).whenDone(new Runnable() {
+                        @Override
+                        public void run() {
+                            done.countDown();
+                        }
+                    }, new Executor() {
+                        @Override
+                        public void execute(Runnable command) {
+                            command.run();
+                        }
+                    });
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.size());
+        callers.shutdown();
+        loads.shutdown();
+    }
+
+    private static Runnable record(final List<String> order, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,244 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class BitmapBudgetTest {
+    private static final long KB = 1024;
+
+    private static class FakeBitmap {
+        final long mAllocation;
+        int mWidth, mHeight, mConfig;
+        boolean mRecycled;
+
+        FakeBitmap(int width, int height, int config) {
+            mAllocation = BitmapBudget.bytesFor(width, height, config);
+            mWidth = width;
+            mHeight = height;
+            mConfig = config;
+        }
+    }
+
+    private static class FakeAllocator implements BitmapBudget.Allocator<FakeBitmap> {
+        int mCreated;
+
+        @Override
+        public FakeBitmap create(int width, int height, int config) {
+            mCreated++;
+            return new FakeBitmap(width, height, config);
+        }
+
+        @Override
+        public boolean reconfigure(FakeBitmap bitmap, int width, int height, int config) {
+            if (BitmapBudget.bytesFor(width, height, config) > bitmap.mAllocation) {
+                return false;
+            }
+            bitmap.mWidth = width;
+            bitmap.mHeight = height;
+            bitmap.mConfig = config;
+            return true;
+        }
+
+        @Override
+        public long getAllocationBytes(FakeBitmap bitmap) {
+            return bitmap.mAllocation;
+        }
+
+        @Override
+        public void recycle(FakeBitmap bitmap) {
+            assertFalse("recycled twice", bitmap.mRecycled);
+            bitmap.mRecycled = true;
+        }
+    }
+
+    /**
+     * Holds its bitmaps and releases all of them when trimmed, like the engine's caches.
+     */
+    private class Cache extends BitmapBudget.Client {
+        final ArrayList<FakeBitmap> mBitmaps = new ArrayList<>();
+        int mTrims;
+
+        Cache(String name, int tier) {
+            super(name, tier);
+        }
+
+        FakeBitmap add(int width, int height) {
+            FakeBitmap bitmap = mBudget.acquire(this, width, height, BitmapBudget.CONFIG_ARGB_8888);
+            mBitmaps.add(bitmap);
+            return bitmap;
+        }
+
+        @Override
+        protected void onTrim() {
+            mTrims++;
+            for (FakeBitmap bitmap : mBitmaps) {
+                mBudget.release(this, bitmap);
+            }
+            mBitmaps.clear();
+        }
+    }
+
+    private FakeAllocator mAllocator;
+    private BitmapBudget<FakeBitmap> mBudget;
+
+    @Before
+    public void setUp() throws Exception {
+        mAllocator = new FakeAllocator();
+        // 16x16 ARGB is 1 KB
+        mBudget = new BitmapBudget<>(mAllocator, 64 * KB, 8 * KB);
+    }
+
+    @Test
+    public void bytes_countedPerClient() throws Exception {
+        Cache background = new Cache("background", BitmapBudget.TIER_CACHED);
+        Cache chips = new Cache("chips", BitmapBudget.TIER_CACHED);
+        background.add(32, 32);
+        chips.add(16, 16);
+        chips.add(16, 16);
+
+        assertEquals(4 * KB, mBudget.getBytes(background));
+        assertEquals(2 * KB, mBudget.getBytes(chips));
+        assertEquals(6 * KB, mBudget.getTotalBytes());
+        assertEquals(2 * KB, BitmapBudget.bytesFor(32, 32, BitmapBudget.CONFIG_RGB_565));
+    }
+
+    @Test
+    public void released_reusedForSameOrSmaller() throws Exception {
+        Cache cache = new Cache("frames", BitmapBudget.TIER_AHEAD);
+        FakeBitmap big = cache.add(32, 32);
+        FakeBitmap small = cache.add(16, 16);
+        cache.onTrim();
+        assertEquals(5 * KB, mBudget.getPoolBytes());
+        assertEquals(0, mBudget.getBytes(cache));
+
+        // The smallest that fits
+        assertSame(small, cache.add(8, 8));
+        assertSame(big, mBudget.acquire(cache, 32, 16, BitmapBudget.CONFIG_RGB_565));
+        assertEquals(16, big.mHeight);
+        assertEquals(2, mAllocator.mCreated);
+        assertEquals(2, mBudget.getReuses());
+        assertEquals(0, mBudget.getPoolBytes());
+    }
+
+    @Test
+    public void pool_keptUnderLimit() throws Exception {
+        Cache cache = new Cache("frames", BitmapBudget.TIER_AHEAD);
+        FakeBitmap first = cache.add(64, 32);
+        FakeBitmap second = cache.add(64, 32);
+        cache.onTrim();
+
+        // 8 KB each, the pool holds one
+        assertTrue(first.mRecycled);
+        assertFalse(second.mRecycled);
+        assertEquals(8 * KB, mBudget.getPoolBytes());
+    }
+
+    @Test
+    public void overBudget_evictsLowestTierLeastRecentlyUsed() throws Exception {
+        Cache ahead = new Cache("ambient frames", BitmapBudget.TIER_AHEAD);
+        Cache chips = new Cache("chips", BitmapBudget.TIER_CACHED);
+        Cache background = new Cache("background", BitmapBudget.TIER_CACHED);
+        Cache glyphs = new Cache("glyphs", BitmapBudget.TIER_LAYOUT);
+        chips.add(64, 64); // 16 KB
+        background.add(64, 64);
+        ahead.add(64, 64);
+        glyphs.add(64, 64);
+        mBudget.touch(chips);
+
+        // Needs 16 KB more: the ahead tier goes first
+        Cache frame = new Cache("frame", BitmapBudget.TIER_CACHED);
+        frame.add(64, 64);
+        assertEquals(1, ahead.mTrims);
+        assertEquals(0, background.mTrims);
+
+        // Then background, chips were used more recently
+        frame.add(64, 64);
+        assertEquals(1, background.mTrims);
+        assertEquals(0, chips.mTrims);
+        assertEquals(0, glyphs.mTrims);
+        assertTrue(mBudget.getTotalBytes() <= mBudget.getBudgetBytes());
+        assertEquals(2, mBudget.getEvictions());
+    }
+
+    @Test
+    public void busyClients_notEvicted() throws Exception {
+        Cache ahead = new Cache("ambient frames", BitmapBudget.TIER_AHEAD);
+        Cache frame = new Cache("frame", BitmapBudget.TIER_CACHED);
+        ahead.add(128, 112); // 56 KB
+        frame.add(16, 16);
+
+        mBudget.beginUse(ahead);
+        Cache chips = new Cache("chips", BitmapBudget.TIER_CACHED);
+        chips.add(64, 32); // 8 KB, over by 1
+        assertEquals(0, ahead.mTrims);
+        assertEquals(1, frame.mTrims);
+        assertEquals(0, mBudget.trim(BitmapBudget.TRIM_MEMORY_RUNNING_LOW));
+
+        mBudget.endUse(ahead);
+        mBudget.trim(BitmapBudget.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(1, ahead.mTrims);
+    }
+
+    @Test
+    public void nothingToEvict_exceedsBudget() throws Exception {
+        Cache resources = new Cache("resources", BitmapBudget.TIER_PINNED);
+        resources.add(128, 128); // 64 KB
+        Cache frame = new Cache("frame", BitmapBudget.TIER_CACHED);
+        frame.add(64, 64);
+
+        assertEquals(0, resources.mTrims);
+        assertEquals(80 * KB, mBudget.getTotalBytes());
+    }
+
+    @Test
+    public void trimLevels_dropTiersInOrder() throws Exception {
+        Cache ahead = new Cache("ambient frames", BitmapBudget.TIER_AHEAD);
+        Cache background = new Cache("background", BitmapBudget.TIER_CACHED);
+        Cache glyphs = new Cache("glyphs", BitmapBudget.TIER_LAYOUT);
+        Cache resources = new Cache("resources", BitmapBudget.TIER_PINNED);
+        ahead.add(16, 16);
+        background.add(16, 16);
+        glyphs.add(16, 16);
+        resources.add(16, 16);
+        Cache released = new Cache("released", BitmapBudget.TIER_CACHED);
+        released.add(16, 16);
+        released.onTrim();
+        assertEquals(KB, mBudget.getPoolBytes());
+
+        assertEquals(KB, mBudget.trim(BitmapBudget.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(0, ahead.mTrims);
+
+        assertEquals(KB, mBudget.trim(BitmapBudget.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(1, ahead.mTrims);
+        assertEquals(0, background.mTrims);
+
+        assertEquals(KB, mBudget.trim(BitmapBudget.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(1, background.mTrims);
+        assertEquals(0, glyphs.mTrims);
+
+        assertEquals(KB, mBudget.trim(BitmapBudget.TRIM_MEMORY_COMPLETE));
+        assertEquals(1, glyphs.mTrims);
+        assertEquals(0, resources.mTrims);
+        assertEquals(KB, mBudget.getTotalBytes());
+        assertEquals(0, mBudget.getPoolBytes());
+    }
+
+    @Test
+    public void trimmedClient_forgetsUnreleasedBytes() throws Exception {
+        BitmapBudget.Client leaky = new BitmapBudget.Client("leaky", BitmapBudget.TIER_AHEAD) {
+            @Override
+            protected void onTrim() {
+                // Drops its references without releasing
+            }
+        };
+        mBudget.acquire(leaky, 16, 16, BitmapBudget.CONFIG_ARGB_8888);
+        mBudget.trim(BitmapBudget.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(0, mBudget.getBytes(leaky));
+        assertEquals(0, mBudget.getTotalBytes());
+    }
+}
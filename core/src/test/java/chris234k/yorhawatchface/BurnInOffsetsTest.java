@@ -0,0 +1,50 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BurnInOffsetsTest {
+
+    @Test
+    public void shifts_stayWithinMax() throws Exception {
+        BurnInOffsets offsets = new BurnInOffsets(3);
+        for (long minute = 0; minute < 100; minute++) {
+            assertTrue(Math.abs(offsets.getX(minute)) <= 3);
+            assertTrue(Math.abs(offsets.getY(minute)) <= 3);
+        }
+    }
+
+    @Test
+    public void consecutiveMinutes_moveOneStep() throws Exception {
+        BurnInOffsets offsets = new BurnInOffsets(2);
+        for (long minute = 0; minute < offsets.size() * 2; minute++) {
+            int dx = Math.abs(offsets.getX(minute + 1) - offsets.getX(minute));
+            int dy = Math.abs(offsets.getY(minute + 1) - offsets.getY(minute));
+            assertTrue("minute " + minute, dx <= 2 && dy <= 2);
+            assertTrue("minute " + minute, dx + dy > 0);
+        }
+    }
+
+    @Test
+    public void cycle_visitsEveryShift() throws Exception {
+        BurnInOffsets offsets = new BurnInOffsets(1);
+        boolean[][] seen = new boolean[3][3];
+        for (long minute = 0; minute < offsets.size(); minute++) {
+            seen[offsets.getX(minute) + 1][offsets.getY(minute) + 1] = true;
+        }
+        for (boolean[] column : seen) {
+            for (boolean cell : column) {
+                assertTrue(cell);
+            }
+        }
+        assertEquals(offsets.getX(0), offsets.getX(offsets.size()));
+    }
+
+    @Test
+    public void negativeMinutes_wrap() throws Exception {
+        BurnInOffsets offsets = new BurnInOffsets(1);
+        assertEquals(offsets.getX(offsets.size() - 1), offsets.getX(-1));
+        assertEquals(offsets.getY(offsets.size() - 1), offsets.getY(-1));
+    }
+}
@@ -0,0 +1,90 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ChipCacheTest {
+    private int mRenders;
+    private ChipCache<int[]> mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        mCache = new ChipCache<>(FakeChipSource.SLOT_COUNT, new ChipCache.Renderer<int[]>() {
+            @Override
+            public int[] render(ChipData data, boolean ambient, boolean lowBit, int[] reuse) {
+                mRenders++;
+                return reuse != null ? reuse : new int[1];
+            }
+        });
+    }
+
+    @Test
+    public void sameData_rendersOnce() throws Exception {
+        ChipData chip = ChipData.shortText("1200", "STEPS");
+        int[] first = mCache.get(0, chip, false, false);
+        assertSame(first, mCache.get(0, ChipData.shortText("1200", "STEPS"), false, false));
+
+        assertEquals(1, mRenders);
+        assertEquals(1, mCache.getHits());
+        assertEquals(1, mCache.getMisses());
+    }
+
+    @Test
+    public void changedDataOrMode_rendersAgainIntoSameBuffer() throws Exception {
+        ChipData chip = ChipData.shortText("1200", "STEPS");
+        int[] buffer = mCache.get(0, chip, false, false);
+
+        assertSame(buffer, mCache.get(0, ChipData.shortText("1420", "STEPS"), false, false));
+        mCache.get(0, chip, true, false);
+        mCache.get(0, chip, true, true);
+        assertEquals(4, mRenders);
+
+        // Slots are cached separately
+        mCache.get(1, chip, true, true);
+        assertEquals(5, mRenders);
+        assertNotSame(buffer, mCache.peek(1));
+    }
+
+    @Test
+    public void invalidate_rendersAgain() throws Exception {
+        ChipData chip = ChipData.shortText("1200", "STEPS");
+        mCache.get(0, chip, false, false);
+        mCache.invalidate();
+        mCache.get(0, chip, false, false);
+        assertEquals(2, mRenders);
+    }
+
+    @Test
+    public void fakeSource_dayOfSecondTicksRendersOnlyOnChanges() throws Exception {
+        FakeChipSource source = new FakeChipSource();
+        long day = TimeUnit.DAYS.toMillis(1);
+        long start = TimeUnit.DAYS.toMillis(17000);
+
+        for (long time = start; time < start + day; time += 1000) {
+            for (int slot = 0; slot < FakeChipSource.SLOT_COUNT; slot++) {
+                mCache.get(slot, source.getChip(slot, time), false, false);
+            }
+        }
+
+        long changes = FakeChipSource.changesBetween(FakeChipSource.SLOT_BATTERY, start, start + day - 1000)
+                + FakeChipSource.changesBetween(FakeChipSource.SLOT_STEPS, start, start + day - 1000);
+        // The first frame renders both chips
+        assertEquals(changes + 2, mRenders);
+        assertTrue(changes > 200);
+        assertTrue("hit rate " + mCache.getHitRate(), mCache.getHitRate() > 0.99f);
+    }
+
+    @Test
+    public void fakeSource_unchangedValueIsSameInstance() throws Exception {
+        FakeChipSource source = new FakeChipSource();
+        ChipData chip = source.getChip(FakeChipSource.SLOT_BATTERY, 0);
+        assertEquals("100%", chip.getText());
+        assertSame(chip, source.getChip(FakeChipSource.SLOT_BATTERY, TimeUnit.MINUTES.toMillis(5)));
+        assertEquals("99%", source.getChip(FakeChipSource.SLOT_BATTERY, TimeUnit.MINUTES.toMillis(6)).getText());
+        assertEquals(0.99f, source.getChip(FakeChipSource.SLOT_BATTERY, TimeUnit.MINUTES.toMillis(6)).getFraction(), 0.001f);
+    }
+}
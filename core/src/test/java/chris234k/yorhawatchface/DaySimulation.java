@@ -0,0 +1,401 @@
+package chris234k.yorhawatchface;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the engine's timing logic through a simulated day on fake clocks: the update timer, ambient
+ * ticks, glitches stepped on a 60 Hz vsync and the switches between off wrist, ambient and
+ * interactive that a WearPattern describes. Frames are recorded instead of drawn.
+ *
+ * The scheduling is the engine's own WakeupScheduler, this only stands in for the Handler, the
+ * time tick broadcast and the vsync. A day takes a few seconds, run it with
+ * ./gradlew :core:simulateDay and compare the report before and after a change.
+ */
+public class DaySimulation {
+    public static final int MODE_OFF = 0;
+    public static final int MODE_AMBIENT = 1;
+    public static final int MODE_INTERACTIVE = 2;
+    private static final String[] MODE_NAMES = {"off", "ambient", "interactive"};
+
+    /**
+     * Asleep with the screen off overnight, then a one minute glance every quarter hour.
+     */
+    public static final String DEFAULT_PATTERN = "off:8h | interactive:1m ambient:14m";
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * How the watch is worn, as mode:duration segments, e.g. "off:8h | ambient:57m interactive:3m".
+     * Segments before the | run once, the rest repeat until the simulation ends. Without a |, the
+     * whole pattern repeats. Durations take an h, m or s suffix.
+     */
+    public static final class WearPattern {
+        private final int[] mModes;
+        private final long[] mDurations;
+        private final int mLoopStart;
+        private final String mSource;
+
+        private WearPattern(int[] modes, long[] durations, int loopStart, String source) {
+            mModes = modes;
+            mDurations = durations;
+            mLoopStart = loopStart;
+            mSource = source;
+        }
+
+        /**
+         * @throws IllegalArgumentException if pattern is malformed
+         */
+        public static WearPattern parse(String pattern) {
+            ArrayList<String> segments = new ArrayList<>();
+            int loopStart = 0;
+            for (String token : pattern.trim().split("\\s+")) {
+                if (token.equals("|")) {
+                    loopStart = segments.size();
+                } else if (!token.isEmpty()) {
+                    segments.add(token);
+                }
+            }
+            if (segments.size() == loopStart) {
+                throw new IllegalArgumentException("Nothing to repeat in \"" + pattern + "\"");
+            }
+
+            int[] modes = new int[segments.size()];
+            long[] durations = new long[segments.size()];
+            for (int i = 0; i < modes.length; i++) {
+                String segment = segments.get(i);
+                int colon = segment.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Expected mode:duration, was " + segment);
+                }
+                modes[i] = parseMode(segment.substring(0, colon));
+                durations[i] = parseDuration(segment.substring(colon + 1));
+            }
+            return new WearPattern(modes, durations, loopStart, pattern);
+        }
+
+        private static int parseMode(String mode) {
+            for (int i = 0; i < MODE_NAMES.length; i++) {
+                if (MODE_NAMES[i].equals(mode)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+
+        private static long parseDuration(String duration) {
+            if (duration.length() < 2) {
+                throw new IllegalArgumentException("Bad duration " + duration);
+            }
+            long value;
+            try {
+                value = Long.parseLong(duration.substring(0, duration.length() - 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad duration " + duration, e);
+            }
+            if (value <= 0) {
+                throw new IllegalArgumentException("Bad duration " + duration);
+            }
+            switch (duration.charAt(duration.length() - 1)) {
+                case 'h':
+                    return TimeUnit.HOURS.toMillis(value);
+                case 'm':
+                    return TimeUnit.MINUTES.toMillis(value);
+                case 's':
+                    return TimeUnit.SECONDS.toMillis(value);
+                default:
+                    throw new IllegalArgumentException("Bad duration unit " + duration);
+            }
+        }
+
+        public int getSegmentCount() {
+            return mModes.length;
+        }
+
+        /**
+         * The segment running at index, counting repeats, e.g. index 3 is the second repeat of a
+         * two segment loop after one segment that runs once.
+         */
+        int segmentAt(int index) {
+            if (index < mModes.length) {
+                return index;
+            }
+            int loopLength = mModes.length - mLoopStart;
+            return mLoopStart + (index - mLoopStart) % loopLength;
+        }
+
+        public int getMode(int index) {
+            return mModes[segmentAt(index)];
+        }
+
+        public long getDuration(int index) {
+            return mDurations[segmentAt(index)];
+        }
+
+        @Override
+        public String toString() {
+            return mSource;
+        }
+    }
+
+    /**
+     * What a run cost. Frame counts are per FrameStats mode.
+     */
+    public static final class Report {
+        long mSimulatedMillis;
+        long mRunMillis;
+        long mTimerWakeups, mAmbientTicks;
+        final long[] mFrames = new long[3];
+        long mGlitches;
+        // -1 if the VM can't count allocations
+        long mAllocatedBytes = -1;
+        String mPattern;
+
+        /**
+         * Times the engine's main thread woke up: update timer messages and ambient ticks.
+         * Animation frames are counted separately.
+         */
+        public long getWakeups() {
+            return mTimerWakeups + mAmbientTicks;
+        }
+
+        public long getTimerWakeups() {
+            return mTimerWakeups;
+        }
+
+        public long getAmbientTicks() {
+            return mAmbientTicks;
+        }
+
+        public long getFrames(int statsMode) {
+            return mFrames[statsMode];
+        }
+
+        public long getTotalFrames() {
+            return mFrames[FrameStats.MODE_INTERACTIVE] + mFrames[FrameStats.MODE_ANIMATING]
+                    + mFrames[FrameStats.MODE_AMBIENT];
+        }
+
+        public long getGlitches() {
+            return mGlitches;
+        }
+
+        /**
+         * Seconds spent animating, with every animation frame drawn on a 60 Hz vsync.
+         */
+        public float getAnimationSeconds() {
+            return (float) mFrames[FrameStats.MODE_ANIMATING] / FrameBudget.FPS_FULL;
+        }
+
+        public long getAllocatedBytes() {
+            return mAllocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Simulated ").append(TimeUnit.MILLISECONDS.toMinutes(mSimulatedMillis)).append(" min in ")
+                    .append(mRunMillis).append(" ms, pattern \"").append(mPattern).append("\"\n");
+            builder.append("  wakeups: ").append(getWakeups()).append(" (timer ").append(mTimerWakeups)
+                    .append(", ambient ticks ").append(mAmbientTicks).append(")\n");
+            builder.append("  frames: ").append(getTotalFrames())
+                    .append(" (interactive ").append(mFrames[FrameStats.MODE_INTERACTIVE])
+                    .append(", animating ").append(mFrames[FrameStats.MODE_ANIMATING])
+                    .append(", ambient ").append(mFrames[FrameStats.MODE_AMBIENT]).append(")\n");
+            builder.append("  glitches: ").append(mGlitches).append(", ")
+                    .append(String.format(Locale.US, "%.1f", getAnimationSeconds())).append(" s animating at ")
+                    .append(FrameBudget.FPS_FULL).append(" fps\n");
+            builder.append("  allocated: ");
+            if (mAllocatedBytes < 0) {
+                builder.append("unknown");
+            } else {
+                builder.append(mAllocatedBytes).append(" bytes");
+                if (getTotalFrames() > 0) {
+                    builder.append(" (").append(mAllocatedBytes / getTotalFrames()).append(" per frame)");
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    private final WearPattern mPattern;
+    private final long mStart;
+    private final ManualFrameClock mClock = new ManualFrameClock();
+    private final RecordingRenderTarget mTarget = new RecordingRenderTarget(10, -15);
+    private final FaceRenderer mRenderer;
+    private final WakeupScheduler mScheduler;
+    private Report mReport;
+
+    private boolean mVisible, mAmbient;
+    private boolean mTimerPosted;
+    private long mTimerDue;
+    private long mNextTick;
+    private boolean mInvalid;
+
+    public DaySimulation(WearPattern pattern) {
+        mPattern = pattern;
+
+        // A Monday, midnight
+        Calendar calendar = new GregorianCalendar(UTC, Locale.US);
+        calendar.clear();
+        calendar.set(2017, Calendar.JUNE, 26, 0, 0, 0);
+        mStart = calendar.getTimeInMillis();
+
+        mRenderer = new FaceRenderer(mClock, UTC, Locale.US, true);
+        mRenderer.setSurfaceSize(320, 320);
+        mTarget.setRetainsFrames(true);
+        WakeupTimeline timeline = new WakeupTimeline(new WakeupTimeline.WallClock() {
+            @Override
+            public long currentTimeMillis() {
+                return now();
+            }
+        }, UTC);
+        mScheduler = new WakeupScheduler(timeline, mRenderer, mClock, new WakeupScheduler.Host() {
+            @Override
+            public void postTimer(long delayMillis) {
+                mTimerPosted = true;
+                mTimerDue = mClock.now() + delayMillis;
+            }
+
+            @Override
+            public void cancelTimer() {
+                mTimerPosted = false;
+            }
+
+            @Override
+            public void invalidate() {
+                mInvalid = true;
+            }
+
+            @Override
+            public void onEvents(int events) {
+                if ((events & WakeupTimeline.EVENT_GLITCH) != 0) {
+                    mReport.mGlitches++;
+                }
+            }
+
+            @Override
+            public long elapsedRealtime() {
+                return mClock.now();
+            }
+        });
+        // Animation frames draw on the vsync that produced them
+        mClock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                mInvalid = true;
+                drawIfInvalid();
+            }
+        });
+    }
+
+    /**
+     * Runs the pattern from midnight for durationMillis. Call once per instance.
+     */
+    public Report run(long durationMillis) {
+        mReport = new Report();
+        mReport.mPattern = mPattern.toString();
+        mReport.mSimulatedMillis = durationMillis;
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) threads : null;
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocations != null ? allocations.getThreadAllocatedBytes(threadId) : 0;
+        long runStart = System.nanoTime();
+
+        long end = 0;
+        for (int segment = 0; end < durationMillis; segment++) {
+            setMode(mPattern.getMode(segment));
+            end = Math.min(end + mPattern.getDuration(segment), durationMillis);
+            runUntil(end);
+        }
+
+        mReport.mRunMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart);
+        if (allocations != null) {
+            mReport.mAllocatedBytes = allocations.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        }
+        return mReport;
+    }
+
+    private long now() {
+        return mStart + mClock.now();
+    }
+
+    private void runUntil(long end) {
+        while (true) {
+            long next = end;
+            if (mTimerPosted) {
+                next = Math.min(next, mTimerDue);
+            }
+            if (mVisible && mAmbient) {
+                next = Math.min(next, mNextTick);
+            }
+            // Animation frames between now and then are dispatched on the way
+            mClock.advance(next - mClock.now());
+
+            if (mTimerPosted && mClock.now() >= mTimerDue) {
+                mTimerPosted = false;
+                mReport.mTimerWakeups++;
+                mScheduler.onTimer();
+            }
+            if (mVisible && mAmbient && mClock.now() >= mNextTick) {
+                mNextTick += MINUTE_MS;
+                mReport.mAmbientTicks++;
+                mScheduler.onTimeTick();
+            }
+            drawIfInvalid();
+            if (mClock.now() >= end) {
+                return;
+            }
+        }
+    }
+
+    private void setMode(int mode) {
+        boolean visible = mode != MODE_OFF;
+        boolean ambient = mode == MODE_AMBIENT;
+        // The system goes through ambient on the way to and from off, ticks run from the next
+        // minute
+        if (ambient != mAmbient && (visible || mVisible)) {
+            mAmbient = ambient;
+            mNextTick = mClock.now() - mClock.now() % MINUTE_MS + MINUTE_MS;
+            mScheduler.setAmbient(ambient);
+        }
+        if (visible != mVisible) {
+            mVisible = visible;
+            mNextTick = mClock.now() - mClock.now() % MINUTE_MS + MINUTE_MS;
+            if (visible) {
+                mInvalid = true;
+            }
+            mScheduler.setVisible(visible);
+        }
+        drawIfInvalid();
+    }
+
+    private void drawIfInvalid() {
+        if (!mInvalid || !mVisible) {
+            return;
+        }
+        mInvalid = false;
+        int statsMode = mAmbient ? FrameStats.MODE_AMBIENT
+                : mRenderer.isPlaying() ? FrameStats.MODE_ANIMATING : FrameStats.MODE_INTERACTIVE;
+        mRenderer.render(mTarget, now(), mAmbient, mAmbient);
+        mReport.mFrames[statsMode]++;
+    }
+
+    /**
+     * Runs a day of the pattern in args[0], or DEFAULT_PATTERN, and prints the report.
+     */
+    public static void main(String[] args) {
+        WearPattern pattern = WearPattern.parse(args.length > 0 ? args[0] : DEFAULT_PATTERN);
+        System.out.println(new DaySimulation(pattern).run(DAY_MS));
+    }
+}
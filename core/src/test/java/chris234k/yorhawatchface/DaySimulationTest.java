@@ -0,0 +1,87 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DaySimulationTest {
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void pattern_runsPrefixOnceThenRepeats() throws Exception {
+        DaySimulation.WearPattern pattern = DaySimulation.WearPattern.parse("off:8h | interactive:1m ambient:90s");
+
+        assertEquals(3, pattern.getSegmentCount());
+        assertEquals(DaySimulation.MODE_OFF, pattern.getMode(0));
+        assertEquals(8 * HOUR_MS, pattern.getDuration(0));
+        assertEquals(DaySimulation.MODE_INTERACTIVE, pattern.getMode(3));
+        assertEquals(DaySimulation.MODE_AMBIENT, pattern.getMode(4));
+        assertEquals(90000, pattern.getDuration(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pattern_badDuration() throws Exception {
+        DaySimulation.WearPattern.parse("ambient:10d");
+    }
+
+    @Test
+    public void ambient_oneWakeupPerMinute() throws Exception {
+        DaySimulation.Report report = new DaySimulation(DaySimulation.WearPattern.parse("ambient:1h")).run(HOUR_MS);
+
+        assertEquals(60, report.getWakeups());
+        assertEquals(0, report.getTimerWakeups());
+        assertEquals(0, report.getFrames(FrameStats.MODE_INTERACTIVE));
+        // The first frame, then one each minute
+        assertEquals(61, report.getFrames(FrameStats.MODE_AMBIENT));
+    }
+
+    @Test
+    public void interactive_secondsAndGlitches() throws Exception {
+        DaySimulation.Report report = new DaySimulation(DaySimulation.WearPattern.parse("interactive:1h")).run(HOUR_MS);
+
+        // One wakeup per second, plus the one when the timer starts
+        assertEquals(3601, report.getTimerWakeups());
+        assertEquals(3600, report.getFrames(FrameStats.MODE_INTERACTIVE));
+        // A glitch every 10 seconds, each animated at the full frame rate. Mostly only the two
+        // seconds digits change, 3 frames each.
+        assertEquals(360, report.getGlitches(), 1);
+        long animating = report.getFrames(FrameStats.MODE_ANIMATING);
+        assertTrue("animating " + animating, animating >= report.getGlitches() * 5);
+        assertTrue("animating " + animating, animating < report.getGlitches() * 10);
+    }
+
+    @Test
+    public void ambient_stopsGlitchRequestedJustBefore() throws Exception {
+        // The glitch is requested on the 9th second and would play a second later
+        DaySimulation.Report report = new DaySimulation(DaySimulation.WearPattern.parse("interactive:9s ambient:1m"))
+                .run(TimeUnit.SECONDS.toMillis(69));
+
+        assertEquals(1, report.getGlitches());
+        assertEquals(0, report.getFrames(FrameStats.MODE_ANIMATING));
+        // The switch and the tick, no frame clock invalidations in between
+        assertEquals(2, report.getFrames(FrameStats.MODE_AMBIENT));
+    }
+
+    @Test
+    public void offWrist_nothingRuns() throws Exception {
+        DaySimulation.Report report = new DaySimulation(DaySimulation.WearPattern.parse("off:1h")).run(HOUR_MS);
+
+        assertEquals(0, report.getWakeups());
+        assertEquals(0, report.getTotalFrames());
+    }
+
+    @Test
+    public void sameDay_sameReport() throws Exception {
+        DaySimulation.WearPattern pattern = DaySimulation.WearPattern.parse(DaySimulation.DEFAULT_PATTERN);
+        DaySimulation.Report first = new DaySimulation(pattern).run(TimeUnit.DAYS.toMillis(1));
+        DaySimulation.Report second = new DaySimulation(pattern).run(TimeUnit.DAYS.toMillis(1));
+
+        assertEquals(first.getWakeups(), second.getWakeups());
+        assertEquals(first.getTotalFrames(), second.getTotalFrames());
+        assertEquals(first.getGlitches(), second.getGlitches());
+        // Ticks only while visible: 16 hours of quarter hours, 14 minutes ambient in each
+        assertEquals(16 * 4 * 14, first.getAmbientTicks());
+    }
+}
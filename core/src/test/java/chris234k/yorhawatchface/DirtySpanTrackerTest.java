@@ -0,0 +1,81 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirtySpanTrackerTest {
+
+    @Test
+    public void firstUpdate_allDirty() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        assertTrue(update(tracker, "09:59:00"));
+        assertFalse(tracker.hasPrevious());
+        assertSpan(tracker, 0, 8);
+    }
+
+    @Test
+    public void secondsTick_onlyLastDigit() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        update(tracker, "09:59:00");
+        assertTrue(update(tracker, "09:59:01"));
+        assertSpan(tracker, 7, 8);
+        assertEquals("09:59:00", new String(tracker.getPrevious(), 0, tracker.getPreviousLength()));
+        assertEquals("09:59:01", new String(tracker.getCurrent(), 0, tracker.getCurrentLength()));
+    }
+
+    @Test
+    public void middleChange_boundedOnBothSides() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        update(tracker, "09:59:59");
+        update(tracker, "09:51:59");
+        assertSpan(tracker, 4, 5);
+    }
+
+    @Test
+    public void lengthChange_dirtyToTheEnd() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        update(tracker, "9:59:59 AM");
+        update(tracker, "10:00:00 AM");
+        assertSpan(tracker, 0, 11);
+
+        update(tracker, "10:00:00 A");
+        assertSpan(tracker, 10, 11);
+    }
+
+    @Test
+    public void unchanged_notDirty() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        update(tracker, "TUE 27");
+        assertFalse(update(tracker, "TUE 27"));
+        assertFalse(tracker.isDirty());
+    }
+
+    @Test
+    public void reset_nextUpdateAllDirty() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        update(tracker, "TUE 27");
+        tracker.reset();
+        assertTrue(update(tracker, "TUE 27"));
+        assertSpan(tracker, 0, 6);
+    }
+
+    @Test
+    public void longText_grows() throws Exception {
+        DirtySpanTracker tracker = new DirtySpanTracker();
+        update(tracker, "short");
+        update(tracker, "a string longer than the initial buffers");
+        update(tracker, "a string longer than the initial buffer!");
+        assertSpan(tracker, 39, 40);
+    }
+
+    private static boolean update(DirtySpanTracker tracker, String text) {
+        char[] chars = ("__" + text).toCharArray();
+        return tracker.update(chars, 2, text.length());
+    }
+
+    private static void assertSpan(DirtySpanTracker tracker, int start, int end) {
+        assertEquals("start", start, tracker.getDirtyStart());
+        assertEquals("end", end, tracker.getDirtyEnd());
+    }
+}
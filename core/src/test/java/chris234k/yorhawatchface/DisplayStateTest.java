@@ -0,0 +1,47 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DisplayStateTest {
+
+    @Test
+    public void is24Hour_changesPatternAndTimeSize() throws Exception {
+        DisplayState state = new DisplayState(true);
+        assertFalse(state.hasTextSize());
+        assertTrue(state.setBaseTextSize(40));
+
+        assertEquals(TimeFormatter.Pattern.HOUR_24_SECONDS, state.getPattern(false));
+        assertEquals(TimeFormatter.Pattern.HOUR_24, state.getPattern(true));
+        assertEquals(40f, state.getTimeTextSize(), 0f);
+
+        assertFalse(state.setIs24Hour(true));
+        assertTrue(state.setIs24Hour(false));
+        assertEquals(TimeFormatter.Pattern.HOUR_12, state.getPattern(true));
+        assertEquals(TextLayout.timeTextSize(40, false), state.getTimeTextSize(), 0f);
+        assertEquals(TextLayout.dateTextSize(40), state.getDateTextSize(), 0f);
+    }
+
+    @Test
+    public void baseTextSize_onlyReportsChanges() throws Exception {
+        DisplayState state = new DisplayState(false);
+        assertTrue(state.setBaseTextSize(40));
+        assertFalse(state.setBaseTextSize(40));
+        assertTrue(state.hasTextSize());
+    }
+
+    @Test
+    public void dateRange_endExclusive() throws Exception {
+        DisplayState state = new DisplayState(true);
+        assertFalse(state.isDateValid(0));
+
+        state.setDateValidRange(1000, 2000);
+        assertFalse(state.isDateValid(999));
+        assertTrue(state.isDateValid(1000));
+        assertFalse(state.isDateValid(2000));
+
+        state.invalidateDate();
+        assertFalse(state.isDateValid(1500));
+    }
+}
@@ -0,0 +1,367 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the render logic headless: interactive ticks once a second, animation frames on a fake
+ * 60 Hz vsync and ambient minutes, all recorded instead of drawn.
+ */
+public class FaceRendererTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final int SIZE = 320;
+    private static final float CHAR_ADVANCE = 10;
+    private static final float TEXT_CENTER_Y = -15;
+
+    private long mStart;
+    private ManualFrameClock mClock;
+    private RecordingRenderTarget mTarget;
+    private FaceRenderer mRenderer;
+    private int mMaxCommands, mMinCommands;
+
+    @Before
+    public void setUp() throws Exception {
+        Calendar calendar = new GregorianCalendar(UTC, Locale.US);
+        calendar.clear();
+        calendar.set(2017, Calendar.JUNE, 27, 9, 59, 0);
+        mStart = calendar.getTimeInMillis();
+
+        mClock = new ManualFrameClock();
+        mTarget = new RecordingRenderTarget(CHAR_ADVANCE, TEXT_CENTER_Y);
+        mRenderer = new FaceRenderer(mClock, UTC, Locale.US, true);
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+
+        // Animation frames draw through the clock, like invalidate() on the watch
+        mClock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                render(false);
+            }
+        });
+        mMinCommands = Integer.MAX_VALUE;
+    }
+
+    @Test
+    public void interactiveFrame_backgroundAndTwoStrings() throws Exception {
+        render(false);
+
+        assertEquals(3, mTarget.getCommandCount());
+        assertEquals(RecordingRenderTarget.COMMAND_BACKGROUND, mTarget.getType(0));
+        assertEquals("09:59:00", mTarget.findText(RenderTarget.TEXT_TIME));
+        assertEquals("TUE 27", mTarget.findText(RenderTarget.TEXT_DATE));
+
+        // Centered: (320 - 8 chars * 10) / 2, baseline 160 + 15, date 10% of the height below
+        assertEquals(120f, mTarget.getX(1), 0f);
+        assertEquals(175f, mTarget.getY(1), 0f);
+        assertEquals(160f, mTarget.getX(2), 0f);
+        assertEquals(207f, mTarget.getY(2), 0.001f);
+        assertEquals(RenderTarget.ALIGN_CENTER, mTarget.getAlign(2));
+    }
+
+    @Test
+    public void ambientFrame_blackAndShortTime() throws Exception {
+        mRenderer.getDisplayState().setIs24Hour(false);
+        mRenderer.render(mTarget, mStart, true, true);
+
+        assertTrue(mTarget.isLowBit());
+        assertEquals(3, mTarget.getCommandCount());
+        assertEquals(RecordingRenderTarget.COMMAND_COLOR, mTarget.getType(0));
+        assertEquals(FaceRenderer.COLOR_AMBIENT_BACKGROUND, mTarget.getArg(0));
+        assertEquals("9:59 AM", mTarget.findText(RenderTarget.TEXT_TIME));
+    }
+
+    @Test
+    public void date_rollsOverAtMidnight() throws Exception {
+        long midnight = mStart + TimeUnit.HOURS.toMillis(14) + TimeUnit.MINUTES.toMillis(1);
+        mRenderer.render(mTarget, midnight - 1, true, false);
+        assertEquals("TUE 27", mTarget.findText(RenderTarget.TEXT_DATE));
+        assertEquals(midnight, mRenderer.getDisplayState().getDateEnd());
+
+        mRenderer.render(mTarget, midnight, true, false);
+        assertEquals("WED 28", mTarget.findText(RenderTarget.TEXT_DATE));
+
+        // Clock set back a day
+        mRenderer.render(mTarget, mStart, true, false);
+        assertEquals("TUE 27", mTarget.findText(RenderTarget.TEXT_DATE));
+    }
+
+    @Test
+    public void timeZoneChange_formatsDateAgain() throws Exception {
+        long lateEvening = mStart + TimeUnit.HOURS.toMillis(12);
+        mRenderer.render(mTarget, lateEvening, true, false);
+        assertEquals("TUE 27", mTarget.findText(RenderTarget.TEXT_DATE));
+
+        mRenderer.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+        mRenderer.render(mTarget, lateEvening, true, false);
+        assertEquals("WED 28", mTarget.findText(RenderTarget.TEXT_DATE));
+        assertEquals("06:59", mTarget.findText(RenderTarget.TEXT_TIME));
+    }
+
+    @Test
+    public void settingChange_switchesPatternWithoutDateWork() throws Exception {
+        mRenderer.render(mTarget, mStart, false, false);
+        assertEquals("09:59:00", mTarget.findText(RenderTarget.TEXT_TIME));
+
+        assertTrue(mRenderer.getDisplayState().setIs24Hour(false));
+        mRenderer.render(mTarget, mStart + 1000, false, false);
+        assertEquals("9:59:01 AM", mTarget.findText(RenderTarget.TEXT_TIME));
+        assertTrue(mRenderer.getDisplayState().isDateValid(mStart + 1000));
+    }
+
+    @Test
+    public void partialFrame_clipsToChangedSeconds() throws Exception {
+        mTarget.setRetainsFrames(true);
+        render(false);
+        assertEquals(3, mTarget.getCommandCount());
+
+        mClock.advance(1000);
+        render(false);
+        assertEquals(5, mTarget.getCommandCount());
+        assertEquals(RecordingRenderTarget.COMMAND_CLIP, mTarget.getType(0));
+        assertEquals(RecordingRenderTarget.COMMAND_BACKGROUND, mTarget.getType(1));
+        assertEquals(RecordingRenderTarget.COMMAND_CLEAR_CLIP, mTarget.getType(4));
+
+        // The last digit, from 120 + 7 chars, padded by a tenth of the 30px text height
+        assertEquals(187f, mTarget.getX(0), 0.001f);
+        assertEquals(203f, mTarget.getRight(0), 0.001f);
+        assertEquals(142f, mTarget.getY(0), 0.001f);
+        assertEquals(178f, mTarget.getBottom(0), 0.001f);
+        assertEquals("09:59:01", mTarget.findText(RenderTarget.TEXT_TIME));
+    }
+
+    @Test
+    public void partialFrame_nothingChangedDrawsNothing() throws Exception {
+        mTarget.setRetainsFrames(true);
+        render(false);
+        render(false);
+        assertEquals(0, mTarget.getCommandCount());
+    }
+
+    @Test
+    public void partialFrame_fullFallbacks() throws Exception {
+        mTarget.setRetainsFrames(true);
+        render(false);
+
+        // Mode change
+        mClock.advance(1000);
+        render(true);
+        assertEquals(3, mTarget.getCommandCount());
+
+        // Layout change
+        mRenderer.invalidateLayout();
+        mClock.advance(60000);
+        render(true);
+        assertEquals(3, mTarget.getCommandCount());
+
+        // Target lost its frame
+        mTarget.setRetainsFrames(false);
+        mTarget.setRetainsFrames(true);
+        mClock.advance(60000);
+        render(true);
+        assertEquals(3, mTarget.getCommandCount());
+
+        mClock.advance(60000);
+        render(true);
+        assertEquals(5, mTarget.getCommandCount());
+    }
+
+    @Test
+    public void proportionalDigits_centeredByInkEveryFrame() throws Exception {
+        // Ones are half as wide, every glyph's ink is inset from its advance by a pixel
+        String charset = "0123456789:";
+        int length = charset.length();
+        float[] advances = new float[length], lefts = new float[length], tops = new float[length];
+        float[] rights = new float[length], bottoms = new float[length];
+        for (int i = 0; i < length; i++) {
+            advances[i] = charset.charAt(i) == '1' ? 5 : 10;
+            lefts[i] = 1;
+            rights[i] = advances[i] - 1;
+            tops[i] = -30;
+        }
+        mTarget.setGlyphMetrics(GlyphMetrics.of(charset.toCharArray(), advances, lefts, tops, rights, bottoms));
+        mTarget.setRetainsFrames(true);
+
+        render(false);
+        assertEquals("09:59:00", mTarget.findText(RenderTarget.TEXT_TIME));
+        assertEquals(120f, mTarget.getX(1), 0.001f);
+
+        // Ink from 1 to 74, centered on 160
+        mClock.advance(1000);
+        render(false);
+        assertEquals("09:59:01", mTarget.findText(RenderTarget.TEXT_TIME));
+        int time = mTarget.getCommandCount() - 3;
+        assertEquals(122.5f, mTarget.getX(time), 0.001f);
+
+        // The whole string moved, both positions are repainted
+        assertEquals(RecordingRenderTarget.COMMAND_CLIP, mTarget.getType(0));
+        assertEquals(117f, mTarget.getX(0), 0.001f);
+        assertEquals(203f, mTarget.getRight(0), 0.001f);
+    }
+
+    @Test
+    public void partialFrames_coverMostOfAMinute() throws Exception {
+        mTarget.setRetainsFrames(true);
+        runInteractive(TimeUnit.MINUTES.toMillis(10));
+
+        // Only the first frame is full, seconds ticks and glitch steps are partial
+        assertEquals(mTarget.getFrames() - 1, mTarget.getPartialFrames());
+        assertTrue(mMaxCommands <= 10);
+    }
+
+    @Test
+    public void chips_drawnUnderTheText() throws Exception {
+        mRenderer.setChip(1, ChipData.shortText("1200", "STEPS"));
+        render(false);
+
+        assertEquals(4, mTarget.getCommandCount());
+        assertEquals(RecordingRenderTarget.COMMAND_CHIP, mTarget.getType(1));
+        assertEquals(0, mTarget.countChips(0));
+        assertEquals(1, mTarget.getArg(1));
+        assertEquals("1200", mTarget.getChip(1).getText());
+
+        // Two 96px chips 12.8px apart, centered, the second from 166.4
+        assertEquals(166.4f, mTarget.getX(1), 0.001f);
+        assertEquals(262.4f, mTarget.getRight(1), 0.001f);
+        assertEquals(57.6f, mTarget.getY(1), 0.001f);
+        assertEquals(89.6f, mTarget.getBottom(1), 0.001f);
+
+        assertEquals(1, mRenderer.chipAt(200, 70));
+        assertEquals(-1, mRenderer.chipAt(100, 70));
+    }
+
+    @Test
+    public void chips_partialFrameOnlyWhenDataChanges() throws Exception {
+        mTarget.setRetainsFrames(true);
+        mRenderer.setChip(0, ChipData.rangedValue("80%", "BAT", 80, 0, 100));
+        render(false);
+
+        assertFalse(mRenderer.setChip(0, ChipData.rangedValue("80%", "BAT", 80, 0, 100)));
+        render(false);
+        assertEquals(0, mTarget.getCommandCount());
+
+        assertTrue(mRenderer.setChip(0, ChipData.rangedValue("79%", "BAT", 79, 0, 100)));
+        render(false);
+        assertEquals(6, mTarget.getCommandCount());
+        assertEquals(RecordingRenderTarget.COMMAND_CLIP, mTarget.getType(0));
+        assertEquals(57.6f, mTarget.getX(0), 0.001f);
+        assertEquals(153.6f, mTarget.getRight(0), 0.001f);
+        assertEquals("79%", mTarget.getChip(2).getText());
+
+        render(false);
+        assertEquals(0, mTarget.getCommandCount());
+    }
+
+    @Test
+    public void interactiveMinutes_animateEveryTenSeconds() throws Exception {
+        runInteractive(TimeUnit.MINUTES.toMillis(10));
+
+        // One background and one of each string on every frame, animating or not
+        assertEquals(3, mMinCommands);
+        assertEquals(3, mMaxCommands);
+
+        // 600 ticks, plus animation frames: the time string animates the chars that changed since
+        // the last glitch, at least the 2 seconds digits * 3 frames
+        long animations = TimeUnit.MINUTES.toSeconds(10) / 10;
+        long ticks = TimeUnit.MINUTES.toSeconds(10);
+        assertTrue("frames " + mTarget.getFrames(), mTarget.getFrames() > ticks + animations * 5);
+        assertTrue("frames " + mTarget.getFrames(), mTarget.getFrames() < ticks + animations * 12);
+        assertEquals(mTarget.getFrames() * 3, mTarget.getTotalCommands());
+
+        // Still centered after every tick
+        assertEquals(120f, mTarget.getX(1), 0f);
+    }
+
+    @Test
+    public void animationFrames_drawGlitchedText() throws Exception {
+        // Second 9 triggers, the animation starts a second later
+        runInteractive(TimeUnit.SECONDS.toMillis(10));
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL_MS * 2);
+
+        assertTrue(mRenderer.isAnimating());
+        String time = mTarget.findText(RenderTarget.TEXT_TIME);
+        assertTrue(time, time.length() < "09:59:10".length());
+    }
+
+    @Test
+    public void animationFrames_typeOutTheTimeTheyPlayAt() throws Exception {
+        final List<String> drawn = new ArrayList<>();
+        mClock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                render(false);
+                if (mRenderer.isAnimating()) {
+                    drawn.add(mTarget.findText(RenderTarget.TEXT_TIME));
+                }
+            }
+        });
+        // Requested at second 9, plays at second 10
+        runInteractive(TimeUnit.SECONDS.toMillis(15));
+
+        assertFalse(drawn.isEmpty());
+        for (String time : drawn) {
+            // Everything before the glitching character is already correct
+            assertTrue(time, "09:59:10".startsWith(time.substring(0, time.length() - 1)));
+        }
+        assertEquals("09:59:1", drawn.get(drawn.size() - 1).substring(0, 7));
+    }
+
+    @Test
+    public void steadyState_framesDontAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm up, lets buffers grow and the JIT settle
+        mTarget.setRetainsFrames(true);
+        runInteractive(TimeUnit.MINUTES.toMillis(20));
+        runAmbient(TimeUnit.MINUTES.toMillis(30));
+        threads.getThreadAllocatedBytes(threadId);
+
+        long frames = mTarget.getFrames();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        runInteractive(TimeUnit.MINUTES.toMillis(20));
+        runAmbient(TimeUnit.MINUTES.toMillis(30));
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        frames = mTarget.getFrames() - frames;
+
+        assertTrue(frames > 1000);
+        assertEquals("bytes per frame", 0, allocated / frames);
+    }
+
+    /**
+     * Once a second ticks, as the engine's update timer does. The timer skips its draw while the
+     * frame clock is running.
+     */
+    private void runInteractive(long millis) {
+        for (long elapsed = 0; elapsed < millis; elapsed += TimeUnit.SECONDS.toMillis(1)) {
+            if (!mClock.isRunning()) {
+                render(false);
+            }
+            mClock.advance(TimeUnit.SECONDS.toMillis(1));
+        }
+    }
+
+    private void runAmbient(long millis) {
+        mRenderer.stopAnimations();
+        for (long elapsed = 0; elapsed < millis; elapsed += TimeUnit.MINUTES.toMillis(1)) {
+            render(true);
+            mClock.advance(TimeUnit.MINUTES.toMillis(1));
+        }
+    }
+
+    private void render(boolean ambient) {
+        mRenderer.render(mTarget, mStart + mClock.now(), ambient, ambient);
+        mMaxCommands = Math.max(mMaxCommands, mTarget.getCommandCount());
+        mMinCommands = Math.min(mMinCommands, mTarget.getCommandCount());
+    }
+}
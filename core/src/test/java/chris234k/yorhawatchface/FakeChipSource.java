@@ -0,0 +1,76 @@
+package chris234k.yorhawatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for complication providers in tests. Slot 0 is a draining battery, slot 1 a step count
+ * that grows in bursts, both changing at roughly the rate the real providers do.
+ *
+ * Deterministic for a given time. Returns the same instance while a chip's value is unchanged, so
+ * polling it every second doesn't allocate.
+ */
+public class FakeChipSource {
+    public static final int SLOT_BATTERY = 0;
+    public static final int SLOT_STEPS = 1;
+    public static final int SLOT_COUNT = 2;
+
+    // Battery drops a percent every 6 minutes from a full charge, recharging when empty
+    private static final long BATTERY_STEP_MS = TimeUnit.MINUTES.toMillis(6);
+    // Steps are reported every 2 minutes, and only while walking, 10 minutes of every half hour
+    private static final long STEPS_UPDATE_MS = TimeUnit.MINUTES.toMillis(2);
+    private static final long WALK_PERIOD_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long WALK_LENGTH_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int STEPS_PER_UPDATE = 220;
+
+    private final ChipData[] mChips = new ChipData[SLOT_COUNT];
+    private final long[] mValues = {-1, -1};
+
+    /**
+     * The chip for slot at nowMillis.
+     */
+    public ChipData getChip(int slot, long nowMillis) {
+        long value = slot == SLOT_BATTERY ? batteryAt(nowMillis) : stepsAt(nowMillis);
+        if (value != mValues[slot] || mChips[slot] == null) {
+            mValues[slot] = value;
+            mChips[slot] = slot == SLOT_BATTERY
+                    ? ChipData.rangedValue(value + "%", "BAT", value, 0, 100)
+                    : ChipData.shortText(Long.toString(value), "STEPS");
+        }
+        return mChips[slot];
+    }
+
+    /**
+     * How many times slot's value changes between the two times, for checking cache misses.
+     */
+    public static long changesBetween(int slot, long startMillis, long endMillis) {
+        long changes = 0;
+        long last = valueAt(slot, startMillis);
+        // Values only change on update boundaries
+        long step = slot == SLOT_BATTERY ? BATTERY_STEP_MS : STEPS_UPDATE_MS;
+        for (long time = startMillis - startMillis % step + step; time <= endMillis; time += step) {
+            long value = valueAt(slot, time);
+            if (value != last) {
+                changes++;
+                last = value;
+            }
+        }
+        return changes;
+    }
+
+    private static long valueAt(int slot, long timeMillis) {
+        return slot == SLOT_BATTERY ? batteryAt(timeMillis) : stepsAt(timeMillis);
+    }
+
+    private static long batteryAt(long timeMillis) {
+        return 100 - (timeMillis / BATTERY_STEP_MS) % 101;
+    }
+
+    private static long stepsAt(long timeMillis) {
+        long day = TimeUnit.DAYS.toMillis(1);
+        long sinceMidnight = timeMillis % day;
+        long walks = sinceMidnight / WALK_PERIOD_MS;
+        long intoWalk = Math.min(sinceMidnight % WALK_PERIOD_MS, WALK_LENGTH_MS);
+        long updatesPerWalk = WALK_LENGTH_MS / STEPS_UPDATE_MS;
+        return (walks * updatesPerWalk + intoWalk / STEPS_UPDATE_MS) * STEPS_PER_UPDATE;
+    }
+}
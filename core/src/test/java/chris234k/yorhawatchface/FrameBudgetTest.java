@@ -0,0 +1,57 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameBudgetTest {
+
+    @Test
+    public void fullRate_everyVsync() throws Exception {
+        FrameBudget budget = new FrameBudget(FrameBudget.FPS_FULL);
+        assertEquals(60, budget.getFps());
+        assertEquals(0, budget.getFrameIntervalMillis());
+    }
+
+    @Test
+    public void configuredRate_interval() throws Exception {
+        FrameBudget budget = new FrameBudget(FrameBudget.FPS_REDUCED);
+        assertEquals(33, budget.getFrameIntervalMillis());
+        budget.setMaxFps(FrameBudget.FPS_LOW);
+        assertEquals(50, budget.getFrameIntervalMillis());
+    }
+
+    @Test
+    public void lowBattery_dropsUnlessCharging() throws Exception {
+        FrameBudget budget = new FrameBudget(FrameBudget.FPS_FULL);
+        budget.setBattery(FrameBudget.LOW_BATTERY_PERCENT + 1, false);
+        assertEquals(60, budget.getFps());
+
+        budget.setBattery(FrameBudget.LOW_BATTERY_PERCENT, false);
+        assertTrue(budget.isLowBattery());
+        assertEquals(FrameBudget.FPS_REDUCED, budget.getFps());
+
+        budget.setBattery(FrameBudget.LOW_BATTERY_PERCENT, true);
+        assertEquals(60, budget.getFps());
+    }
+
+    @Test
+    public void powerSave_lowestRate() throws Exception {
+        FrameBudget budget = new FrameBudget(FrameBudget.FPS_FULL);
+        budget.setPowerSave(true);
+        budget.setBattery(5, false);
+        assertEquals(FrameBudget.FPS_LOW, budget.getFps());
+    }
+
+    @Test
+    public void neverRaisesConfiguredRate() throws Exception {
+        FrameBudget budget = new FrameBudget(10);
+        budget.setPowerSave(true);
+        assertEquals(10, budget.getFps());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRate_throws() throws Exception {
+        new FrameBudget(0);
+    }
+}
@@ -0,0 +1,148 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameClockTest {
+    private ManualFrameClock mClock;
+    private int mInvalidates;
+
+    @Before
+    public void setUp() throws Exception {
+        mClock = new ManualFrameClock();
+        mClock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                mInvalidates++;
+            }
+        });
+    }
+
+    @Test
+    public void twoWriters_stepTogetherWithOneInvalidatePerFrame() throws Exception {
+        final List<String> timeSteps = new ArrayList<>();
+        final List<String> dateSteps = new ArrayList<>();
+        final GlitchTextWriter timeWriter = new GlitchTextWriter(mClock, "x");
+        final GlitchTextWriter dateWriter = new GlitchTextWriter(mClock, "y");
+
+        // Records what would be drawn, after both writers have stepped
+        mClock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                mInvalidates++;
+                timeSteps.add(timeWriter.getTextValue());
+                dateSteps.add(dateWriter.getTextValue());
+            }
+        });
+
+        timeWriter.animateText("12", 1000, null);
+        dateWriter.animateText("AB", 1000, null);
+
+        // Nothing happens during the delay
+        assertEquals(0, mClock.advance(999));
+        assertEquals(0, mInvalidates);
+
+        int frames = mClock.advance(1000);
+        assertEquals(6, frames);
+        assertEquals(6, mInvalidates);
+        assertEquals(java.util.Arrays.asList("x", "x", "1", "1x", "1x", "11"), timeSteps);
+        assertEquals(java.util.Arrays.asList("y", "y", "A", "Ay", "Ay", "AA"), dateSteps);
+
+        assertFalse(timeWriter.getIsAnimating());
+        assertFalse(dateWriter.getIsAnimating());
+        assertFalse(mClock.isRunning());
+        assertFalse(mClock.isFramePosted());
+    }
+
+    @Test
+    public void listenerStartingLater_ignoresEarlierFrames() throws Exception {
+        GlitchTextWriter first = new GlitchTextWriter(mClock, "x");
+        GlitchTextWriter second = new GlitchTextWriter(mClock, "x");
+
+        first.animateText("1234", 0, null);
+        second.animateText("1", 5 * ManualFrameClock.FRAME_INTERVAL_MS, null);
+
+        // First frame, only the first writer has started
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL_MS - 1);
+        assertEquals("x", first.getTextValue());
+        assertEquals("1", second.getTextValue());
+
+        mClock.advance(1000);
+        assertFalse(first.getIsAnimating());
+        assertFalse(second.getIsAnimating());
+        assertEquals(12, mInvalidates);
+    }
+
+    @Test
+    public void frameInterval_fewerFramesSameDuration() throws Exception {
+        long[] fullRate = animateWithBudget(FrameBudget.FPS_FULL);
+        long[] reduced = animateWithBudget(FrameBudget.FPS_REDUCED);
+        long[] low = animateWithBudget(FrameBudget.FPS_LOW);
+
+        // Frames, then completion time
+        assertEquals(24, fullRate[0]);
+        assertEquals(13, reduced[0]);
+        assertEquals(9, low[0]);
+        assertTrue(Math.abs(reduced[1] - fullRate[1]) <= 1000 / FrameBudget.FPS_REDUCED);
+        assertTrue(Math.abs(low[1] - fullRate[1]) <= 1000 / FrameBudget.FPS_LOW);
+
+        // Skipping by budget isn't counted as late
+        assertEquals(0, low[2]);
+    }
+
+    private long[] animateWithBudget(int fps) {
+        ManualFrameClock clock = new ManualFrameClock();
+        clock.setFrameInterval(new FrameBudget(fps).getFrameIntervalMillis());
+        FrameStats stats = new FrameStats(0);
+        final long[] result = new long[3];
+        final ManualFrameClock completionClock = clock;
+
+        GlitchTextWriter writer = new GlitchTextWriter(clock, "x");
+        writer.setFrameStats(stats);
+        writer.animateText("10:00:00", 0, new ICompletionCallback() {
+            @Override
+            public void onComplete() {
+                result[1] = completionClock.now();
+            }
+        });
+        result[0] = clock.advance(1000);
+        result[2] = stats.getSkippedSteps();
+        return result;
+    }
+
+    @Test
+    public void completionCallback_firesOnLastFrame() throws Exception {
+        final int[] completions = {0};
+        GlitchTextWriter writer = new GlitchTextWriter(mClock, "x");
+        writer.animateText("10:00", 0, new ICompletionCallback() {
+            @Override
+            public void onComplete() {
+                completions[0]++;
+            }
+        });
+
+        assertEquals(15, mClock.advance(1000));
+        assertEquals(1, completions[0]);
+        assertEquals("10:01", writer.getTextValue());
+    }
+
+    @Test
+    public void stopAnimation_stopsFrames() throws Exception {
+        GlitchTextWriter writer = new GlitchTextWriter(mClock, "x");
+        writer.animateText("10:00:00", 0, null);
+
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL_MS * 3);
+        writer.stopAnimation();
+
+        assertFalse(mClock.isRunning());
+        assertFalse(mClock.isFramePosted());
+        int invalidates = mInvalidates;
+        assertEquals(0, mClock.advance(1000));
+        assertEquals(invalidates, mInvalidates);
+    }
+}
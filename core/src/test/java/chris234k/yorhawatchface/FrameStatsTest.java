@@ -0,0 +1,147 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameStatsTest {
+
+    @Test
+    public void histogram_bucketsAndPercentiles() throws Exception {
+        Histogram histogram = new Histogram(10, 20, 30);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(4, histogram.getBucketCount());
+        assertEquals(10, histogram.getCount(0));
+        assertEquals(70, histogram.getCount(3));
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(70, histogram.getCountAbove(30));
+        assertEquals(10, histogram.getPercentile(10));
+        assertEquals(100, histogram.getPercentile(99)); // Overflow bucket reports the max
+        assertEquals(50, histogram.getMean());
+    }
+
+    @Test
+    public void histogram_concurrentRecordsAllCounted() throws Exception {
+        final Histogram histogram = new Histogram(1, 2, 3);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i % 5);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getTotalCount());
+        assertEquals(4, histogram.getMax());
+    }
+
+    @Test
+    public void wakeups_ignoreBrokenIntervals() throws Exception {
+        FrameStats stats = new FrameStats(0);
+        stats.recordWakeup(FrameStats.MODE_INTERACTIVE, 1000);
+        stats.recordWakeup(FrameStats.MODE_INTERACTIVE, 2000);
+        stats.breakWakeupInterval();
+        stats.recordWakeup(FrameStats.MODE_INTERACTIVE, 60000);
+        stats.recordWakeup(FrameStats.MODE_INTERACTIVE, 61000);
+
+        assertEquals(2, stats.getWakeupIntervals(FrameStats.MODE_INTERACTIVE).getTotalCount());
+        assertEquals(1000, stats.getWakeupIntervals(FrameStats.MODE_INTERACTIVE).getMax());
+    }
+
+    @Test
+    public void wakeups_keptPerMode() throws Exception {
+        FrameStats stats = new FrameStats(0);
+        stats.recordWakeup(FrameStats.MODE_AMBIENT, 0);
+        stats.recordWakeup(FrameStats.MODE_INTERACTIVE, 1000);
+        stats.recordWakeup(FrameStats.MODE_INTERACTIVE, 2000);
+        stats.recordWakeup(FrameStats.MODE_AMBIENT, 60000);
+
+        Histogram ambient = stats.getWakeupIntervals(FrameStats.MODE_AMBIENT);
+        assertEquals(1, ambient.getTotalCount());
+        assertEquals(60000, ambient.getMax());
+        assertEquals(1, stats.getWakeupIntervals(FrameStats.MODE_INTERACTIVE).getTotalCount());
+        assertEquals(1000, stats.getWakeupIntervals(FrameStats.MODE_INTERACTIVE).getMax());
+        assertEquals(0, stats.getWakeupIntervals(FrameStats.MODE_ANIMATING).getTotalCount());
+    }
+
+    @Test
+    public void lateWriterFrames_countSkippedSteps() throws Exception {
+        FrameStats stats = new FrameStats(0);
+        ManualFrameClock clock = new ManualFrameClock();
+        GlitchTextWriter writer = new GlitchTextWriter(clock, "x", 0);
+        writer.setFrameStats(stats);
+        writer.animateText("12:34", 0, null);
+
+        clock.advance(1);
+        clock.setSuspended(true);
+        clock.advance(50); // Misses the vsyncs at 17, 33 and 50
+        clock.setSuspended(false);
+        clock.advance(1000);
+
+        assertEquals(1, stats.getLateFrames());
+        assertEquals(3, stats.getSkippedSteps());
+    }
+
+    @Test
+    public void record_doesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        FrameStats stats = new FrameStats(0);
+
+        recordFrames(stats, 10000);
+        threads.getThreadAllocatedBytes(threadId);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        recordFrames(stats, 10000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("bytes per frame", 0, allocated / 10000);
+    }
+
+    @Test
+    public void dump_reportsEveryMode() throws Exception {
+        FrameStats stats = new FrameStats(0);
+        stats.recordDraw(FrameStats.MODE_INTERACTIVE, TimeUnit.MILLISECONDS.toNanos(3));
+        stats.recordDraw(FrameStats.MODE_ANIMATING, TimeUnit.MILLISECONDS.toNanos(20));
+        stats.recordDraw(FrameStats.MODE_AMBIENT, TimeUnit.MILLISECONDS.toNanos(1));
+        stats.recordBackgroundDraw(TimeUnit.MICROSECONDS.toNanos(400));
+
+        StringWriter out = new StringWriter();
+        stats.dump(new PrintWriter(out), TimeUnit.HOURS.toMillis(1));
+        String dump = out.toString();
+
+        assertTrue(dump, dump.contains("interactive: 1 frames (1/h), over budget 0"));
+        assertTrue(dump, dump.contains("animating: 1 frames (1/h), over budget 1"));
+        assertTrue(dump, dump.contains("ambient: 1 frames (1/h), over budget 0"));
+        assertTrue(dump, dump.contains("background: 1 draws, mean 400us"));
+        assertEquals("3600s interactive=1/4000us/0/0w animating=1/33333us/1/0w ambient=1/1000us/0/0w late=0 skipped=0",
+                stats.toCompactString(TimeUnit.HOURS.toMillis(1)));
+    }
+
+    private static void recordFrames(FrameStats stats, int frames) {
+        for (int i = 0; i < frames; i++) {
+            stats.recordDraw(i % 3, i * 1000L);
+            stats.recordBackgroundDraw(i * 100L);
+            stats.recordWakeup(i % 3, i * 1000L);
+            if (i % 100 == 0) {
+                stats.recordSkippedSteps(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FrameSwapTest {
+
+    @Test
+    public void publishedFrame_takenForItsKey() throws Exception {
+        FrameSwap<String> swap = new FrameSwap<>("a", "b");
+        assertNull(swap.take(1));
+
+        String back = swap.acquireBack();
+        assertTrue(swap.publish(swap.getEpoch(), 1));
+
+        assertSame(back, swap.take(1));
+        // Stays in front for the same key
+        assertSame(back, swap.take(1));
+        assertNull(swap.take(2));
+    }
+
+    @Test
+    public void earlyFrame_waitsForItsKey() throws Exception {
+        FrameSwap<String> swap = new FrameSwap<>("a", "b");
+        String back = swap.acquireBack();
+        swap.publish(swap.getEpoch(), 2);
+
+        assertNull(swap.take(1));
+        assertSame(back, swap.take(2));
+    }
+
+    @Test
+    public void producer_neverGetsTheFrontBuffer() throws Exception {
+        FrameSwap<String> swap = new FrameSwap<>("a", "b");
+        for (long key = 0; key < 10; key++) {
+            String back = swap.acquireBack();
+            swap.publish(swap.getEpoch(), key);
+            String front = swap.take(key);
+            assertSame(back, front);
+            assertNotSame(front, swap.acquireBack());
+            swap.publish(swap.getEpoch(), -1); // Unwanted frame, left for the producer to reclaim
+        }
+    }
+
+    @Test
+    public void untakenFrame_reclaimedByProducer() throws Exception {
+        FrameSwap<String> swap = new FrameSwap<>("a", "b");
+        String back = swap.acquireBack();
+        swap.publish(swap.getEpoch(), 1);
+
+        // Rendered over before the consumer wanted it
+        assertSame(back, swap.acquireBack());
+        assertNull(swap.take(1));
+        swap.publish(swap.getEpoch(), 2);
+        assertSame(back, swap.take(2));
+    }
+
+    @Test
+    public void modeChange_whileFrameInFlight_frameDropped() throws Exception {
+        FrameSwap<String> swap = new FrameSwap<>("a", "b");
+        long epoch = swap.getEpoch();
+        swap.acquireBack();
+
+        // e.g. entering ambient while the render thread draws the next interactive second
+        swap.advanceEpoch();
+
+        assertFalse(swap.publish(epoch, 1));
+        assertNull(swap.take(1));
+    }
+
+    @Test
+    public void modeChange_afterPublish_frontDropped() throws Exception {
+        FrameSwap<String> swap = new FrameSwap<>("a", "b");
+        swap.acquireBack();
+        swap.publish(swap.getEpoch(), 1);
+        assertNotNull(swap.take(1));
+
+        // e.g. the face went invisible and came back, the old frame is no good
+        swap.advanceEpoch();
+        assertNull(swap.take(1));
+
+        swap.acquireBack();
+        swap.publish(swap.getEpoch(), 1);
+        assertNotNull(swap.take(1));
+    }
+
+    @Test
+    public void concurrent_consumerNeverSeesAFrameBeingWritten() throws Exception {
+        // Each buffer holds its key in two halves, written one after the other. A torn read means
+        // the consumer got a buffer the producer was writing.
+        final long[][] buffers = {new long[2], new long[2]};
+        final FrameSwap<long[]> swap = new FrameSwap<>(buffers[0], buffers[1]);
+        final AtomicLong wantedKey = new AtomicLong();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long lastEpoch = -1, lastKey = -1;
+                while (running.get()) {
+                    // Renders each request once, like the render thread's queue
+                    long epoch = swap.getEpoch();
+                    long key = wantedKey.get();
+                    if (epoch == lastEpoch && key == lastKey) {
+                        Thread.yield();
+                        continue;
+                    }
+                    lastEpoch = epoch;
+                    lastKey = key;
+                    long[] back = swap.acquireBack();
+                    back[0] = key;
+                    Thread.yield();
+                    back[1] = key;
+                    swap.publish(epoch, key);
+                }
+            }
+        });
+        producer.start();
+
+        int shown = 0;
+        long deadline = System.currentTimeMillis() + 500;
+        while (System.currentTimeMillis() < deadline && failure.get() == null) {
+            long key = wantedKey.get();
+            long[] front = swap.take(key);
+            if (front != null) {
+                long first = front[0];
+                long second = front[1];
+                if (first != key || second != key) {
+                    failure.set("wanted " + key + ", saw " + first + "/" + second);
+                }
+                shown++;
+                wantedKey.incrementAndGet();
+            }
+            if ((shown & 63) == 63) {
+                swap.advanceEpoch();
+            }
+        }
+        running.set(false);
+        producer.join();
+
+        assertNull(failure.get(), failure.get());
+        assertTrue("shown " + shown, shown > 10);
+    }
+}
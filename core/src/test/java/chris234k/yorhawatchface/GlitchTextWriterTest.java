@@ -0,0 +1,152 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GlitchTextWriterTest {
+
+    @Test
+    public void sameSeed_sameProgression() throws Exception {
+        assertEquals(record(42), record(42));
+    }
+
+    @Test
+    public void progression_endsWithFullText() throws Exception {
+        List<String> steps = record(7);
+        // Three frames per character
+        assertEquals(24, steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            String step = steps.get(i);
+            assertEquals(i / 3 + 1, step.length());
+            // Everything before the glitching character is already correct
+            assertTrue(step, "12:34:56".startsWith(step.substring(0, step.length() - 1)));
+        }
+    }
+
+    @Test
+    public void charArrayCharset_skipsSpaces() throws Exception {
+        ManualFrameClock clock = new ManualFrameClock();
+        GlitchTextWriter writer = new GlitchTextWriter(clock, "", 1);
+        char[] date = "MON 3".toCharArray();
+        writer.setRandomCharacterSet(date, 0, date.length);
+        writer.animateText(date, 0, date.length, 0, null);
+
+        while (writer.getIsAnimating()) {
+            clock.advance(ManualFrameClock.FRAME_INTERVAL_MS);
+            CharSequence text = writer.getTextView();
+            assertFalse(text.toString(), text.charAt(text.length() - 1) == ' ');
+        }
+    }
+
+    @Test
+    public void steadyState_stepsDontAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        ManualFrameClock clock = new ManualFrameClock();
+        GlitchTextWriter timeWriter = new GlitchTextWriter(clock, "1234567890:", 3);
+        GlitchTextWriter dateWriter = new GlitchTextWriter(clock, "", 4);
+        char[] time = "12:34:56 PM".toCharArray();
+        char[] date = "WED 28".toCharArray();
+
+        // Warm up, lets buffers grow and the JIT settle
+        int steps = animate(clock, timeWriter, dateWriter, time, date, 2000);
+        threads.getThreadAllocatedBytes(threadId);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        steps = animate(clock, timeWriter, dateWriter, time, date, 2000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("bytes per step", 0, allocated / steps);
+    }
+
+    @Test
+    public void changedTransition_onlyGlitchesChangedSpan() throws Exception {
+        ManualFrameClock clock = new ManualFrameClock();
+        GlitchTextWriter writer = new GlitchTextWriter(clock, "1234567890:", 5);
+        writer.setTransition(GlitchTextWriter.TRANSITION_CHANGED);
+
+        // Nothing to diff against, the first one types out everything
+        assertEquals(24, play(clock, writer, "10:11:49").size());
+
+        List<String> steps = play(clock, writer, "10:11:59");
+        assertEquals(6, steps.size());
+        for (String step : steps) {
+            // The unchanged prefix never moves
+            assertTrue(step, step.startsWith("10:11:"));
+        }
+        assertEquals("10:11:5", steps.get(2));
+
+        // A new minute reaches further back
+        assertEquals(12, play(clock, writer, "10:12:09").size());
+    }
+
+    @Test
+    public void changedTransition_unchangedTextGlitchesLastChar() throws Exception {
+        ManualFrameClock clock = new ManualFrameClock();
+        GlitchTextWriter writer = new GlitchTextWriter(clock, "TUE27", 6);
+        writer.setTransition(GlitchTextWriter.TRANSITION_CHANGED);
+
+        play(clock, writer, "TUE 27");
+        List<String> steps = play(clock, writer, "TUE 27");
+        assertEquals(3, steps.size());
+        assertTrue(steps.get(0), steps.get(0).startsWith("TUE 2"));
+
+        // Shorter text diffs against what's there
+        steps = play(clock, writer, "TUE 2");
+        assertEquals(3, steps.size());
+        assertEquals("TUE 2", steps.get(steps.size() - 1));
+    }
+
+    private static List<String> play(ManualFrameClock clock, final GlitchTextWriter writer, String text) {
+        final List<String> steps = new ArrayList<>();
+        clock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                steps.add(writer.getTextValue());
+            }
+        });
+        // Starts on a whole second, which is also a vsync, so every step gets a frame
+        clock.advance(1000 - clock.now() % 1000);
+        writer.animateText(text, 0, null);
+        clock.advance(1000);
+        assertFalse(writer.getIsAnimating());
+        clock.setInvalidator(null);
+        return steps;
+    }
+
+    private static int animate(ManualFrameClock clock, GlitchTextWriter timeWriter, GlitchTextWriter dateWriter,
+                               char[] time, char[] date, int animations) {
+        int steps = 0;
+        for (int i = 0; i < animations; i++) {
+            dateWriter.setRandomCharacterSet(date, 0, date.length);
+            timeWriter.animateText(time, 0, time.length, 0, null);
+            dateWriter.animateText(date, 0, date.length, 0, null);
+            while (timeWriter.getIsAnimating() || dateWriter.getIsAnimating()) {
+                steps += clock.advance(ManualFrameClock.FRAME_INTERVAL_MS);
+            }
+        }
+        return steps;
+    }
+
+    private static List<String> record(long seed) {
+        ManualFrameClock clock = new ManualFrameClock();
+        final GlitchTextWriter writer = new GlitchTextWriter(clock, "1234567890:", seed);
+        final List<String> steps = new ArrayList<>();
+        clock.setInvalidator(new FrameClock.Invalidator() {
+            @Override
+            public void invalidate() {
+                steps.add(writer.getTextValue());
+            }
+        });
+
+        writer.animateText("12:34:56", 0, null);
+        clock.advance(1000);
+        return steps;
+    }
+}
@@ -0,0 +1,99 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GlitchTimelineTest {
+
+    @Test
+    public void compile_matchesNieRProgression() throws Exception {
+        GlitchTimeline timeline = compile("12", "x", 0);
+
+        assertEquals(6, timeline.getFrameCount());
+        String[] expected = {"x", "x", "1", "1x", "1x", "11"};
+        for (int frame = 0; frame < expected.length; frame++) {
+            assertEquals(expected[frame], frameText(timeline, frame));
+        }
+    }
+
+    @Test
+    public void frameAt_followsVsync() throws Exception {
+        GlitchTimeline timeline = compile("12:34:56", "0123456789:", 1);
+
+        // 60 Hz vsync lands on 0, 17, 33, 50, 67...
+        for (int frame = 0; frame < timeline.getFrameCount(); frame++) {
+            long vsync = Math.round(frame * 1000.0 / GlitchTimeline.FRAMES_PER_SECOND);
+            assertEquals(frame, timeline.frameAt(vsync));
+        }
+        assertEquals(400, timeline.getDurationMillis());
+    }
+
+    @Test
+    public void lateFrame_writerJumpsToCurrentState() throws Exception {
+        ManualFrameClock clock = new ManualFrameClock();
+        GlitchTextWriter writer = new GlitchTextWriter(clock, "x", 2);
+        writer.animateText("12:34", 0, null);
+
+        // First frame, then nothing for 100ms (6 missed vsyncs)
+        clock.advance(1);
+        assertEquals("x", writer.getTextValue());
+        clock.setSuspended(true);
+        clock.advance(100);
+        clock.setSuspended(false);
+        clock.advance(ManualFrameClock.FRAME_INTERVAL_MS);
+
+        GlitchTimeline timeline = compile("12:34", "x", 2);
+        int frame = timeline.frameAt(clock.now());
+        assertTrue(frame > 6);
+        assertEquals(frameText(timeline, frame), writer.getTextValue());
+
+        // Total duration doesn't stretch
+        clock.advance(timeline.getDurationMillis() - clock.now());
+        assertFalse(writer.getIsAnimating());
+    }
+
+    @Test
+    public void recompile_sameSeedSameFrames() throws Exception {
+        GlitchTimeline a = compile("WED 28", "WED28", 9);
+        GlitchTimeline b = new GlitchTimeline();
+        // Longer first, so the shorter compile reuses the buffers
+        char[] longer = "SATURDAY 30".toCharArray();
+        b.compile(longer, 0, longer.length, longer, longer.length, new Random());
+        char[] text = "WED 28".toCharArray();
+        char[] charset = "WED28".toCharArray();
+        b.compile(text, 0, text.length, charset, charset.length, new Random(9));
+
+        assertEquals(a.getFrameCount(), b.getFrameCount());
+        for (int frame = 0; frame < a.getFrameCount(); frame++) {
+            assertEquals(frameText(a, frame), frameText(b, frame));
+        }
+    }
+
+    @Test
+    public void firstIndex_prefixIsStatic() throws Exception {
+        GlitchTimeline timeline = new GlitchTimeline();
+        char[] text = "12:35".toCharArray();
+        timeline.compile(text, 0, text.length, 3, "x".toCharArray(), 1, new Random(0));
+
+        assertEquals(6, timeline.getFrameCount());
+        String[] expected = {"12:x", "12:x", "12:3", "12:3x", "12:3x", "12:33"};
+        for (int frame = 0; frame < expected.length; frame++) {
+            assertEquals(expected[frame], frameText(timeline, frame));
+        }
+    }
+
+    private static GlitchTimeline compile(String text, String charset, long seed) {
+        GlitchTimeline timeline = new GlitchTimeline();
+        timeline.compile(text.toCharArray(), 0, text.length(), charset.toCharArray(), charset.length(), new Random(seed));
+        return timeline;
+    }
+
+    private static String frameText(GlitchTimeline timeline, int frame) {
+        char[] out = new char[timeline.getLength()];
+        int length = timeline.write(frame, out);
+        return new String(out, 0, length);
+    }
+}
@@ -0,0 +1,88 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlyphMetricsTest {
+
+    private static GlyphMetrics digits() {
+        // "1" is narrow and sits right of center in its advance, ":" hangs below the baseline
+        char[] chars = {'1', '0', ':', '1'};
+        float[] advances = {6, 10, 4, 99};
+        float[] lefts = {2, 1, 1, 0};
+        float[] tops = {-20, -20, -15, 0};
+        float[] rights = {6, 9, 3, 0};
+        float[] bottoms = {0, 0, 2, 0};
+        return GlyphMetrics.of(chars, advances, lefts, tops, rights, bottoms);
+    }
+
+    @Test
+    public void duplicates_keepFirstMeasurement() throws Exception {
+        GlyphMetrics metrics = digits();
+        assertEquals(3, metrics.size());
+        assertEquals(6f, metrics.measure("1".toCharArray(), 0, 1), 0f);
+    }
+
+    @Test
+    public void measure_sumsAdvances() throws Exception {
+        assertEquals(36f, digits().measure("10:10".toCharArray(), 0, 5), 0f);
+        assertEquals(10f, digits().measure("10:10".toCharArray(), 1, 1), 0f);
+    }
+
+    @Test
+    public void ink_fromFirstAndLastGlyph() throws Exception {
+        char[] text = "10:1".toCharArray();
+        GlyphMetrics metrics = digits();
+        assertEquals(2f, metrics.inkLeft(text, 0, 4), 0f);
+        // 6 + 10 + 4, then the last one's right edge
+        assertEquals(26f, metrics.inkRight(text, 0, 4), 0f);
+        assertEquals(160f - 14f, metrics.centeredStart(text, 0, 4, 160f), 0f);
+    }
+
+    @Test
+    public void verticalBounds_coverWholeSet() throws Exception {
+        GlyphMetrics metrics = digits();
+        assertEquals(-20f, metrics.getTop(), 0f);
+        assertEquals(2f, metrics.getBottom(), 0f);
+        assertEquals(-9f, metrics.getCenterY(), 0f);
+    }
+
+    @Test
+    public void unknownCharacters_useWidestGlyph() throws Exception {
+        assertEquals(20f, digits().measure("AB".toCharArray(), 0, 2), 0f);
+    }
+
+    @Test
+    public void monospace_sameBoxForEverything() throws Exception {
+        GlyphMetrics metrics = GlyphMetrics.monospace(10, -30, 0);
+        char[] text = "12:00".toCharArray();
+        assertEquals(50f, metrics.measure(text, 0, 5), 0f);
+        assertEquals(135f, metrics.centeredStart(text, 0, 5, 160f), 0f);
+    }
+
+    @Test
+    public void empty_measuresNothing() throws Exception {
+        char[] text = new char[0];
+        assertEquals(0f, digits().measure(text, 0, 0), 0f);
+        assertEquals(160f, digits().centeredStart(text, 0, 0, 160f), 0f);
+    }
+
+    @Test
+    public void cache_dropsLeastRecentlyUsed() throws Exception {
+        GlyphMetricsCache cache = new GlyphMetricsCache(2);
+        String small = GlyphMetricsCache.key(28f, 1, true, "0123456789:");
+        String large = GlyphMetricsCache.key(40f, 1, true, "0123456789:");
+        String aliased = GlyphMetricsCache.key(40f, 1, false, "0123456789:");
+        GlyphMetrics metrics = digits();
+
+        cache.put(small, metrics);
+        cache.put(large, metrics);
+        assertSame(metrics, cache.get(small));
+        cache.put(aliased, metrics);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(large));
+        assertSame(metrics, cache.get(small));
+    }
+}
@@ -0,0 +1,40 @@
+package chris234k.yorhawatchface;
+
+import java.util.ArrayList;
+
+/**
+ * SettingsTransport straight into a SettingsReceiver, standing in for the Data Layer. Can drop
+ * blobs like a disconnected watch, and answers resync requests from the publisher.
+ */
+public class LoopbackSettingsTransport implements SettingsTransport {
+    private final SettingsReceiver mReceiver;
+    private SettingsPublisher mPublisher;
+    private boolean mConnected = true;
+
+    final ArrayList<byte[]> mSent = new ArrayList<>();
+    int mResyncs;
+
+    public LoopbackSettingsTransport(SettingsReceiver receiver) {
+        mReceiver = receiver;
+    }
+
+    public void setPublisher(SettingsPublisher publisher) {
+        mPublisher = publisher;
+    }
+
+    public void setConnected(boolean connected) {
+        mConnected = connected;
+    }
+
+    @Override
+    public void send(byte[] blob) {
+        mSent.add(blob);
+        if (!mConnected) {
+            return;
+        }
+        if (mReceiver.receive(blob) == SettingsReceiver.RESULT_NEEDS_RESYNC) {
+            mResyncs++;
+            mPublisher.sendFull();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package chris234k.yorhawatchface;
+
+/**
+ * FrameClock on a fake time line, with a 60 Hz vsync.
+ */
+public class ManualFrameClock extends FrameClock {
+    public static final int VSYNC_RATE = 60;
+    // Advancing by this moves at most one frame forward
+    public static final long FRAME_INTERVAL_MS = 1000 / VSYNC_RATE;
+
+    private static class ManualTimeSource implements TimeSource {
+        long mNow;
+
+        @Override
+        public long uptimeMillis() {
+            return mNow;
+        }
+    }
+
+    private final ManualTimeSource mTime;
+    private boolean mFramePosted;
+    private long mFrameDueTime;
+    private long mLastVsync = -1;
+    private boolean mSuspended;
+
+    public ManualFrameClock() {
+        this(new ManualTimeSource());
+    }
+
+    private ManualFrameClock(ManualTimeSource time) {
+        super(time);
+        mTime = time;
+    }
+
+    @Override
+    protected void postFrame(long delayMillis) {
+        mFramePosted = true;
+        mFrameDueTime = mTime.mNow + delayMillis;
+    }
+
+    @Override
+    protected void cancelFrame() {
+        mFramePosted = false;
+    }
+
+    /**
+     * Moves time forward by millis, dispatching every frame that would have been produced.
+     *
+     * @return the number of frames dispatched
+     */
+    public int advance(long millis) {
+        long end = mTime.mNow + millis;
+        int frames = 0;
+        while (mFramePosted && !mSuspended) {
+            // Frames land on the first vsync at or after the due time, never twice on the same vsync
+            long vsync = (mFrameDueTime * VSYNC_RATE + 999) / 1000;
+            vsync = Math.max(vsync, mLastVsync + 1);
+            // A frame that came due while suspended lands on the next vsync from now
+            vsync = Math.max(vsync, (mTime.mNow * VSYNC_RATE + 999) / 1000);
+            long frameTime = Math.round(vsync * 1000.0 / VSYNC_RATE);
+            if (frameTime > end) {
+                break;
+            }
+            mTime.mNow = frameTime;
+            mFramePosted = false;
+            mLastVsync = vsync;
+            dispatchFrame(frameTime);
+            frames++;
+        }
+        mTime.mNow = end;
+        return frames;
+    }
+
+    /**
+     * While suspended, time moves but no frames are produced, like a stalled main thread.
+     */
+    public void setSuspended(boolean suspended) {
+        mSuspended = suspended;
+    }
+
+    public boolean isFramePosted() {
+        return mFramePosted;
+    }
+}
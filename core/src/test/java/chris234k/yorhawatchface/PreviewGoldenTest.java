@@ -0,0 +1,174 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Renders every preview through the same path as the watch, into display lists, and compares them
+ * with src/test/resources/preview_goldens.txt. Run with -DupdateGoldens=true to accept changes.
+ */
+public class PreviewGoldenTest {
+    private static final File GOLDENS = new File("src/test/resources/preview_goldens.txt");
+    private static final File WEAR_DIMENS = new File("../wear/src/main/res/values/dimens.xml");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final float CHAR_ADVANCE = 10;
+    private static final float TEXT_CENTER_Y = -15;
+
+    private static final PreviewBatch.Renderer<String> DISPLAY_LIST = new PreviewBatch.Renderer<String>() {
+        @Override
+        public String render(PreviewSpec spec) {
+            FaceRenderer renderer = PreviewBatch.newFaceRenderer(spec, spec.getBaseTextSizeDp());
+            RecordingRenderTarget target = new RecordingRenderTarget(CHAR_ADVANCE, TEXT_CENTER_Y);
+            renderer.render(target, PreviewSpec.TIME_MILLIS, spec.isAmbient(), false);
+            return target.describeFrame();
+        }
+    };
+
+    @Test
+    public void previews_matchGoldens() throws Exception {
+        List<PreviewSpec> specs = PreviewSpec.all();
+        List<String> frames = renderAll(specs, 4);
+
+        LinkedHashMap<String, String> actual = new LinkedHashMap<>();
+        for (int i = 0; i < specs.size(); i++) {
+            actual.put(specs.get(i).getName(), frames.get(i));
+        }
+
+        if (Boolean.getBoolean("updateGoldens")) {
+            writeGoldens(actual);
+            return;
+        }
+        assertTrue("No goldens at " + GOLDENS.getAbsolutePath() + ", run with -DupdateGoldens=true", GOLDENS.exists());
+        Map<String, String> expected = readGoldens();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, String> entry : actual.entrySet()) {
+            assertEquals(entry.getKey(), expected.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    public void parallelBatch_matchesSerial() throws Exception {
+        List<PreviewSpec> specs = PreviewSpec.all();
+        assertEquals(renderAll(specs, 1), renderAll(specs, 8));
+    }
+
+    @Test
+    public void all_namesAreUnique() throws Exception {
+        List<PreviewSpec> specs = PreviewSpec.all();
+        ArrayList<String> names = new ArrayList<>();
+        for (PreviewSpec spec : specs) {
+            assertFalse(spec.getName(), names.contains(spec.getName()));
+            names.add(spec.getName());
+        }
+        assertEquals(2 * PreviewSpec.SCREENS.length * 2 * 2, names.size());
+    }
+
+    @Test
+    public void baseTextSizes_matchWearDimens() throws Exception {
+        String dimens = readFile(WEAR_DIMENS);
+        for (PreviewSpec spec : PreviewSpec.all()) {
+            String name = spec.isRound() ? "digital_text_size_round" : "digital_text_size";
+            Matcher matcher = Pattern.compile("<dimen name=\"" + name + "\">([0-9.]+)dp</dimen>").matcher(dimens);
+            assertTrue(name + " not found in " + WEAR_DIMENS, matcher.find());
+            assertEquals(spec.getName(), Float.parseFloat(matcher.group(1)), spec.getBaseTextSizeDp(), 0);
+        }
+    }
+
+    @Test
+    public void renderAll_rethrowsFailure() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            PreviewBatch.renderAll(PreviewSpec.all(), new PreviewBatch.Renderer<String>() {
+                @Override
+                public String render(PreviewSpec spec) {
+                    if (spec.isAmbient()) {
+                        throw new IllegalStateException(spec.getName());
+                    }
+                    return spec.getName();
+                }
+            }, executor);
+            fail("Ambient previews should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> renderAll(List<PreviewSpec> specs, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return PreviewBatch.renderAll(specs, DISPLAY_LIST, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String readFile(File file) throws Exception {
+        StringBuilder text = new StringBuilder();
+        Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+        try {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                text.append(buffer, 0, read);
+            }
+        } finally {
+            reader.close();
+        }
+        return text.toString();
+    }
+
+    private static Map<String, String> readGoldens() throws Exception {
+        // "# name" starts each preview, its frame follows
+        LinkedHashMap<String, String> goldens = new LinkedHashMap<>();
+        String name = null;
+        StringBuilder frame = new StringBuilder();
+        for (String line : readFile(GOLDENS).split("\n")) {
+            if (line.startsWith("# ")) {
+                if (name != null) {
+                    goldens.put(name, frame.toString());
+                }
+                name = line.substring(2);
+                frame.setLength(0);
+            } else if (name != null && !line.isEmpty()) {
+                frame.append(line).append('\n');
+            }
+        }
+        if (name != null) {
+            goldens.put(name, frame.toString());
+        }
+        return goldens;
+    }
+
+    private static void writeGoldens(Map<String, String> goldens) throws Exception {
+        GOLDENS.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(GOLDENS), UTF_8);
+        try {
+            for (Map.Entry<String, String> entry : goldens.entrySet()) {
+                writer.write("# " + entry.getKey() + "\n" + entry.getValue() + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
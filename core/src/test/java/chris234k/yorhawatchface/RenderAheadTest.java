@@ -0,0 +1,293 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RenderAheadTest {
+    /**
+     * Runs tasks in due order on the test thread, a Handler on a fake clock.
+     */
+    private static class ManualScheduler implements RenderAhead.Scheduler, WakeupTimeline.WallClock {
+        private final ArrayList<Runnable> mTasks = new ArrayList<>();
+        private final ArrayList<Long> mDue = new ArrayList<>();
+        long mNow;
+
+        @Override
+        public void post(Runnable task, long delayMillis) {
+            mTasks.add(task);
+            mDue.add(mNow + delayMillis);
+        }
+
+        @Override
+        public void remove(Runnable task) {
+            for (int i = mTasks.size() - 1; i >= 0; i--) {
+                if (mTasks.get(i) == task) {
+                    mTasks.remove(i);
+                    mDue.remove(i);
+                }
+            }
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+
+        int pending() {
+            return mTasks.size();
+        }
+
+        void runUntil(long time) {
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < mTasks.size(); i++) {
+                    if (mDue.get(i) <= time && (next < 0 || mDue.get(i) < mDue.get(next))) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                mNow = Math.max(mNow, mDue.remove(next));
+                mTasks.remove(next).run();
+            }
+            mNow = time;
+        }
+    }
+
+    private ManualScheduler mScheduler;
+    private RenderAhead<long[]> mAhead;
+    private int mPaints;
+    // Runs in the middle of the next paint, i.e. while that frame is in flight
+    private Runnable mDuringPaint;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = new ManualScheduler();
+        mScheduler.mNow = 10500;
+        mAhead = new RenderAhead<>(new long[1], new long[1], new RenderAhead.Painter<long[]>() {
+            @Override
+            public boolean paint(long[] buffer, long frameTimeMillis) {
+                mPaints++;
+                Runnable duringPaint = mDuringPaint;
+                mDuringPaint = null;
+                if (duringPaint != null) {
+                    duringPaint.run();
+                }
+                buffer[0] = frameTimeMillis;
+                return true;
+            }
+        }, mScheduler, mScheduler);
+    }
+
+    @Test
+    public void start_rendersTheNextSecondAhead() throws Exception {
+        mAhead.start();
+        mScheduler.runUntil(10500);
+
+        assertEquals(1, mPaints);
+        assertNull(mAhead.take(10500));
+        assertEquals(11000, mAhead.take(11000)[0]);
+        assertEquals(11000, mAhead.take(11999)[0]);
+
+        // Then one frame a second, each half a second before it's due
+        mScheduler.runUntil(11499);
+        assertEquals(1, mPaints);
+        mScheduler.runUntil(15000);
+        assertEquals(5, mPaints);
+        assertEquals(15000, mAhead.take(15000)[0]);
+    }
+
+    @Test
+    public void stopped_nothingRendered() throws Exception {
+        mAhead.start();
+        mScheduler.runUntil(11000);
+        mAhead.stop();
+        mScheduler.runUntil(20000);
+
+        assertEquals(1, mPaints);
+        assertEquals(0, mScheduler.pending());
+        assertNull(mAhead.take(11000));
+        assertFalse(mAhead.isRunning());
+    }
+
+    @Test
+    public void ambientWhileFrameInFlight_frameDropped() throws Exception {
+        mDuringPaint = new Runnable() {
+            @Override
+            public void run() {
+                mAhead.stop();
+            }
+        };
+        mAhead.start();
+        mScheduler.runUntil(20000);
+
+        assertEquals(1, mPaints);
+        assertNull(mAhead.take(11000));
+        assertEquals(0, mScheduler.pending());
+    }
+
+    @Test
+    public void hiddenAndBackWhileFrameInFlight_onlyTheNewFrameShown() throws Exception {
+        mAhead.start();
+        mScheduler.runUntil(11500);
+        assertEquals(12000, mAhead.take(12000)[0]);
+
+        // Hidden and shown again while the frame for 13000 is painted
+        mDuringPaint = new Runnable() {
+            @Override
+            public void run() {
+                mAhead.stop();
+                mAhead.start();
+            }
+        };
+        mScheduler.runUntil(12500);
+        // Painted again for the new start
+        assertEquals(4, mPaints);
+        // The frame on screen before is dropped too
+        assertNull(mAhead.take(12000));
+        long[] frame = mAhead.take(13000);
+        assertNotNull(frame);
+        assertEquals(13000, frame[0]);
+
+        // Still one render a second, the restart didn't leave a second chain running
+        mScheduler.runUntil(16500);
+        assertEquals(8, mPaints);
+    }
+
+    @Test
+    public void settingsChange_restartsWithoutShowingOldFrames() throws Exception {
+        mAhead.start();
+        mScheduler.runUntil(10500);
+        mAhead.start();
+
+        assertNull(mAhead.take(11000));
+        mScheduler.runUntil(10500);
+        assertEquals(2, mPaints);
+        assertEquals(11000, mAhead.take(11000)[0]);
+    }
+
+    @Test
+    public void startAndStopInARow_oneRestart() throws Exception {
+        mAhead.start();
+        mAhead.stop();
+        mAhead.start();
+        mScheduler.runUntil(10500);
+
+        assertEquals(1, mPaints);
+        assertEquals(1, mScheduler.pending());
+    }
+
+    @Test
+    public void painterNotReady_nothingPublished() throws Exception {
+        RenderAhead<long[]> ahead = new RenderAhead<>(new long[1], new long[1], new RenderAhead.Painter<long[]>() {
+            @Override
+            public boolean paint(long[] buffer, long frameTimeMillis) {
+                mPaints++;
+                return false;
+            }
+        }, mScheduler, mScheduler);
+        ahead.start();
+        mScheduler.runUntil(12000);
+
+        // Keeps trying every second
+        assertEquals(2, mPaints);
+        assertNull(ahead.take(11000));
+        assertNull(ahead.take(12000));
+    }
+
+    @Test
+    public void concurrent_modeChanges_neverShowStaleOrTornFrames() throws Exception {
+        // A real render thread on a clock a thousand times faster, a second passes every
+        // millisecond. Each buffer holds its frame time twice, written one after the other, and
+        // the start it was painted for. The main thread toggles ambient or visibility all the
+        // while, and must never get a torn frame or one painted before its last start.
+        final WakeupTimeline.WallClock clock = new WakeupTimeline.WallClock() {
+            @Override
+            public long currentTimeMillis() {
+                return TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+            }
+        };
+        final ScheduledExecutorService renderThread = Executors.newSingleThreadScheduledExecutor();
+        final ConcurrentHashMap<Runnable, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+        final AtomicLong starts = new AtomicLong();
+        final RenderAhead<long[]> ahead = new RenderAhead<>(new long[3], new long[3], new RenderAhead.Painter<long[]>() {
+            @Override
+            public boolean paint(long[] buffer, long frameTimeMillis) {
+                buffer[0] = frameTimeMillis;
+                buffer[2] = starts.get();
+                Thread.yield();
+                buffer[1] = frameTimeMillis;
+                return true;
+            }
+        }, new RenderAhead.Scheduler() {
+            @Override
+            public void post(final Runnable task, long delayMillis) {
+                pending.put(task, renderThread.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending.remove(task);
+                        task.run();
+                    }
+                }, delayMillis, TimeUnit.MICROSECONDS));
+            }
+
+            @Override
+            public void remove(Runnable task) {
+                ScheduledFuture<?> future = pending.remove(task);
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        }, clock);
+
+        String failure = null;
+        int shown = 0;
+        boolean started = false;
+        long nextToggle = 0;
+        long deadline = System.currentTimeMillis() + 500;
+        try {
+            while (System.currentTimeMillis() < deadline && failure == null) {
+                if (System.nanoTime() >= nextToggle) {
+                    nextToggle = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5);
+                    started = !started;
+                    if (started) {
+                        starts.incrementAndGet();
+                        ahead.start();
+                    } else {
+                        ahead.stop();
+                    }
+                }
+                long now = clock.currentTimeMillis();
+                long[] frame = ahead.take(now);
+                if (frame != null) {
+                    long first = frame[0], second = frame[1], start = frame[2];
+                    if (!started) {
+                        failure = "frame shown while stopped";
+                    } else if (start != starts.get()) {
+                        failure = "frame from start " + start + " shown after start " + starts.get();
+                    } else if (first != second) {
+                        failure = "torn frame " + first + "/" + second;
+                    }
+                    shown++;
+                }
+                Thread.yield();
+            }
+        } finally {
+            renderThread.shutdownNow();
+        }
+
+        assertNull(failure, failure);
+        assertTrue("shown " + shown, shown > 10);
+    }
+}
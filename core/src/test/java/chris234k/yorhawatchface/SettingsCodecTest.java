@@ -0,0 +1,96 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettingsCodecTest {
+    private static final FaceSettings DARK_24 = FaceSettings.DEFAULT
+            .withTheme(FaceSettings.THEME_DARK)
+            .withHourFormat(FaceSettings.HOUR_FORMAT_24)
+            .withGlitchIntervalSeconds(30)
+            .withMaxFps(20)
+            .withBuzzOnHour(true);
+
+    @Test
+    public void full_roundTrips() throws Exception {
+        byte[] blob = SettingsCodec.encodeFull(DARK_24, 513);
+
+        assertEquals(10, blob.length);
+        assertTrue(SettingsCodec.isFull(blob));
+        assertEquals(513, SettingsCodec.getSequence(blob));
+        assertEquals(DARK_24, SettingsCodec.decode(blob, FaceSettings.DEFAULT));
+    }
+
+    @Test
+    public void delta_onlyChangedFields() throws Exception {
+        FaceSettings changed = DARK_24.withMaxFps(30);
+        byte[] blob = SettingsCodec.encodeDelta(DARK_24, changed, 7);
+
+        assertEquals(6, blob.length);
+        assertFalse(SettingsCodec.isFull(blob));
+        assertEquals(SettingsCodec.FIELD_MAX_FPS, blob[4]);
+        assertEquals(changed, SettingsCodec.decode(blob, DARK_24));
+        // Fields the delta doesn't have come from the base
+        assertEquals(FaceSettings.DEFAULT.withMaxFps(30), SettingsCodec.decode(blob, FaceSettings.DEFAULT));
+    }
+
+    @Test
+    public void unknownFields_skipped() throws Exception {
+        // A newer app's fields at bits 5 and 6, after the known ones
+        byte[] blob = {SettingsCodec.VERSION, SettingsCodec.FLAG_FULL, 0, 1,
+                (byte) (SettingsCodec.FIELD_THEME | 1 << 5 | 1 << 6), FaceSettings.THEME_DARK, 99, 42};
+        assertEquals(FaceSettings.DEFAULT.withTheme(FaceSettings.THEME_DARK),
+                SettingsCodec.decode(blob, FaceSettings.DEFAULT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherVersion_rejected() throws Exception {
+        byte[] blob = SettingsCodec.encodeFull(DARK_24, 0);
+        blob[0] = SettingsCodec.VERSION + 1;
+        SettingsCodec.decode(blob, FaceSettings.DEFAULT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncated_rejected() throws Exception {
+        byte[] blob = SettingsCodec.encodeFull(DARK_24, 0);
+        SettingsCodec.decode(java.util.Arrays.copyOf(blob, blob.length - 1), FaceSettings.DEFAULT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfRangeValue_rejected() throws Exception {
+        byte[] blob = SettingsCodec.encodeDelta(DARK_24, DARK_24.withMaxFps(30), 1);
+        blob[5] = 0;
+        SettingsCodec.decode(blob, DARK_24);
+    }
+
+    @Test
+    public void buzzOnHour_offByDefaultAndCarried() throws Exception {
+        assertFalse(FaceSettings.DEFAULT.isBuzzOnHour());
+
+        byte[] blob = SettingsCodec.encodeDelta(FaceSettings.DEFAULT, FaceSettings.DEFAULT.withBuzzOnHour(true), 1);
+        assertEquals(SettingsCodec.FIELD_BUZZ_ON_HOUR, blob[4]);
+        assertTrue(SettingsCodec.decode(blob, FaceSettings.DEFAULT).isBuzzOnHour());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buzzOnHour_outOfRangeRejected() throws Exception {
+        byte[] blob = SettingsCodec.encodeDelta(FaceSettings.DEFAULT, FaceSettings.DEFAULT.withBuzzOnHour(true), 1);
+        blob[5] = 2;
+        SettingsCodec.decode(blob, FaceSettings.DEFAULT);
+    }
+
+    @Test
+    public void sequence_wraps() throws Exception {
+        assertEquals(0, SettingsCodec.nextSequence(0xFFFF));
+        assertEquals(0xFFFF, SettingsCodec.getSequence(SettingsCodec.encodeFull(DARK_24, 0xFFFF)));
+    }
+
+    @Test
+    public void is24Hour_overridesSystem() throws Exception {
+        assertTrue(FaceSettings.DEFAULT.is24Hour(true));
+        assertFalse(FaceSettings.DEFAULT.is24Hour(false));
+        assertTrue(DARK_24.is24Hour(false));
+        assertFalse(DARK_24.withHourFormat(FaceSettings.HOUR_FORMAT_12).is24Hour(true));
+    }
+}
@@ -0,0 +1,97 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Phone to watch over a loopback transport, including lost messages and restarts on both sides.
+ */
+public class SettingsSyncTest {
+    private SettingsReceiver mReceiver;
+    private LoopbackSettingsTransport mTransport;
+    private SettingsPublisher mPublisher;
+
+    @Before
+    public void setUp() throws Exception {
+        mReceiver = new SettingsReceiver(SettingsCodec.encodeFull(FaceSettings.DEFAULT, 0));
+        mTransport = new LoopbackSettingsTransport(mReceiver);
+        mPublisher = new SettingsPublisher(mTransport, FaceSettings.DEFAULT, 0);
+        mTransport.setPublisher(mPublisher);
+    }
+
+    @Test
+    public void changes_sentAsDeltas() throws Exception {
+        assertTrue(mPublisher.push(FaceSettings.DEFAULT.withGlitchIntervalSeconds(20)));
+        assertTrue(mPublisher.push(mPublisher.getSettings().withTheme(FaceSettings.THEME_DARK)));
+        assertFalse(mPublisher.push(mPublisher.getSettings()));
+
+        assertEquals(2, mTransport.mSent.size());
+        // Header and one field each
+        assertEquals(6, mTransport.mSent.get(0).length);
+        assertEquals(6, mTransport.mSent.get(1).length);
+        assertEquals(mPublisher.getSettings(), mReceiver.getSettings());
+        assertEquals(0, mTransport.mResyncs);
+    }
+
+    @Test
+    public void lostDelta_resyncsWithFullSnapshot() throws Exception {
+        mTransport.setConnected(false);
+        mPublisher.push(FaceSettings.DEFAULT.withMaxFps(30));
+        mTransport.setConnected(true);
+        mPublisher.push(mPublisher.getSettings().withHourFormat(FaceSettings.HOUR_FORMAT_12));
+
+        assertEquals(1, mTransport.mResyncs);
+        assertEquals(FaceSettings.DEFAULT.withMaxFps(30).withHourFormat(FaceSettings.HOUR_FORMAT_12),
+                mReceiver.getSettings());
+        assertEquals(2, mReceiver.getSequence());
+    }
+
+    @Test
+    public void duplicateDelta_ignored() throws Exception {
+        mPublisher.push(FaceSettings.DEFAULT.withMaxFps(30));
+        byte[] delta = mTransport.mSent.get(0);
+        assertEquals(SettingsReceiver.RESULT_IGNORED, mReceiver.receive(delta));
+    }
+
+    @Test
+    public void watchRestart_resumesFromStoredSnapshot() throws Exception {
+        mPublisher.push(FaceSettings.DEFAULT.withMaxFps(30));
+        byte[] stored = mReceiver.toSnapshot();
+
+        SettingsReceiver restarted = new SettingsReceiver(stored);
+        assertEquals(FaceSettings.DEFAULT.withMaxFps(30), restarted.getSettings());
+
+        mPublisher = new SettingsPublisher(mTransport, mPublisher.getSettings(), mPublisher.getSequence());
+        byte[] next = SettingsCodec.encodeDelta(mPublisher.getSettings(), mPublisher.getSettings().withMaxFps(20),
+                SettingsCodec.nextSequence(mPublisher.getSequence()));
+        assertEquals(SettingsReceiver.RESULT_APPLIED, restarted.receive(next));
+        assertEquals(20, restarted.getSettings().getMaxFps());
+    }
+
+    @Test
+    public void unknownVersion_droppedWithoutResync() throws Exception {
+        byte[] blob = SettingsCodec.encodeFull(FaceSettings.DEFAULT.withMaxFps(30), 1);
+        blob[0] = SettingsCodec.VERSION + 1;
+        mTransport.send(blob);
+
+        assertEquals(0, mTransport.mResyncs);
+        assertEquals(FaceSettings.DEFAULT, mReceiver.getSettings());
+        assertEquals(SettingsReceiver.RESULT_UNKNOWN_VERSION, mReceiver.receive(blob));
+
+        // Deltas of the known version still follow on
+        mPublisher.push(FaceSettings.DEFAULT.withMaxFps(20));
+        assertEquals(0, mTransport.mResyncs);
+        assertEquals(20, mReceiver.getSettings().getMaxFps());
+    }
+
+    @Test
+    public void neverSynced_deltaNeedsResync() throws Exception {
+        SettingsReceiver fresh = new SettingsReceiver();
+        assertFalse(fresh.isSynced());
+        assertEquals(SettingsReceiver.RESULT_NEEDS_RESYNC,
+                fresh.receive(SettingsCodec.encodeDelta(FaceSettings.DEFAULT, FaceSettings.DEFAULT.withMaxFps(30), 1)));
+        assertEquals(FaceSettings.DEFAULT, fresh.getSettings());
+    }
+}
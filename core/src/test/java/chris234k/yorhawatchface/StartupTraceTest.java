@@ -0,0 +1,32 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StartupTraceTest {
+
+    @Test
+    public void marks_relativeToPrevious() throws Exception {
+        StartupTrace trace = new StartupTrace(1000);
+        trace.mark("engine created", 1030);
+        trace.mark("resources loaded", 1380);
+        assertEquals(-1, trace.getTotalMillis());
+        assertEquals("startup unfinished: engine created +30ms, resources loaded +350ms", trace.toString());
+
+        assertTrue(trace.finish(1412));
+        assertEquals(412, trace.getTotalMillis());
+        assertEquals(380, trace.getMillisTo("resources loaded"));
+        assertEquals("startup 412ms: engine created +30ms, resources loaded +350ms, first frame +32ms", trace.toString());
+    }
+
+    @Test
+    public void finish_onlyOnce() throws Exception {
+        StartupTrace trace = new StartupTrace(0);
+        assertTrue(trace.finish(10));
+        assertFalse(trace.finish(20));
+        trace.mark("late", 30);
+        assertEquals(10, trace.getTotalMillis());
+        assertEquals(-1, trace.getMillisTo("late"));
+    }
+}
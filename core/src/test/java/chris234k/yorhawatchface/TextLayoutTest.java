@@ -0,0 +1,27 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextLayoutTest {
+
+    @Test
+    public void centeredLeft_splitsRemainingWidth() throws Exception {
+        assertEquals(80f, TextLayout.centeredLeft(320, 160f), 0f);
+        assertEquals(-10f, TextLayout.centeredLeft(300, 320f), 0f);
+    }
+
+    @Test
+    public void centeredBaseline_offsetsByBoundsCenter() throws Exception {
+        // Text bounds run from -30 to 0 around the baseline, so their center is at -15
+        assertEquals(175f, TextLayout.centeredBaseline(160f, -15f), 0f);
+    }
+
+    @Test
+    public void textSizes_shrinkFor12Hour() throws Exception {
+        assertEquals(40f, TextLayout.timeTextSize(40f, true), 0.001f);
+        assertEquals(28f, TextLayout.timeTextSize(40f, false), 0.001f);
+        assertEquals(16f, TextLayout.dateTextSize(40f), 0.001f);
+    }
+}
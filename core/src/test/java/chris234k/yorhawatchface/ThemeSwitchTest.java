@@ -0,0 +1,101 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ThemeSwitchTest {
+
+    private static class Bundle {
+        final FaceTheme mTheme;
+
+        Bundle(FaceTheme theme) {
+            mTheme = theme;
+        }
+    }
+
+    private static class CountingFactory implements ThemeSwitch.Factory<Bundle> {
+        final List<FaceTheme> mCreated = new ArrayList<>();
+
+        @Override
+        public Bundle create(FaceTheme theme) {
+            mCreated.add(theme);
+            return new Bundle(theme);
+        }
+    }
+
+    @Test
+    public void bundles_builtUpFront() throws Exception {
+        CountingFactory factory = new CountingFactory();
+        ThemeSwitch<Bundle> themes = new ThemeSwitch<>(factory);
+
+        assertEquals(3, factory.mCreated.size());
+        assertTrue(factory.mCreated.contains(FaceTheme.LIGHT));
+        assertTrue(factory.mCreated.contains(FaceTheme.DARK));
+        assertTrue(factory.mCreated.contains(FaceTheme.AMBIENT));
+        assertEquals(FaceTheme.AMBIENT, themes.getBundle(themes.getBundleCount() - 1).mTheme);
+
+        // Switching never builds anything, there's nothing to stall on
+        for (int i = 0; i < 100; i++) {
+            themes.setTheme(i % 2);
+            themes.get(i % 3 == 0);
+        }
+        assertEquals(3, factory.mCreated.size());
+    }
+
+    @Test
+    public void setTheme_swapsReference() throws Exception {
+        ThemeSwitch<Bundle> themes = new ThemeSwitch<>(new CountingFactory());
+        Bundle light = themes.get(false);
+        Bundle ambient = themes.get(true);
+        assertEquals(FaceTheme.LIGHT, light.mTheme);
+
+        assertTrue(themes.setTheme(FaceSettings.THEME_DARK));
+        assertFalse(themes.setTheme(FaceSettings.THEME_DARK));
+        assertEquals(FaceTheme.DARK, themes.get(false).mTheme);
+        // Ambient doesn't follow the theme
+        assertSame(ambient, themes.get(true));
+
+        themes.setTheme(FaceSettings.THEME_LIGHT);
+        assertSame(light, themes.get(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setTheme_unknown() throws Exception {
+        new ThemeSwitch<>(new CountingFactory()).setTheme(FaceSettings.THEME_DARK + 1);
+    }
+
+    @Test
+    public void switching_doesntAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        ThemeSwitch<Bundle> themes = new ThemeSwitch<>(new CountingFactory());
+
+        // Warm up, lets the JIT settle
+        int checksum = flip(themes, 20000);
+        threads.getThreadAllocatedBytes(threadId);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        checksum += flip(themes, 20000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("bytes per switch", 0, allocated / 20000);
+        assertTrue(checksum > 0);
+    }
+
+    /**
+     * Light, dark and ambient in turn, like settings changes and mode changes between frames.
+     */
+    private static int flip(ThemeSwitch<Bundle> themes, int switches) {
+        int checksum = 0;
+        for (int i = 0; i < switches; i++) {
+            themes.setTheme(i % 2 == 0 ? FaceSettings.THEME_DARK : FaceSettings.THEME_LIGHT);
+            checksum += themes.get(i % 3 == 0).mTheme.isAmbient() ? 1 : 0;
+        }
+        return checksum;
+    }
+}
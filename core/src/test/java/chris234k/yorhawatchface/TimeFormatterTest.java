@@ -0,0 +1,117 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks TimeFormatter against SimpleDateFormat, which is what android.text.format.DateFormat
+ * mirrors for the patterns the watch face uses (and which is available off-device).
+ */
+public class TimeFormatterTest {
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.UK, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, Locale.KOREA
+    };
+
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    @Test
+    public void midnight_matchesDateFormat() throws Exception {
+        for (Locale locale : LOCALES) {
+            // 23:00 -> 01:00 across new years eve
+            sweep(locale, NEW_YORK, startOf(NEW_YORK, 2016, Calendar.DECEMBER, 31, 23), TimeUnit.HOURS.toMillis(2));
+        }
+    }
+
+    @Test
+    public void noon_matchesDateFormat() throws Exception {
+        for (Locale locale : LOCALES) {
+            sweep(locale, NEW_YORK, startOf(NEW_YORK, 2017, Calendar.JUNE, 27, 11), TimeUnit.HOURS.toMillis(2));
+        }
+    }
+
+    @Test
+    public void dstSpringForward_matchesDateFormat() throws Exception {
+        // 01:59:59 EST -> 03:00:00 EDT
+        for (Locale locale : LOCALES) {
+            sweep(locale, NEW_YORK, startOf(NEW_YORK, 2017, Calendar.MARCH, 12, 0), TimeUnit.HOURS.toMillis(3));
+        }
+    }
+
+    @Test
+    public void dstFallBack_matchesDateFormat() throws Exception {
+        // 01:59:59 EDT -> 01:00:00 EST, the hour doesn't change but the minutes go backwards
+        for (Locale locale : LOCALES) {
+            sweep(locale, NEW_YORK, startOf(NEW_YORK, 2017, Calendar.NOVEMBER, 5, 0), TimeUnit.HOURS.toMillis(3));
+        }
+    }
+
+    @Test
+    public void patternSwitch_rewritesBuffer() throws Exception {
+        TimeFormatter formatter = new TimeFormatter(Locale.US);
+        Calendar calendar = new GregorianCalendar(NEW_YORK, Locale.US);
+        calendar.setTimeInMillis(startOf(NEW_YORK, 2017, Calendar.JUNE, 27, 21));
+
+        formatter.formatTime(calendar, TimeFormatter.Pattern.HOUR_24_SECONDS);
+        assertEquals("21:00:00", formatter.getTimeString());
+
+        formatter.formatTime(calendar, TimeFormatter.Pattern.HOUR_12);
+        assertEquals("9:00 PM", formatter.getTimeString());
+
+        formatter.formatTime(calendar, TimeFormatter.Pattern.HOUR_12_SECONDS);
+        assertEquals("9:00:00 PM", formatter.getTimeString());
+    }
+
+    @Test
+    public void unchangedTime_reportsNoChange() throws Exception {
+        TimeFormatter formatter = new TimeFormatter(Locale.US);
+        Calendar calendar = new GregorianCalendar(NEW_YORK, Locale.US);
+        calendar.setTimeInMillis(startOf(NEW_YORK, 2017, Calendar.JUNE, 27, 9));
+
+        assertTrue(formatter.formatTime(calendar, TimeFormatter.Pattern.HOUR_24));
+        assertTrue(formatter.formatDate(calendar));
+
+        // Seconds aren't part of the ambient pattern
+        calendar.add(Calendar.SECOND, 30);
+        assertFalse(formatter.formatTime(calendar, TimeFormatter.Pattern.HOUR_24));
+        assertFalse(formatter.formatDate(calendar));
+    }
+
+    private static void sweep(Locale locale, TimeZone zone, long start, long duration) {
+        for (TimeFormatter.Pattern pattern : TimeFormatter.Pattern.values()) {
+            TimeFormatter formatter = new TimeFormatter(locale);
+            Calendar calendar = new GregorianCalendar(zone, locale);
+
+            SimpleDateFormat timeFormat = new SimpleDateFormat(pattern.getFormat(), locale);
+            timeFormat.setTimeZone(zone);
+            SimpleDateFormat dateFormat = new SimpleDateFormat("EEE d", locale);
+            dateFormat.setTimeZone(zone);
+
+            for (long t = start; t < start + duration; t += TimeUnit.SECONDS.toMillis(1)) {
+                calendar.setTimeInMillis(t);
+                formatter.formatTime(calendar, pattern);
+                formatter.formatDate(calendar);
+
+                String message = locale + " " + pattern.getFormat() + " @" + t;
+                assertEquals(message, timeFormat.format(calendar.getTime()),
+                        new String(formatter.getTimeChars(), 0, formatter.getTimeLength()));
+                assertEquals(message, dateFormat.format(calendar.getTime()).toUpperCase(locale),
+                        new String(formatter.getDateChars(), 0, formatter.getDateLength()));
+            }
+        }
+    }
+
+    private static long startOf(TimeZone zone, int year, int month, int day, int hour) {
+        Calendar calendar = new GregorianCalendar(zone);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}
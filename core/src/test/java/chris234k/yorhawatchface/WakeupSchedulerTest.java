@@ -0,0 +1,125 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class WakeupSchedulerTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    // 2017-06-27 09:59:30 UTC
+    private static final long START = 1498557570000L;
+
+    private ManualFrameClock mClock;
+    private WakeupTimeline mTimeline;
+    private FaceRenderer mRenderer;
+    private WakeupScheduler mScheduler;
+    private long mTimerDelay;
+    private int mInvalidates, mEvents;
+
+    @Before
+    public void setUp() throws Exception {
+        mClock = new ManualFrameClock();
+        mTimeline = new WakeupTimeline(new WakeupTimeline.WallClock() {
+            @Override
+            public long currentTimeMillis() {
+                return START + mClock.now();
+            }
+        }, UTC);
+        mRenderer = new FaceRenderer(mClock, UTC, Locale.US, true);
+        mRenderer.setSurfaceSize(320, 320);
+        mTimerDelay = -1;
+        mScheduler = new WakeupScheduler(mTimeline, mRenderer, mClock, new WakeupScheduler.Host() {
+            @Override
+            public void postTimer(long delayMillis) {
+                mTimerDelay = delayMillis;
+            }
+
+            @Override
+            public void cancelTimer() {
+                mTimerDelay = -1;
+            }
+
+            @Override
+            public void invalidate() {
+                mInvalidates++;
+            }
+
+            @Override
+            public void onEvents(int events) {
+                mEvents |= events;
+            }
+
+            @Override
+            public long elapsedRealtime() {
+                return mClock.now();
+            }
+        });
+    }
+
+    @Test
+    public void timer_onlyWhileVisibleAndInteractive() throws Exception {
+        assertEquals(-1, mTimerDelay);
+
+        mScheduler.setVisible(true);
+        assertEquals(0, mTimerDelay);
+        mScheduler.onTimer();
+        assertEquals(1000, mTimerDelay);
+
+        mScheduler.setAmbient(true);
+        assertEquals(-1, mTimerDelay);
+        assertEquals(WakeupScheduler.AMBIENT_EVENTS & ~WakeupTimeline.EVENT_HOUR, mTimeline.getEnabled());
+
+        mScheduler.setAmbient(false);
+        mScheduler.setVisible(false);
+        assertEquals(-1, mTimerDelay);
+        assertEquals(0, mTimeline.getEnabled());
+    }
+
+    @Test
+    public void settings_turnEventsOff() throws Exception {
+        mScheduler.setVisible(true);
+        assertEquals(0, mTimeline.getEnabled() & WakeupTimeline.EVENT_HOUR);
+
+        mScheduler.setSettings(FaceSettings.DEFAULT.withBuzzOnHour(true));
+        assertEquals(WakeupScheduler.INTERACTIVE_EVENTS, mTimeline.getEnabled());
+
+        mScheduler.setSettings(FaceSettings.DEFAULT.withGlitchIntervalSeconds(FaceSettings.GLITCH_OFF));
+        assertEquals(0, mTimeline.getEnabled() & (WakeupTimeline.EVENT_GLITCH | WakeupTimeline.EVENT_HOUR));
+    }
+
+    @Test
+    public void ambientTick_redrawsAndCountsWakeup() throws Exception {
+        FrameStats stats = new FrameStats(0);
+        mScheduler.setFrameStats(stats);
+        mScheduler.setVisible(true);
+        mScheduler.setAmbient(true);
+        mInvalidates = 0;
+
+        mClock.advance(30000);
+        mScheduler.onTimeTick();
+        mClock.advance(60000);
+        mScheduler.onTimeTick();
+
+        assertEquals(2, mInvalidates);
+        assertTrue((mEvents & WakeupTimeline.EVENT_MINUTE) != 0);
+        assertEquals(1, stats.getWakeupIntervals(FrameStats.MODE_AMBIENT).getTotalCount());
+        assertEquals(0, stats.getWakeupIntervals(FrameStats.MODE_INTERACTIVE).getTotalCount());
+    }
+
+    @Test
+    public void hidden_stopsGlitch() throws Exception {
+        mScheduler.setVisible(true);
+        mScheduler.setAmbient(true);
+        mScheduler.setAmbient(false);
+        mRenderer.render(new RecordingRenderTarget(10, -15), START + mClock.now(), false, false);
+        assertTrue(mClock.isRunning());
+
+        mScheduler.setVisible(false);
+        assertFalse(mClock.isRunning());
+        assertEquals(0, mClock.advance(2000));
+    }
+}
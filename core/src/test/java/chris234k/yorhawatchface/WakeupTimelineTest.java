@@ -0,0 +1,152 @@
+package chris234k.yorhawatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class WakeupTimelineTest {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final int INTERACTIVE = WakeupTimeline.EVENT_SECOND | WakeupTimeline.EVENT_MINUTE
+            | WakeupTimeline.EVENT_HOUR | WakeupTimeline.EVENT_DATE | WakeupTimeline.EVENT_GLITCH;
+
+    private long mNow;
+    private WakeupTimeline mTimeline;
+
+    @Before
+    public void setUp() throws Exception {
+        mNow = time(2017, Calendar.JUNE, 27, 10, 59, 50, 0);
+        mTimeline = new WakeupTimeline(new WakeupTimeline.WallClock() {
+            @Override
+            public long currentTimeMillis() {
+                return mNow;
+            }
+        }, UTC);
+    }
+
+    @Test
+    public void seconds_wakeOnEachBoundary() throws Exception {
+        mNow += 300;
+        mTimeline.setEnabled(WakeupTimeline.EVENT_SECOND);
+        assertEquals(700, mTimeline.getDelayMillis());
+        assertEquals(0, mTimeline.poll());
+
+        mNow = mTimeline.getNextWakeup();
+        assertEquals(WakeupTimeline.EVENT_SECOND, mTimeline.poll());
+        assertEquals(1000, mTimeline.getDelayMillis());
+    }
+
+    @Test
+    public void coincidingEvents_shareOneWakeup() throws Exception {
+        mNow = time(2017, Calendar.JUNE, 27, 23, 59, 58, 500);
+        mTimeline.setEnabled(INTERACTIVE);
+
+        mNow = mTimeline.getNextWakeup();
+        assertEquals(WakeupTimeline.EVENT_SECOND | WakeupTimeline.EVENT_GLITCH, mTimeline.poll());
+
+        mNow = mTimeline.getNextWakeup();
+        assertEquals(time(2017, Calendar.JUNE, 28, 0, 0, 0, 0), mNow);
+        assertEquals(WakeupTimeline.EVENT_SECOND | WakeupTimeline.EVENT_MINUTE | WakeupTimeline.EVENT_HOUR
+                | WakeupTimeline.EVENT_DATE, mTimeline.poll());
+    }
+
+    @Test
+    public void lateWakeup_handlesEverythingDue() throws Exception {
+        mTimeline.setEnabled(INTERACTIVE);
+        mNow += TimeUnit.SECONDS.toMillis(15);
+        assertEquals(WakeupTimeline.EVENT_SECOND | WakeupTimeline.EVENT_MINUTE | WakeupTimeline.EVENT_HOUR
+                | WakeupTimeline.EVENT_GLITCH, mTimeline.poll());
+        assertEquals(1000, mTimeline.getDelayMillis());
+    }
+
+    @Test
+    public void interactiveMinute_oneWakeupPerSecond() throws Exception {
+        mTimeline.setEnabled(INTERACTIVE);
+        long end = mNow + TimeUnit.MINUTES.toMillis(10);
+        int wakeups = 0, glitches = 0, minutes = 0;
+        while (mTimeline.getNextWakeup() <= end) {
+            mNow = mTimeline.getNextWakeup();
+            int events = mTimeline.poll();
+            assertTrue(events != 0);
+            wakeups++;
+            if ((events & WakeupTimeline.EVENT_GLITCH) != 0) {
+                glitches++;
+                // On a second ending in 9
+                assertEquals(9, mNow / 1000 % 10);
+            }
+            if ((events & WakeupTimeline.EVENT_MINUTE) != 0) {
+                minutes++;
+            }
+        }
+        assertEquals(600, wakeups);
+        assertEquals(60, glitches);
+        assertEquals(10, minutes);
+    }
+
+    @Test
+    public void glitch_waitsForGapAfterCompletion() throws Exception {
+        mTimeline.setEnabled(WakeupTimeline.EVENT_GLITCH);
+        mNow = mTimeline.getNextWakeup();
+        assertEquals(time(2017, Calendar.JUNE, 27, 10, 59, 59, 0), mNow);
+        assertEquals(WakeupTimeline.EVENT_GLITCH, mTimeline.poll());
+
+        // Finished at :05.5, the next is at :19 rather than :09
+        mNow = time(2017, Calendar.JUNE, 27, 11, 0, 5, 500);
+        mTimeline.onGlitchComplete();
+        assertEquals(time(2017, Calendar.JUNE, 27, 11, 0, 19, 0), mTimeline.getNextWakeup());
+    }
+
+    @Test
+    public void glitchInterval_lastSecondOfEachInterval() throws Exception {
+        mTimeline.setEnabled(WakeupTimeline.EVENT_GLITCH);
+        mTimeline.setGlitchInterval(30);
+
+        mNow = mTimeline.getNextWakeup();
+        assertEquals(time(2017, Calendar.JUNE, 27, 10, 59, 59, 0), mNow);
+        mTimeline.poll();
+        assertEquals(time(2017, Calendar.JUNE, 27, 11, 0, 29, 0), mTimeline.getNextWakeup());
+
+        // Never closer than the gap
+        mTimeline.setGlitchInterval(1);
+        assertEquals(time(2017, Calendar.JUNE, 27, 11, 0, 4, 0), mTimeline.getNextWakeup());
+    }
+
+    @Test
+    public void ambient_minutesOnly() throws Exception {
+        mTimeline.setEnabled(INTERACTIVE);
+        mTimeline.setEnabled(WakeupTimeline.EVENT_MINUTE | WakeupTimeline.EVENT_HOUR);
+        assertEquals(time(2017, Calendar.JUNE, 27, 11, 0, 0, 0), mTimeline.getNextWakeup());
+
+        mNow = mTimeline.getNextWakeup();
+        assertEquals(WakeupTimeline.EVENT_MINUTE | WakeupTimeline.EVENT_HOUR, mTimeline.poll());
+        assertEquals(TimeUnit.MINUTES.toMillis(1), mTimeline.getDelayMillis());
+    }
+
+    @Test
+    public void timeZone_hoursFollowLocalTime() throws Exception {
+        // Kathmandu is 5:45 ahead, its hours start at :15 UTC
+        mTimeline.setTimeZone(TimeZone.getTimeZone("Asia/Kathmandu"));
+        mTimeline.setEnabled(WakeupTimeline.EVENT_HOUR);
+        assertEquals(time(2017, Calendar.JUNE, 27, 11, 15, 0, 0), mTimeline.getNextWakeup());
+    }
+
+    @Test
+    public void nothingEnabled_neverWakes() throws Exception {
+        assertEquals(Long.MAX_VALUE, mTimeline.getNextWakeup());
+        assertEquals(0, mTimeline.poll());
+    }
+
+    private static long time(int year, int month, int day, int hour, int minute, int second, int millis) {
+        Calendar calendar = new GregorianCalendar(UTC, Locale.US);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,61 @@
+package chris234k.yorhawatchface;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.Node;
+import com.google.android.gms.wearable.NodeApi;
+import com.google.android.gms.wearable.Wearable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends settings blobs to every connected watch with the MessageApi. Messages are small and
+ * fire-and-forget, a watch that misses one asks for a full snapshot on the next.
+ *
+ * Sends happen in order on one background thread.
+ */
+public class DataLayerSettingsTransport implements SettingsTransport {
+    private static final String TAG = "SettingsTransport";
+    private static final long TIMEOUT_S = 10;
+
+    private final GoogleApiClient mClient;
+    private final ExecutorService mSender = Executors.newSingleThreadExecutor();
+
+    public DataLayerSettingsTransport(Context context) {
+        mClient = new GoogleApiClient.Builder(context.getApplicationContext())
+                .addApi(Wearable.API)
+                .build();
+    }
+
+    @Override
+    public void send(final byte[] blob) {
+        mSender.execute(new Runnable() {
+            @Override
+            public void run() {
+                sendNow(blob);
+            }
+        });
+    }
+
+    private void sendNow(byte[] blob) {
+        if (!mClient.isConnected()) {
+            ConnectionResult connection = mClient.blockingConnect(TIMEOUT_S, TimeUnit.SECONDS);
+            if (!connection.isSuccess()) {
+                Log.w(TAG, "Couldn't connect: " + connection);
+                return;
+            }
+        }
+
+        NodeApi.GetConnectedNodesResult nodes = Wearable.NodeApi.getConnectedNodes(mClient)
+                .await(TIMEOUT_S, TimeUnit.SECONDS);
+        for (Node node : nodes.getNodes()) {
+            Wearable.MessageApi.sendMessage(mClient, node.getId(), PATH_SETTINGS, blob)
+                    .await(TIMEOUT_S, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package chris234k.yorhawatchface;
+
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.WearableListenerService;
+
+/**
+ * Answers a watch's request for the full settings snapshot.
+ */
+public class ResyncListenerService extends WearableListenerService {
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        if (SettingsTransport.PATH_RESYNC.equals(messageEvent.getPath())) {
+            SettingsSync.get(this).sendFull();
+        }
+    }
+}
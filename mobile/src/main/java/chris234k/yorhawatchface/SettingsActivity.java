@@ -0,0 +1,74 @@
+package chris234k.yorhawatchface;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.preference.PreferenceFragment;
+import android.support.v7.app.AppCompatActivity;
+
+/**
+ * The watch face options. Every change is pushed to the watch straight away.
+ */
+public class SettingsActivity extends AppCompatActivity {
+    static final String KEY_THEME = "theme";
+    static final String KEY_HOUR_FORMAT = "hour_format";
+    static final String KEY_GLITCH_INTERVAL = "glitch_interval";
+    static final String KEY_MAX_FPS = "max_fps";
+    static final String KEY_BUZZ_ON_HOUR = "buzz_on_hour";
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (savedInstanceState == null) {
+            getFragmentManager().beginTransaction()
+                    .replace(android.R.id.content, new SettingsFragment())
+                    .commit();
+        }
+    }
+
+    /**
+     * The ListPreferences store their values as strings, the switch as a boolean.
+     */
+    static FaceSettings fromPreferences(SharedPreferences prefs) {
+        FaceSettings defaults = FaceSettings.DEFAULT;
+        return new FaceSettings(
+                readInt(prefs, KEY_THEME, defaults.getTheme()),
+                readInt(prefs, KEY_HOUR_FORMAT, defaults.getHourFormat()),
+                readInt(prefs, KEY_GLITCH_INTERVAL, defaults.getGlitchIntervalSeconds()),
+                readInt(prefs, KEY_MAX_FPS, defaults.getMaxFps()),
+                prefs.getBoolean(KEY_BUZZ_ON_HOUR, defaults.isBuzzOnHour()));
+    }
+
+    private static int readInt(SharedPreferences prefs, String key, int defaultValue) {
+        return Integer.parseInt(prefs.getString(key, Integer.toString(defaultValue)));
+    }
+
+    public static class SettingsFragment extends PreferenceFragment
+            implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            addPreferencesFromResource(R.xml.preferences);
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            SharedPreferences prefs = getPreferenceManager().getSharedPreferences();
+            prefs.registerOnSharedPreferenceChangeListener(this);
+            // Covers changes the watch hasn't seen, e.g. made while the sync state was lost
+            SettingsSync.get(getActivity()).push(fromPreferences(prefs));
+        }
+
+        @Override
+        public void onPause() {
+            getPreferenceManager().getSharedPreferences().unregisterOnSharedPreferenceChangeListener(this);
+            super.onPause();
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+            SettingsSync.get(getActivity()).push(fromPreferences(prefs));
+        }
+    }
+}
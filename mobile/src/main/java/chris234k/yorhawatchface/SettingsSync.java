@@ -0,0 +1,65 @@
+package chris234k.yorhawatchface;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Base64;
+import android.util.Log;
+
+/**
+ * The phone's SettingsPublisher, shared by SettingsActivity and ResyncListenerService. What was
+ * last sent is kept as a full snapshot, so deltas after a restart follow on from it.
+ */
+public final class SettingsSync {
+    private static final String TAG = "SettingsSync";
+    private static final String PREFS_NAME = "settings_sync";
+    private static final String KEY_LAST_SENT = "last_sent";
+
+    private static SettingsSync sInstance;
+
+    public static synchronized SettingsSync get(Context context) {
+        if (sInstance == null) {
+            sInstance = new SettingsSync(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final SharedPreferences mState;
+    private final SettingsPublisher mPublisher;
+
+    private SettingsSync(Context context) {
+        mState = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        FaceSettings lastSent = FaceSettings.DEFAULT;
+        int sequence = 0;
+        String stored = mState.getString(KEY_LAST_SENT, null);
+        if (stored != null) {
+            try {
+                byte[] snapshot = Base64.decode(stored, Base64.NO_WRAP);
+                lastSent = SettingsCodec.decode(snapshot, FaceSettings.DEFAULT);
+                sequence = SettingsCodec.getSequence(snapshot);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Dropping unreadable sync state", e);
+            }
+        }
+        mPublisher = new SettingsPublisher(new DataLayerSettingsTransport(context), lastSent, sequence);
+    }
+
+    /**
+     * Sends what changed since the last push.
+     */
+    public synchronized void push(FaceSettings settings) {
+        if (mPublisher.push(settings)) {
+            byte[] snapshot = SettingsCodec.encodeFull(mPublisher.getSettings(), mPublisher.getSequence());
+            mState.edit()
+                    .putString(KEY_LAST_SENT, Base64.encodeToString(snapshot, Base64.NO_WRAP))
+                    .apply();
+        }
+    }
+
+    /**
+     * A watch lost track, send it everything.
+     */
+    public synchronized void sendFull() {
+        mPublisher.sendFull();
+    }
+}
@@ -0,0 +1,166 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ambient frames rendered a minute ahead, so the once a minute ambient draw is a single blit.
+ *
+ * Two RGB_565 bitmaps hold the frame for the current minute and the next, each keyed by its
+ * minute. Burn-in shifts come from BurnInOffsets and are baked in when a frame is rendered.
+ *
+ * The first tier the BitmapBudget drops, a trimmed frame is rendered on demand in onDraw.
+ */
+public class AmbientFrameCache {
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /**
+     * How far burn-in protection shifts the frame, in pixels.
+     */
+    public static final int BURN_IN_SHIFT_PX = 4;
+
+    private final FaceRenderer mFaceRenderer;
+    private final CanvasRenderTarget mRenderTarget;
+    private final BurnInOffsets mBurnInOffsets = new BurnInOffsets(BURN_IN_SHIFT_PX);
+    private final Paint mBlitPaint = new Paint();
+    private final BitmapBudget<Bitmap> mBudget;
+    private final BitmapBudget.Client mClient = new BitmapBudget.Client("ambient frames", BitmapBudget.TIER_AHEAD) {
+        @Override
+        protected void onTrim() {
+            recycle();
+        }
+    };
+
+    private final Bitmap[] mFrames = new Bitmap[2];
+    private final Canvas[] mCanvases = new Canvas[2];
+    private final long[] mMinutes = {UNSET, UNSET};
+    private int mWidth, mHeight;
+    private boolean mLowBit, mBurnInProtection;
+
+    public AmbientFrameCache(BitmapBudget<Bitmap> budget, FaceRenderer faceRenderer, CanvasRenderTarget renderTarget) {
+        mBudget = budget;
+        mFaceRenderer = faceRenderer;
+        mRenderTarget = renderTarget;
+        mBlitPaint.setFilterBitmap(false);
+    }
+
+    public void setSize(int width, int height) {
+        if (width == mWidth && height == mHeight) {
+            return;
+        }
+        mWidth = width;
+        mHeight = height;
+        recycle();
+    }
+
+    /**
+     * Aliased glyphs, for screens with fewer bits per color in ambient.
+     */
+    public void setLowBit(boolean lowBit) {
+        if (lowBit != mLowBit) {
+            mLowBit = lowBit;
+            invalidate();
+        }
+    }
+
+    public void setBurnInProtection(boolean burnInProtection) {
+        if (burnInProtection != mBurnInProtection) {
+            mBurnInProtection = burnInProtection;
+            invalidate();
+        }
+    }
+
+    /**
+     * Drops the rendered frames, call when anything they show changes other than the time.
+     */
+    public void invalidate() {
+        mMinutes[0] = UNSET;
+        mMinutes[1] = UNSET;
+    }
+
+    /**
+     * Blits the frame for the minute of nowMillis.
+     *
+     * @return false if it wasn't rendered ahead, render it and draw again
+     */
+    public boolean draw(Canvas canvas, long nowMillis) {
+        int slot = slotOf(minuteOf(nowMillis));
+        if (slot < 0) {
+            return false;
+        }
+        mBudget.touch(mClient);
+        canvas.drawBitmap(mFrames[slot], 0, 0, mBlitPaint);
+        return true;
+    }
+
+    /**
+     * Renders the frame for the minute of nowMillis, if it isn't already.
+     */
+    public void render(long nowMillis) {
+        renderMinute(minuteOf(nowMillis), nowMillis);
+    }
+
+    /**
+     * Renders the frame for the minute after nowMillis, meant to run while the current minute is
+     * showing.
+     */
+    public void renderNext(long nowMillis) {
+        long minute = minuteOf(nowMillis) + 1;
+        renderMinute(minute, minute * MINUTE_MS);
+    }
+
+    private void renderMinute(long minute, long timeMillis) {
+        if (mWidth <= 0 || mHeight <= 0 || slotOf(minute) >= 0) {
+            return;
+        }
+
+        // Replace whichever frame is older
+        int slot = mMinutes[0] == UNSET || (mMinutes[1] != UNSET && mMinutes[0] < mMinutes[1]) ? 0 : 1;
+        // Rendering may need room for glyphs or the frame, neither can take these
+        mBudget.beginUse(mClient);
+        if (mFrames[slot] == null) {
+            mFrames[slot] = mBudget.acquire(mClient, mWidth, mHeight, BitmapBudget.CONFIG_RGB_565);
+            mCanvases[slot] = new Canvas(mFrames[slot]);
+        }
+
+        if (mBurnInProtection) {
+            mRenderTarget.setFrameOffset(mBurnInOffsets.getX(minute), mBurnInOffsets.getY(minute));
+        }
+        mRenderTarget.setCanvas(mCanvases[slot]);
+        mFaceRenderer.render(mRenderTarget, timeMillis, true, mLowBit);
+        mRenderTarget.setCanvas(null);
+        mRenderTarget.setFrameOffset(0, 0);
+        mBudget.endUse(mClient);
+
+        mMinutes[slot] = minute;
+    }
+
+    private int slotOf(long minute) {
+        if (mMinutes[0] == minute) {
+            return 0;
+        }
+        if (mMinutes[1] == minute) {
+            return 1;
+        }
+        return -1;
+    }
+
+    private static long minuteOf(long timeMillis) {
+        return timeMillis / MINUTE_MS;
+    }
+
+    public void recycle() {
+        for (int i = 0; i < mFrames.length; i++) {
+            if (mFrames[i] != null) {
+                mBudget.release(mClient, mFrames[i]);
+                mFrames[i] = null;
+                mCanvases[i] = null;
+            }
+        }
+        invalidate();
+    }
+}
@@ -0,0 +1,40 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+
+/**
+ * BitmapBudget allocations as mutable Bitmaps. Reuse goes through Bitmap.reconfigure, which keeps
+ * the allocation as long as the new size fits in it.
+ */
+public class AndroidBitmapAllocator implements BitmapBudget.Allocator<Bitmap> {
+    @Override
+    public Bitmap create(int width, int height, int config) {
+        return Bitmap.createBitmap(width, height, toConfig(config));
+    }
+
+    @Override
+    public boolean reconfigure(Bitmap bitmap, int width, int height, int config) {
+        if (bitmap.isRecycled() || BitmapBudget.bytesFor(width, height, config) > bitmap.getAllocationByteCount()) {
+            return false;
+        }
+        bitmap.reconfigure(width, height, toConfig(config));
+        // Undo setHasAlpha(false) from the last owner
+        bitmap.setHasAlpha(config == BitmapBudget.CONFIG_ARGB_8888);
+        bitmap.eraseColor(0);
+        return true;
+    }
+
+    @Override
+    public long getAllocationBytes(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    @Override
+    public void recycle(Bitmap bitmap) {
+        bitmap.recycle();
+    }
+
+    private static Bitmap.Config toConfig(int config) {
+        return config == BitmapBudget.CONFIG_RGB_565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+}
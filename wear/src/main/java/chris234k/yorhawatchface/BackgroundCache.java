@@ -0,0 +1,125 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Shader;
+
+/**
+ * The background color with the tinted grid on top, composited once into a surface sized bitmap.
+ *
+ * The grid paint combines a BitmapShader with a MULTIPLY color filter, which is expensive to
+ * rasterize over the whole screen every frame. Rebuilt only when the size or colors change, or on
+ * the next draw after the BitmapBudget trims it.
+ */
+public class BackgroundCache {
+    private final BitmapBudget<Bitmap> mBudget;
+    private final BitmapBudget.Client mClient;
+    private final Paint mBackgroundPaint = new Paint();
+    private final Paint mGridPaint = new Paint();
+    private final Paint mBlitPaint = new Paint();
+
+    private Bitmap mBitmap;
+    private int mWidth, mHeight;
+    private int mBackgroundColor, mGridColor;
+    private boolean mColorsSet;
+
+    /**
+     * @param name tells the caches apart in the budget's dump
+     */
+    public BackgroundCache(BitmapBudget<Bitmap> budget, String name) {
+        mBudget = budget;
+        mClient = new BitmapBudget.Client(name, BitmapBudget.TIER_CACHED) {
+            @Override
+            protected void onTrim() {
+                recycle();
+            }
+        };
+        mBlitPaint.setFilterBitmap(false);
+    }
+
+    /**
+     * The grid tile, loaded in the background. Until it's set the background is the plain color.
+     */
+    public void setGrid(Bitmap grid) {
+        BitmapShader shader = new BitmapShader(grid, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+        mGridPaint.setShader(shader);
+        if (mBitmap != null) {
+            drawLayers(new Canvas(mBitmap), mWidth, mHeight);
+        }
+    }
+
+    /**
+     * Rebuilds the cached bitmap if the size or colors differ from the last call.
+     */
+    public void update(int width, int height, int backgroundColor, int gridColor) {
+        boolean dirty = false;
+
+        if (!mColorsSet || backgroundColor != mBackgroundColor || gridColor != mGridColor) {
+            mBackgroundColor = backgroundColor;
+            mGridColor = gridColor;
+            mColorsSet = true;
+
+            mBackgroundPaint.setColor(backgroundColor);
+            // Setting color on Paint does not affect the drawing of the bitmap.
+            // Need to create a color filter, specifying the mode.
+            mGridPaint.setColorFilter(new PorterDuffColorFilter(gridColor, PorterDuff.Mode.MULTIPLY));
+            dirty = true;
+        }
+
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (mBitmap == null || width != mWidth || height != mHeight) {
+            recycle();
+            mWidth = width;
+            mHeight = height;
+            rebuild();
+        } else if (dirty) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        if (mBitmap == null) {
+            mBitmap = mBudget.acquire(mClient, mWidth, mHeight, BitmapBudget.CONFIG_ARGB_8888);
+        }
+        drawLayers(new Canvas(mBitmap), mWidth, mHeight);
+        // Lets the blit skip blending
+        mBitmap.setHasAlpha(false);
+    }
+
+    public void draw(Canvas canvas) {
+        if (mBitmap == null && mWidth > 0) {
+            rebuild(); // Trimmed since the last frame
+        }
+        mBudget.touch(mClient);
+        if (mBitmap == null) {
+            drawLayers(canvas, canvas.getWidth(), canvas.getHeight());
+            return;
+        }
+
+        canvas.drawBitmap(mBitmap, 0, 0, mBlitPaint);
+    }
+
+    private void drawLayers(Canvas canvas, int width, int height) {
+        canvas.drawRect(0, 0, width, height, mBackgroundPaint);
+        if (mGridPaint.getShader() != null) {
+            canvas.drawRect(0, 0, width, height, mGridPaint);
+        }
+    }
+
+    /**
+     * Hands the bitmap back to the budget, the next draw builds it again.
+     */
+    public void recycle() {
+        if (mBitmap != null) {
+            mBudget.release(mClient, mBitmap);
+            mBitmap = null;
+        }
+    }
+}
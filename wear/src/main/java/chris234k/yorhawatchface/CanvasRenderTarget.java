@@ -0,0 +1,247 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * RenderTarget backed by the watch face's Canvas. Text is drawn from glyph atlases, the background
+ * from a BackgroundCache and complication chips from a ChipCache of rendered bitmaps, all held by
+ * the ThemeBundle of the current theme (or of ambient).
+ *
+ * CanvasWatchFaceService hands out a whole new Canvas each frame and can't lock a dirty rect, so
+ * frames are drawn into a surface sized bitmap that persists between them. Partial frames repaint
+ * only the changed parts of it, then the whole bitmap is copied to the screen in one blit.
+ *
+ * Every bitmap comes from a BitmapBudget. The frame and each bundle's glyphs and chips can be
+ * trimmed between frames, and are rebuilt by the next one.
+ */
+public class CanvasRenderTarget implements RenderTarget {
+    private final BitmapBudget<Bitmap> mBudget;
+    // Font and size, each theme copies them in its own color
+    private final Paint mTimePaint, mDatePaint;
+    private final Paint mBlitPaint = new Paint();
+
+    // Every theme and ambient, built up front. Switching picks another bundle for the next frame.
+    private final ThemeSwitch<ThemeBundle> mThemes;
+    private ThemeBundle mBundle;
+    // Measuring is skipped when a text configuration comes back, e.g. toggling the 24 hour setting
+    private final GlyphMetricsCache mGlyphMetricsCache = new GlyphMetricsCache(8);
+
+    private FrameStats mFrameStats;
+    private Canvas mCanvas;
+    private boolean mAmbient, mLowBit;
+
+    // The last frame, kept for partial redraws
+    private Bitmap mFrameBitmap;
+    private Canvas mFrameCanvas;
+    private boolean mHasPreviousFrame;
+    private int mOffsetX, mOffsetY;
+
+    private final BitmapBudget.Client mFrameClient = new BitmapBudget.Client("frame", BitmapBudget.TIER_CACHED) {
+        @Override
+        protected void onTrim() {
+            recycleFrame();
+        }
+    };
+
+    public CanvasRenderTarget(final BitmapBudget<Bitmap> budget, Paint timePaint, Paint datePaint) {
+        mBudget = budget;
+        mTimePaint = timePaint;
+        mDatePaint = datePaint;
+        mBlitPaint.setFilterBitmap(false);
+        mThemes = new ThemeSwitch<>(new ThemeSwitch.Factory<ThemeBundle>() {
+            @Override
+            public ThemeBundle create(FaceTheme theme) {
+                return new ThemeBundle(theme, budget);
+            }
+        });
+        mBundle = mThemes.get(false);
+    }
+
+    /**
+     * Draws interactive frames with a FaceSettings theme from the next frame on. Only swaps a
+     * reference, everything the theme needs was built with the others.
+     */
+    public void setTheme(int theme) {
+        if (mThemes.setTheme(theme)) {
+            invalidateFrame();
+        }
+    }
+
+    public FaceTheme getTheme() {
+        return mThemes.get(false).getTheme();
+    }
+
+    /**
+     * Chips of the current interactive theme.
+     */
+    public ChipCache<Bitmap> getChipCache() {
+        return mThemes.get(false).getChipCache();
+    }
+
+    /**
+     * The grid tile, loaded in the background. Until it's set backgrounds are the plain color.
+     */
+    public void setGrid(Bitmap grid) {
+        for (int i = 0; i < mThemes.getBundleCount(); i++) {
+            mThemes.getBundle(i).setGrid(grid);
+        }
+        invalidateFrame();
+    }
+
+    /**
+     * Composites every theme's background for the new size.
+     */
+    public void setSurfaceSize(int width, int height) {
+        for (int i = 0; i < mThemes.getBundleCount(); i++) {
+            mThemes.getBundle(i).setSurfaceSize(width, height);
+        }
+        invalidateFrame();
+    }
+
+    /**
+     * Where to record how long backgrounds take to draw, null for nowhere.
+     */
+    public void setFrameStats(FrameStats stats) {
+        mFrameStats = stats;
+    }
+
+    /**
+     * Canvas to draw the next frame to.
+     */
+    public void setCanvas(Canvas canvas) {
+        mCanvas = canvas;
+    }
+
+    /**
+     * Shifts the finished frame when it's copied to the canvas, for burn-in protection. Uncovered
+     * edges are filled with the ambient background, so only use this for ambient frames.
+     */
+    public void setFrameOffset(int x, int y) {
+        mOffsetX = x;
+        mOffsetY = y;
+    }
+
+    /**
+     * Rasterizes every theme's glyphs with the current text paints, call after changing their
+     * size or font.
+     */
+    public void buildGlyphAtlases(String timeCharset, String dateCharset) {
+        invalidateFrame();
+        for (int i = 0; i < mThemes.getBundleCount(); i++) {
+            mThemes.getBundle(i).buildGlyphAtlases(mTimePaint, mDatePaint, timeCharset, dateCharset, mGlyphMetricsCache);
+        }
+    }
+
+    /**
+     * Something drawn changed outside of the render logic (e.g. the background), the next frame
+     * has to be drawn in full.
+     */
+    public void invalidateFrame() {
+        mHasPreviousFrame = false;
+    }
+
+    /**
+     * Hands every bitmap back to the budget.
+     */
+    public void recycle() {
+        for (int i = 0; i < mThemes.getBundleCount(); i++) {
+            mThemes.getBundle(i).recycle();
+        }
+        recycleFrame();
+    }
+
+    private void recycleFrame() {
+        if (mFrameBitmap != null) {
+            mBudget.release(mFrameClient, mFrameBitmap);
+            mFrameBitmap = null;
+            mFrameCanvas = null;
+        }
+        invalidateFrame();
+    }
+
+    @Override
+    public void beginFrame(boolean ambient, boolean lowBit) {
+        mAmbient = ambient;
+        mLowBit = lowBit;
+        mBundle = mThemes.get(ambient);
+        // Nothing this frame draws from can be trimmed until endFrame
+        mBudget.beginUse(mFrameClient);
+        mBundle.beginFrame();
+
+        int width = mCanvas.getWidth();
+        int height = mCanvas.getHeight();
+        if (mFrameBitmap == null || mFrameBitmap.getWidth() != width || mFrameBitmap.getHeight() != height) {
+            if (mFrameBitmap != null) {
+                mBudget.release(mFrameClient, mFrameBitmap);
+            }
+            mFrameBitmap = mBudget.acquire(mFrameClient, width, height, BitmapBudget.CONFIG_ARGB_8888);
+            // Every pixel is drawn over, lets the blit skip blending
+            mFrameBitmap.setHasAlpha(false);
+            mFrameCanvas = new Canvas(mFrameBitmap);
+            mHasPreviousFrame = false;
+        }
+    }
+
+    @Override
+    public void endFrame() {
+        if (mOffsetX != 0 || mOffsetY != 0) {
+            mCanvas.drawColor(FaceRenderer.COLOR_AMBIENT_BACKGROUND);
+        }
+        mCanvas.drawBitmap(mFrameBitmap, mOffsetX, mOffsetY, mBlitPaint);
+        mHasPreviousFrame = true;
+        mBundle.endFrame();
+        mBudget.endUse(mFrameClient);
+    }
+
+    @Override
+    public boolean hasPreviousFrame() {
+        return mHasPreviousFrame;
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+        mFrameCanvas.save();
+        mFrameCanvas.clipRect(left, top, right, bottom);
+    }
+
+    @Override
+    public void clearClip() {
+        mFrameCanvas.restore();
+    }
+
+    @Override
+    public void drawBackground() {
+        if (mFrameStats == null) {
+            mBundle.drawBackground(mFrameCanvas);
+            return;
+        }
+        long start = System.nanoTime();
+        mBundle.drawBackground(mFrameCanvas);
+        mFrameStats.recordBackgroundDraw(System.nanoTime() - start);
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mFrameCanvas.drawColor(color);
+    }
+
+    @Override
+    public void drawText(int style, char[] text, int start, int count, float x, float y, int align) {
+        mBundle.getAtlas(style, mLowBit).drawText(mFrameCanvas, text, start, count, x, y,
+                align == ALIGN_CENTER ? Paint.Align.CENTER : Paint.Align.LEFT);
+    }
+
+    @Override
+    public void drawChip(int slot, ChipData chip, float left, float top, float right, float bottom) {
+        Bitmap bitmap = mBundle.getChip(slot, chip, mAmbient, mLowBit, Math.round(right - left),
+                Math.round(bottom - top));
+        mFrameCanvas.drawBitmap(bitmap, Math.round(left), Math.round(top), mBlitPaint);
+    }
+
+    @Override
+    public GlyphMetrics getGlyphMetrics(int style) {
+        return mBundle.getAtlas(style, mLowBit).getMetrics();
+    }
+}
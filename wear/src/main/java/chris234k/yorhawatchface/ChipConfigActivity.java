@@ -0,0 +1,93 @@
+package chris234k.yorhawatchface;
+
+import android.app.Activity;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.wearable.complications.ComplicationHelperActivity;
+import android.support.wearable.complications.ComplicationProviderInfo;
+import android.support.wearable.complications.ProviderInfoRetriever;
+import android.view.View;
+import android.widget.Button;
+
+/**
+ * Picks the provider for each chip, opened from the gear under the face in the watch face picker.
+ * Lists the slots with what's in them, the system's provider chooser does the picking and the
+ * engine gets the new data through onComplicationDataUpdate.
+ */
+public class ChipConfigActivity extends Activity {
+    private static final int[] SLOT_LABELS = {R.string.chip_slot_left, R.string.chip_slot_right};
+
+    private ComponentName mWatchFace;
+    private ProviderInfoRetriever mProviderInfoRetriever;
+    private final Button[] mSlotButtons = new Button[FaceRenderer.CHIP_SLOTS];
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_chip_config);
+        mWatchFace = new ComponentName(this, YoRHaWatchFace.class);
+
+        mSlotButtons[0] = (Button) findViewById(R.id.chip_left);
+        mSlotButtons[1] = (Button) findViewById(R.id.chip_right);
+        for (int i = 0; i < mSlotButtons.length; i++) {
+            final int slot = i;
+            mSlotButtons[i].setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    pickProvider(slot);
+                }
+            });
+        }
+
+        // Lookups run on the loader thread, results come back on the main thread
+        mProviderInfoRetriever = new ProviderInfoRetriever(this, ResourceCache.get(this).getLoadExecutor());
+        mProviderInfoRetriever.init();
+        updateSlotLabels();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mProviderInfoRetriever.release();
+        super.onDestroy();
+    }
+
+    /**
+     * Opens the system's chooser, which also asks for the complication permission if needed.
+     */
+    private void pickProvider(int slot) {
+        startActivityForResult(ComplicationHelperActivity.createProviderChooserHelperIntent(
+                this, mWatchFace, YoRHaWatchFace.CHIP_IDS[slot], YoRHaWatchFace.CHIP_TYPES), slot);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode == RESULT_OK) {
+            updateSlotLabels();
+        }
+    }
+
+    private void updateSlotLabels() {
+        mProviderInfoRetriever.retrieveProviderInfo(new ProviderInfoRetriever.OnProviderInfoReceivedCallback() {
+            @Override
+            public void onProviderInfoReceived(int complicationId, ComplicationProviderInfo info) {
+                int slot = slotOf(complicationId);
+                if (slot < 0 || isDestroyed()) {
+                    return;
+                }
+                CharSequence provider = info != null ? info.providerName : getString(R.string.chip_provider_none);
+                mSlotButtons[slot].setText(getString(SLOT_LABELS[slot]) + "\n" + provider);
+            }
+        }, mWatchFace, YoRHaWatchFace.CHIP_IDS);
+    }
+
+    private static int slotOf(int complicationId) {
+        for (int i = 0; i < YoRHaWatchFace.CHIP_IDS.length; i++) {
+            if (YoRHaWatchFace.CHIP_IDS[i] == complicationId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
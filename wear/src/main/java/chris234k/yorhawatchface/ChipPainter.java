@@ -0,0 +1,154 @@
+package chris234k.yorhawatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+
+/**
+ * Renders complication chips in the menu style of the game: a solid bar in the text color with a
+ * square marker, the title and the value, and a gauge along the bottom for ranged values. Ambient
+ * chips are outlined on black instead.
+ *
+ * Used through a ChipCache, each chip is rendered into its own bitmap when its data changes.
+ */
+public class ChipPainter implements ChipCache.Renderer<Bitmap> {
+    private final Paint mTextPaint;
+    private final BitmapBudget<Bitmap> mBudget;
+    private final BitmapBudget.Client mClient;
+    private final Paint mFillPaint = new Paint();
+    private final Paint mLabelPaint = new Paint();
+    private final Canvas mCanvas = new Canvas();
+    private int mLabelColor;
+    private int mWidth, mHeight;
+
+    /**
+     * @param textPaint the chip color and font, read on every render
+     * @param client holds the chip bitmaps in budget
+     */
+    public ChipPainter(Paint textPaint, BitmapBudget<Bitmap> budget, BitmapBudget.Client client) {
+        mTextPaint = textPaint;
+        mBudget = budget;
+        mClient = client;
+        mLabelPaint.setTextAlign(Paint.Align.LEFT);
+    }
+
+    /**
+     * Color of the text drawn on the interactive chip, normally the background color.
+     */
+    public void setLabelColor(int labelColor) {
+        mLabelColor = labelColor;
+    }
+
+    /**
+     * Size of the chips rendered from now on.
+     */
+    public void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public Bitmap render(ChipData data, boolean ambient, boolean lowBit, Bitmap reuse) {
+        Bitmap bitmap = reuse;
+        if (bitmap == null || bitmap.getWidth() != mWidth || bitmap.getHeight() != mHeight) {
+            if (bitmap != null) {
+                mBudget.release(mClient, bitmap);
+            }
+            bitmap = mBudget.acquire(mClient, mWidth, mHeight, BitmapBudget.CONFIG_ARGB_8888);
+        }
+        mCanvas.setBitmap(bitmap);
+        mCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
+
+        float height = mHeight;
+        int chipColor = mTextPaint.getColor();
+        int labelColor = ambient ? chipColor : mLabelColor;
+
+        mFillPaint.setAntiAlias(!lowBit);
+        mFillPaint.setColor(chipColor);
+        if (ambient) {
+            // Outlined, ambient screens should stay mostly black
+            mFillPaint.setStyle(Paint.Style.STROKE);
+            mFillPaint.setStrokeWidth(1);
+            mCanvas.drawRect(0.5f, 0.5f, mWidth - 0.5f, mHeight - 0.5f, mFillPaint);
+        } else {
+            mFillPaint.setStyle(Paint.Style.FILL);
+            mCanvas.drawRect(0, 0, mWidth, mHeight, mFillPaint);
+        }
+
+        // Square marker, as on the game's menu items
+        mFillPaint.setStyle(Paint.Style.FILL);
+        mFillPaint.setColor(labelColor);
+        float marker = height * 0.2f;
+        float markerLeft = height * 0.2f;
+        mCanvas.drawRect(markerLeft, (height - marker) / 2, markerLeft + marker, (height + marker) / 2, mFillPaint);
+
+        mLabelPaint.setTypeface(mTextPaint.getTypeface());
+        mLabelPaint.setAntiAlias(!lowBit);
+        mLabelPaint.setColor(labelColor);
+
+        float textLeft = markerLeft * 2 + marker;
+        float baseline = height * 0.62f;
+        mLabelPaint.setTextSize(height * 0.3f);
+        mLabelPaint.setTextAlign(Paint.Align.LEFT);
+        mCanvas.drawText(data.getTitle(), textLeft, baseline, mLabelPaint);
+
+        mLabelPaint.setTextSize(height * 0.42f);
+        mLabelPaint.setTextAlign(Paint.Align.RIGHT);
+        mCanvas.drawText(data.getText(), mWidth - markerLeft, baseline, mLabelPaint);
+
+        if (data.getType() == ChipData.TYPE_RANGED_VALUE) {
+            float gaugeTop = height * 0.82f;
+            float gaugeBottom = height * 0.9f;
+            float gaugeRight = mWidth - markerLeft;
+            mFillPaint.setAlpha(0x60);
+            mCanvas.drawRect(textLeft, gaugeTop, gaugeRight, gaugeBottom, mFillPaint);
+            mFillPaint.setAlpha(0xFF);
+            mCanvas.drawRect(textLeft, gaugeTop, textLeft + (gaugeRight - textLeft) * data.getFraction(), gaugeBottom, mFillPaint);
+        }
+
+        mCanvas.setBitmap(null);
+        return bitmap;
+    }
+
+    /**
+     * Copies what a chip shows out of a provider's data, resolving time dependent text at
+     * nowMillis. Allocates, call when the data arrives or the minute changes, not per frame.
+     */
+    public static ChipData toChipData(Context context, ComplicationData data, long nowMillis) {
+        if (data == null) {
+            return ChipData.EMPTY;
+        }
+        switch (data.getType()) {
+            case ComplicationData.TYPE_SHORT_TEXT:
+                return ChipData.shortText(textOf(context, data.getShortText(), nowMillis),
+                        textOf(context, data.getShortTitle(), nowMillis));
+            case ComplicationData.TYPE_RANGED_VALUE:
+                return ChipData.rangedValue(textOf(context, data.getShortText(), nowMillis),
+                        textOf(context, data.getShortTitle(), nowMillis),
+                        data.getValue(), data.getMinValue(), data.getMaxValue());
+            default:
+                // Icons and images aren't drawn as chips
+                return ChipData.EMPTY;
+        }
+    }
+
+    private static String textOf(Context context, ComplicationText text, long nowMillis) {
+        if (text == null) {
+            return null;
+        }
+        CharSequence chars = text.getText(context, nowMillis);
+        return chars != null ? chars.toString() : null;
+    }
+}
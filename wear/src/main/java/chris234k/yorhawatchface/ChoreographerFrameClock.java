@@ -0,0 +1,40 @@
+package chris234k.yorhawatchface;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrameClock driven by vsync. Must be created on a looper thread (the engine's main thread).
+ */
+public class ChoreographerFrameClock extends FrameClock {
+    private final Choreographer mChoreographer;
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // Choreographer frame times share a time base with SystemClock.uptimeMillis
+            dispatchFrame(TimeUnit.NANOSECONDS.toMillis(frameTimeNanos));
+        }
+    };
+
+    public ChoreographerFrameClock() {
+        super(new TimeSource() {
+            @Override
+            public long uptimeMillis() {
+                return SystemClock.uptimeMillis();
+            }
+        });
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    @Override
+    protected void postFrame(long delayMillis) {
+        mChoreographer.postFrameCallbackDelayed(mFrameCallback, delayMillis);
+    }
+
+    @Override
+    protected void cancelFrame() {
+        mChoreographer.removeFrameCallback(mFrameCallback);
+    }
+}
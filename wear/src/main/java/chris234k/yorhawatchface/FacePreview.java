@@ -0,0 +1,80 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Typeface;
+
+/**
+ * Draws a PreviewSpec into an offscreen bitmap through the same FaceRenderer and
+ * CanvasRenderTarget as onDraw, in the spec's theme. Safe to call from several threads at once,
+ * each render gets its own paints, caches and budget. The typeface and grid are only read.
+ *
+ * Text sizes are in pixels, from the same dimens as the engine's, so the images match the face.
+ */
+public class FacePreview implements PreviewBatch.Renderer<Bitmap> {
+    private final Typeface mTypeface;
+    private final Bitmap mGrid;
+    private final float mTextSize, mRoundTextSize;
+
+    public FacePreview(Typeface typeface, Bitmap grid, float textSize, float roundTextSize) {
+        mTypeface = typeface;
+        mGrid = grid;
+        mTextSize = textSize;
+        mRoundTextSize = roundTextSize;
+    }
+
+    @Override
+    public Bitmap render(PreviewSpec spec) {
+        int width = spec.getWidth();
+        int height = spec.getHeight();
+        FaceRenderer renderer = PreviewBatch.newFaceRenderer(spec, spec.isRound() ? mRoundTextSize : mTextSize);
+
+        Paint timePaint = createTextPaint();
+        Paint datePaint = createTextPaint();
+        datePaint.setTextAlign(Paint.Align.CENTER);
+        DisplayState state = renderer.getDisplayState();
+        timePaint.setTextSize(state.getTimeTextSize());
+        datePaint.setTextSize(state.getDateTextSize());
+
+        // Nothing outlives the render, so nothing needs trimming
+        BitmapBudget<Bitmap> budget = new BitmapBudget<>(new AndroidBitmapAllocator(), Long.MAX_VALUE, 0);
+        CanvasRenderTarget target = new CanvasRenderTarget(budget, timePaint, datePaint);
+        target.setTheme(spec.getTheme());
+        if (mGrid != null) {
+            target.setGrid(mGrid);
+        }
+        target.setSurfaceSize(width, height);
+        TimeFormatter formatter = renderer.getTimeFormatter();
+        target.buildGlyphAtlases(formatter.getTimeCharset(), formatter.getDateCharset());
+
+        Bitmap preview = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(preview);
+        target.setCanvas(canvas);
+        renderer.render(target, PreviewSpec.TIME_MILLIS, spec.isAmbient(), false);
+        target.setCanvas(null);
+        target.recycle();
+
+        if (spec.isRound()) {
+            // Clear the corners a round screen doesn't have
+            Path outside = new Path();
+            outside.addCircle(width / 2f, height / 2f, Math.min(width, height) / 2f, Path.Direction.CW);
+            outside.setFillType(Path.FillType.INVERSE_WINDING);
+            Paint clear = new Paint(Paint.ANTI_ALIAS_FLAG);
+            clear.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+            canvas.drawPath(outside, clear);
+        }
+        return preview;
+    }
+
+    private Paint createTextPaint() {
+        Paint paint = new Paint();
+        paint.setAntiAlias(true);
+        paint.setTextAlign(Paint.Align.LEFT);
+        paint.setTypeface(mTypeface);
+        return paint;
+    }
+}
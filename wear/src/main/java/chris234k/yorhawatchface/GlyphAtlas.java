@@ -0,0 +1,175 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Pre-rendered glyphs for a fixed character set, drawn with bitmap blits instead of rasterizing
+ * the OTF every frame.
+ *
+ * Built once per text size (see onApplyWindowInsets), laid out from the set's GlyphMetrics.
+ * Characters outside of the set fall back to Paint.drawText with the metrics' fallback advance, so
+ * a missing glyph is slower but stays where the layout put it.
+ */
+public class GlyphAtlas {
+    private static final int PADDING = 1; // Keeps neighboring cells from bleeding into each other
+
+    private final Paint mTextPaint; // Used for fallback characters
+    private final Paint mBlitPaint;
+    private final Bitmap mBitmap;
+    private final BitmapBudget<Bitmap> mBudget;
+    private final BitmapBudget.Client mClient;
+
+    private final GlyphMetrics mMetrics;
+    private final char[] mChars; // Sorted, for binary search
+    private final Rect[] mCells;
+    private final int[] mCellLeft; // Offset from the pen position to the left edge of the cell
+    private final int mCellTop; // Offset from the baseline to the top of the cell
+
+    // Reused for every blit
+    private final Rect mDst = new Rect();
+
+    private GlyphAtlas(Paint textPaint, GlyphMetrics metrics, Bitmap bitmap, char[] chars, Rect[] cells, int[] cellLeft,
+                       int cellTop, BitmapBudget<Bitmap> budget, BitmapBudget.Client client) {
+        mTextPaint = textPaint;
+        mMetrics = metrics;
+        mBitmap = bitmap;
+        mChars = chars;
+        mCells = cells;
+        mCellLeft = cellLeft;
+        mCellTop = cellTop;
+        mBudget = budget;
+        mClient = client;
+
+        mBlitPaint = new Paint();
+        mBlitPaint.setFilterBitmap(false);
+    }
+
+    /**
+     * Measures every character in charset with paint, the slow part of a text size change. Cache
+     * the result per configuration, see GlyphMetricsCache.
+     */
+    public static GlyphMetrics measure(Paint paint, String charset) {
+        Paint textPaint = new Paint(paint);
+        textPaint.setTextAlign(Paint.Align.LEFT);
+
+        char[] chars = charset.toCharArray();
+        int length = chars.length;
+        float[] advances = new float[length], lefts = new float[length], tops = new float[length];
+        float[] rights = new float[length], bottoms = new float[length];
+        Rect bounds = new Rect();
+        for (int i = 0; i < length; i++) {
+            advances[i] = textPaint.measureText(chars, i, 1);
+            textPaint.getTextBounds(chars, i, 1, bounds);
+            lefts[i] = bounds.left;
+            tops[i] = bounds.top;
+            rights[i] = bounds.right;
+            bottoms[i] = bounds.bottom;
+        }
+        return GlyphMetrics.of(chars, advances, lefts, tops, rights, bottoms);
+    }
+
+    /**
+     * Rasterizes every character in charset with paint (copied, later changes to paint are
+     * ignored), laid out with metrics measured from the same paint and charset. The bitmap comes
+     * from budget, held by client until recycle.
+     */
+    public static GlyphAtlas build(Paint paint, String charset, GlyphMetrics glyphMetrics,
+                                   BitmapBudget<Bitmap> budget, BitmapBudget.Client client) {
+        Paint textPaint = new Paint(paint);
+        textPaint.setTextAlign(Paint.Align.LEFT);
+
+        char[] chars = charset.toCharArray();
+        Arrays.sort(chars);
+        chars = dedupe(chars);
+
+        Paint.FontMetricsInt metrics = textPaint.getFontMetricsInt();
+        int cellTop = metrics.top;
+        int cellHeight = metrics.bottom - metrics.top;
+
+        Rect[] cells = new Rect[chars.length];
+        int[] cellLeft = new int[chars.length];
+
+        // Lay the cells out in a single row, sized to fit each glyph's ink and advance
+        int x = PADDING;
+        for (int i = 0; i < chars.length; i++) {
+            int left = Math.min(0, (int) Math.floor(glyphMetrics.leftOf(chars[i])));
+            int right = Math.max((int) Math.ceil(glyphMetrics.advanceOf(chars[i])),
+                    (int) Math.ceil(glyphMetrics.rightOf(chars[i])));
+            cellLeft[i] = left;
+            cells[i] = new Rect(x, PADDING, x + right - left, PADDING + cellHeight);
+            x += right - left + PADDING;
+        }
+
+        Bitmap bitmap = budget.acquire(client, Math.max(x, 1), cellHeight + PADDING * 2, BitmapBudget.CONFIG_ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < chars.length; i++) {
+            canvas.drawText(chars, i, 1, cells[i].left - cellLeft[i], cells[i].top - cellTop, textPaint);
+        }
+
+        return new GlyphAtlas(textPaint, glyphMetrics, bitmap, chars, cells, cellLeft, cellTop, budget, client);
+    }
+
+    private static char[] dedupe(char[] sorted) {
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    public GlyphMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Draws text with its baseline at y, aligned around x like Paint.Align.
+     */
+    public void drawText(Canvas canvas, char[] text, int start, int count, float x, float y, Paint.Align align) {
+        float penX = alignedStart(mMetrics.measure(text, start, count), x, align);
+        for (int i = start; i < start + count; i++) {
+            penX += drawGlyph(canvas, text[i], penX, y);
+        }
+    }
+
+    private static float alignedStart(float width, float x, Paint.Align align) {
+        switch (align) {
+            case CENTER:
+                return x - width / 2;
+            case RIGHT:
+                return x - width;
+            default:
+                return x;
+        }
+    }
+
+    private float drawGlyph(Canvas canvas, char c, float penX, float y) {
+        int index = Arrays.binarySearch(mChars, c);
+        if (index < 0) {
+            canvas.drawText(String.valueOf(c), penX, y, mTextPaint);
+            return mMetrics.advanceOf(c);
+        }
+
+        // Snap to whole pixels so the blit is a straight copy, no filtering
+        Rect cell = mCells[index];
+        int left = Math.round(penX) + mCellLeft[index];
+        int top = Math.round(y) + mCellTop;
+        mDst.set(left, top, left + cell.width(), top + cell.height());
+        canvas.drawBitmap(mBitmap, cell, mDst, mBlitPaint);
+
+        return mMetrics.advanceOf(c);
+    }
+
+    /**
+     * Hands the bitmap back to the budget it came from.
+     */
+    public void recycle() {
+        mBudget.release(mClient, mBitmap);
+    }
+}
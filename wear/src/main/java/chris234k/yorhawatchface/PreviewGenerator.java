@@ -0,0 +1,103 @@
+package chris234k.yorhawatchface;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes a PNG of every PreviewSpec for the companion app and the store listing. Started with
+ * "adb shell dumpsys activity service YoRHaWatchFace previews", then pull the directory it logs.
+ *
+ * Previews render in parallel, one per core. Nothing is shared with the engines but the decoded
+ * typeface and grid.
+ */
+public final class PreviewGenerator {
+    private static final String TAG = "PreviewGenerator";
+
+    private PreviewGenerator() {
+    }
+
+    /**
+     * Returns right away, the previews are written once the resources are loaded.
+     *
+     * @return the directory they go to
+     */
+    public static File start(Context context, String fontPath) {
+        final Context appContext = context.getApplicationContext();
+        File external = appContext.getExternalFilesDir("previews");
+        final File dir = external != null ? external : new File(appContext.getFilesDir(), "previews");
+
+        ResourceCache resourceCache = ResourceCache.get(appContext);
+        final AsyncCache.Entry<Typeface> typeface = resourceCache.loadTypeface(fontPath);
+        final AsyncCache.Entry<Bitmap> grid = resourceCache.loadBitmap(R.drawable.grid);
+        final AtomicBoolean started = new AtomicBoolean();
+        Runnable onLoaded = new Runnable() {
+            @Override
+            public void run() {
+                // Both callbacks can see both done
+                if (!typeface.isDone() || !grid.isDone() || started.getAndSet(true)) {
+                    return;
+                }
+                // Off the loader, so the engines' loads don't wait behind the batch
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        generate(appContext, typeface.getValue(), grid.getValue(), dir);
+                    }
+                }, TAG).start();
+            }
+        };
+        typeface.whenDone(onLoaded, resourceCache.getLoadExecutor());
+        grid.whenDone(onLoaded, resourceCache.getLoadExecutor());
+        return dir;
+    }
+
+    private static void generate(Context context, Typeface typeface, Bitmap grid, File dir) {
+        long start = SystemClock.elapsedRealtime();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Couldn't create " + dir);
+            return;
+        }
+
+        Resources resources = context.getResources();
+        FacePreview preview = new FacePreview(typeface, grid, resources.getDimension(R.dimen.digital_text_size),
+                resources.getDimension(R.dimen.digital_text_size_round));
+
+        List<PreviewSpec> specs = PreviewSpec.all();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Bitmap> bitmaps = PreviewBatch.renderAll(specs, preview, executor);
+            for (int i = 0; i < specs.size(); i++) {
+                write(bitmaps.get(i), new File(dir, specs.get(i).getName() + ".png"));
+                bitmaps.get(i).recycle();
+            }
+            Log.i(TAG, "Wrote " + specs.size() + " previews to " + dir + " in "
+                    + (SystemClock.elapsedRealtime() - start) + "ms");
+        } catch (Exception e) {
+            Log.e(TAG, "Couldn't generate previews", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void write(Bitmap bitmap, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Draws each interactive second ahead of time on its own thread, through a RenderAhead into two
+ * offscreen bitmaps, so onDraw only blits them. Opt-in and toggled at runtime, see
+ * YoRHaWatchFace.dump. Glitch frames are still drawn on the main thread.
+ *
+ * The thread keeps to itself: its own looper paces it, its FaceRenderer has a frame clock of its
+ * own and never animates, and it draws with its own paints, caches and bitmap budget. Settings
+ * reach it as an immutable Config. Costs two surface sized buffers and a second set of theme
+ * bundles while enabled.
+ */
+public class RenderThread {
+    /**
+     * Everything the thread's renderer needs, copied from the engine whenever any of it changes.
+     */
+    public static final class Config {
+        final int mWidth, mHeight;
+        final TimeZone mTimeZone;
+        final Locale mLocale;
+        final boolean mIs24Hour;
+        final float mBaseTextSize;
+        final Paint mTimePaint, mDatePaint;
+        final Bitmap mGrid;
+        final int mTheme;
+        final ChipData[] mChips;
+
+        /**
+         * Copies the paints and chips, the grid is shared and must not be recycled.
+         */
+        public Config(int width, int height, TimeZone timeZone, Locale locale, boolean is24Hour, float baseTextSize,
+                      Paint timePaint, Paint datePaint, Bitmap grid, int theme, ChipData[] chips) {
+            mWidth = width;
+            mHeight = height;
+            mTimeZone = timeZone;
+            mLocale = locale;
+            mIs24Hour = is24Hour;
+            mBaseTextSize = baseTextSize;
+            mTimePaint = new Paint(timePaint);
+            mDatePaint = new Paint(datePaint);
+            mGrid = grid;
+            mTheme = theme;
+            mChips = chips.clone();
+        }
+    }
+
+    /**
+     * One of the two buffers. Only the render thread replaces the bitmap, and only while the
+     * buffer is its back buffer, so the main thread never sees it change.
+     */
+    private static final class Frame {
+        Bitmap mBitmap;
+    }
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final RenderAhead<Frame> mAhead;
+    private final Frame[] mFrames = {new Frame(), new Frame()};
+    private final Paint mBlitPaint = new Paint();
+
+    // Render thread only
+    private FaceRenderer mFaceRenderer;
+    private CanvasRenderTarget mRenderTarget;
+    private BitmapBudget<Bitmap> mBudget;
+    private final Paint mTimePaint = new Paint(), mDatePaint = new Paint();
+    private final Canvas mCanvas = new Canvas();
+    private int mWidth, mHeight;
+
+    public RenderThread() {
+        mBlitPaint.setFilterBitmap(false);
+
+        mThread = new HandlerThread("FaceRender", Process.THREAD_PRIORITY_DISPLAY);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mAhead = new RenderAhead<>(mFrames[0], mFrames[1], new RenderAhead.Painter<Frame>() {
+            @Override
+            public boolean paint(Frame buffer, long frameTimeMillis) {
+                return paintFrame(buffer, frameTimeMillis);
+            }
+        }, new RenderAhead.Scheduler() {
+            @Override
+            public void post(Runnable task, long delayMillis) {
+                mHandler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void remove(Runnable task) {
+                mHandler.removeCallbacks(task);
+            }
+        }, new WakeupTimeline.WallClock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        });
+    }
+
+    /**
+     * Main thread: applies new settings. Frames drawn with the old ones are dropped.
+     */
+    public void configure(final Config config) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                applyConfig(config);
+            }
+        });
+        // Queued after the config, so the first frame of the restart already uses it
+        if (mAhead.isRunning()) {
+            mAhead.start();
+        }
+    }
+
+    /**
+     * Main thread: draws ahead while the face is visible and interactive. Frames drawn or in
+     * flight are dropped either way, they may be from before the mode changed.
+     */
+    public void setRunning(boolean running) {
+        if (running) {
+            mAhead.start();
+        } else {
+            mAhead.stop();
+        }
+    }
+
+    /**
+     * Main thread: blits the frame for the second of frameTimeMillis.
+     *
+     * @return false if it wasn't drawn ahead, draw it on the caller's thread instead
+     */
+    public boolean draw(Canvas canvas, long frameTimeMillis) {
+        Frame frame = mAhead.take(frameTimeMillis);
+        if (frame == null) {
+            return false;
+        }
+        canvas.drawBitmap(frame.mBitmap, 0, 0, mBlitPaint);
+        return true;
+    }
+
+    /**
+     * Main thread: stops the thread and frees everything it drew with.
+     */
+    public void quit() {
+        mAhead.stop();
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                release();
+            }
+        });
+        mThread.quitSafely();
+    }
+
+    private void applyConfig(Config config) {
+        if (mFaceRenderer == null) {
+            // Created here, so the frame clock's Choreographer is this thread's. Nothing starts
+            // it, the renderer's animations are off.
+            mFaceRenderer = new FaceRenderer(new ChoreographerFrameClock(), config.mTimeZone, config.mLocale,
+                    config.mIs24Hour);
+            mFaceRenderer.setAnimationsEnabled(false);
+            // A budget of its own, the main thread's trims can't reach into this thread
+            mBudget = new BitmapBudget<>(new AndroidBitmapAllocator(), Long.MAX_VALUE, 0);
+            mRenderTarget = new CanvasRenderTarget(mBudget, mTimePaint, mDatePaint);
+        }
+        mTimePaint.set(config.mTimePaint);
+        mDatePaint.set(config.mDatePaint);
+
+        mFaceRenderer.setTimeZone(config.mTimeZone);
+        mFaceRenderer.setLocale(config.mLocale);
+        mFaceRenderer.getDisplayState().setIs24Hour(config.mIs24Hour);
+        mFaceRenderer.getDisplayState().setBaseTextSize(config.mBaseTextSize);
+        mFaceRenderer.setSurfaceSize(config.mWidth, config.mHeight);
+        for (int i = 0; i < config.mChips.length; i++) {
+            mFaceRenderer.setChip(i, config.mChips[i]);
+        }
+        mRenderTarget.setTheme(config.mTheme);
+
+        if (config.mGrid != null) {
+            mRenderTarget.setGrid(config.mGrid);
+        }
+        mRenderTarget.setSurfaceSize(config.mWidth, config.mHeight);
+
+        TimeFormatter formatter = mFaceRenderer.getTimeFormatter();
+        mRenderTarget.buildGlyphAtlases(formatter.getTimeCharset(), formatter.getDateCharset());
+        mFaceRenderer.invalidateLayout();
+        mWidth = config.mWidth;
+        mHeight = config.mHeight;
+    }
+
+    private boolean paintFrame(Frame frame, long frameTimeMillis) {
+        if (mFaceRenderer == null) {
+            return false; // Not configured yet
+        }
+        if (frame.mBitmap == null || frame.mBitmap.getWidth() != mWidth || frame.mBitmap.getHeight() != mHeight) {
+            if (frame.mBitmap != null) {
+                frame.mBitmap.recycle();
+            }
+            frame.mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        }
+
+        mCanvas.setBitmap(frame.mBitmap);
+        mRenderTarget.setCanvas(mCanvas);
+        mFaceRenderer.render(mRenderTarget, frameTimeMillis, false, false);
+        mRenderTarget.setCanvas(null);
+        mCanvas.setBitmap(null);
+        return true;
+    }
+
+    private void release() {
+        if (mRenderTarget != null) {
+            mRenderTarget.recycle();
+        }
+        // Stopped, the main thread won't take either buffer again
+        for (Frame frame : mFrames) {
+            if (frame.mBitmap != null) {
+                frame.mBitmap.recycle();
+                frame.mBitmap = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package chris234k.yorhawatchface;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Typefaces and bitmaps shared by every engine in the process, each decoded once on a background
+ * thread. Also holds the process wide BitmapBudget every cache draws from.
+ *
+ * Nothing here is ever recycled, engines only borrow the values. Decoded bitmaps are pinned in
+ * the budget.
+ */
+public final class ResourceCache {
+    // Shares of the heap the bitmap caches may hold, and keep free for reuse
+    private static final int BITMAP_BUDGET_DIVISOR = 8;
+    private static final int BITMAP_POOL_DIVISOR = 32;
+
+    private static ResourceCache sInstance;
+
+    public static synchronized ResourceCache get(Context context) {
+        if (sInstance == null) {
+            sInstance = new ResourceCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final Context mContext;
+    private final AsyncCache<String, Typeface> mTypefaces;
+    private final AsyncCache<Integer, Bitmap> mBitmaps;
+    private final Executor mLoader;
+    private final BitmapBudget<Bitmap> mBitmapBudget;
+    private final BitmapBudget.Client mPinned = new BitmapBudget.Client("resources", BitmapBudget.TIER_PINNED) {
+        @Override
+        protected void onTrim() {
+        }
+    };
+    private final Executor mMainThreadExecutor = new Executor() {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            mHandler.post(command);
+        }
+    };
+
+    private ResourceCache(Context context) {
+        mContext = context;
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long heapBytes = activityManager.getMemoryClass() * 1024L * 1024L;
+        mBitmapBudget = new BitmapBudget<>(new AndroidBitmapAllocator(), heapBytes / BITMAP_BUDGET_DIVISOR,
+                heapBytes / BITMAP_POOL_DIVISOR);
+
+        // One thread, loads run in the order they're asked for
+        ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "ResourceCache");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mLoader = loader;
+        mTypefaces = new AsyncCache<>(loader);
+        mBitmaps = new AsyncCache<>(loader);
+    }
+
+    public AsyncCache.Entry<Typeface> loadTypeface(final String assetPath) {
+        return mTypefaces.get(assetPath, new AsyncCache.Loader<Typeface>() {
+            @Override
+            public Typeface load() throws Exception {
+                return Typeface.createFromAsset(mContext.getAssets(), assetPath);
+            }
+        });
+    }
+
+    public AsyncCache.Entry<Bitmap> loadBitmap(final int resId) {
+        return mBitmaps.get(resId, new AsyncCache.Loader<Bitmap>() {
+            @Override
+            public Bitmap load() throws Exception {
+                Bitmap bitmap = BitmapFactory.decodeResource(mContext.getResources(), resId);
+                if (bitmap != null) {
+                    mBitmapBudget.track(mPinned, bitmap);
+                }
+                return bitmap;
+            }
+        });
+    }
+
+    /**
+     * For every cached bitmap drawn on the main thread. Answer onTrimMemory with trim.
+     */
+    public BitmapBudget<Bitmap> getBitmapBudget() {
+        return mBitmapBudget;
+    }
+
+    /**
+     * The loading thread, for other per process state read from disk.
+     */
+    public Executor getLoadExecutor() {
+        return mLoader;
+    }
+
+    /**
+     * For whenDone callbacks that touch the engine.
+     */
+    public Executor getMainThreadExecutor() {
+        return mMainThreadExecutor;
+    }
+}
@@ -0,0 +1,63 @@
+package chris234k.yorhawatchface;
+
+import android.util.Log;
+
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.Wearable;
+import com.google.android.gms.wearable.WearableListenerService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives settings blobs from the companion app and hands them to the SettingsStore. Answers a
+ * gap in the deltas by asking the phone for a full snapshot. Anything else it can't use is logged
+ * and dropped, a resync would only bring the same blob back.
+ *
+ * Messages arrive on a binder thread, blocking here is fine.
+ */
+public class SettingsListenerService extends WearableListenerService {
+    private static final String TAG = "SettingsListener";
+    private static final long CONNECT_TIMEOUT_S = 10;
+
+    @Override
+    public void onMessageReceived(MessageEvent messageEvent) {
+        if (!SettingsTransport.PATH_SETTINGS.equals(messageEvent.getPath())) {
+            return;
+        }
+
+        int result;
+        try {
+            result = SettingsStore.get(this).receive(messageEvent.getData());
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Couldn't decode settings", e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (result == SettingsReceiver.RESULT_NEEDS_RESYNC) {
+            requestResync(messageEvent.getSourceNodeId());
+        } else if (result == SettingsReceiver.RESULT_UNKNOWN_VERSION) {
+            // The phone app is a different version, its settings wait for an update on one side
+            Log.w(TAG, "Dropped settings version " + messageEvent.getData()[0] + ", expected "
+                    + SettingsCodec.VERSION);
+        }
+    }
+
+    private void requestResync(String nodeId) {
+        GoogleApiClient client = new GoogleApiClient.Builder(this)
+                .addApi(Wearable.API)
+                .build();
+        ConnectionResult connection = client.blockingConnect(CONNECT_TIMEOUT_S, TimeUnit.SECONDS);
+        if (!connection.isSuccess()) {
+            Log.w(TAG, "Couldn't request settings: " + connection);
+            return;
+        }
+        Wearable.MessageApi.sendMessage(client, nodeId, SettingsTransport.PATH_RESYNC, null)
+                .await(CONNECT_TIMEOUT_S, TimeUnit.SECONDS);
+        client.disconnect();
+    }
+}
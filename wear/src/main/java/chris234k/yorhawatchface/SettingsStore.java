@@ -0,0 +1,165 @@
+package chris234k.yorhawatchface;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * The settings synced from the phone, shared by the engines and SettingsListenerService. Kept as
+ * a full snapshot in one small file, read once per process on the ResourceCache thread.
+ *
+ * Listeners are called on the main thread whenever the settings change, including once the file
+ * has been read.
+ */
+public final class SettingsStore {
+    private static final String TAG = "SettingsStore";
+    private static final String FILE_NAME = "face_settings.bin";
+
+    public interface Listener {
+        void onSettingsChanged(FaceSettings settings);
+    }
+
+    private static SettingsStore sInstance;
+
+    public static synchronized SettingsStore get(Context context) {
+        if (sInstance == null) {
+            sInstance = new SettingsStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final AtomicFile mFile;
+    private final Executor mMainThreadExecutor;
+    private final AsyncCache.Entry<SettingsReceiver> mReceiver;
+    // Only touched on the main thread
+    private final ArrayList<Listener> mListeners = new ArrayList<>();
+
+    private SettingsStore(Context context) {
+        mFile = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        ResourceCache resourceCache = ResourceCache.get(context);
+        mMainThreadExecutor = resourceCache.getMainThreadExecutor();
+        AsyncCache<String, SettingsReceiver> cache = new AsyncCache<>(resourceCache.getLoadExecutor());
+        mReceiver = cache.get(FILE_NAME, new AsyncCache.Loader<SettingsReceiver>() {
+            @Override
+            public SettingsReceiver load() throws Exception {
+                return read();
+            }
+        });
+    }
+
+    private SettingsReceiver read() {
+        try {
+            return new SettingsReceiver(mFile.readFully());
+        } catch (FileNotFoundException e) {
+            return new SettingsReceiver(); // Never synced
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Dropping unreadable settings", e);
+            return new SettingsReceiver();
+        }
+    }
+
+    /**
+     * Calls listener with the current settings once they're read, then on every change.
+     */
+    public void addListener(final Listener listener) {
+        mListeners.add(listener);
+        mReceiver.whenDone(new Runnable() {
+            @Override
+            public void run() {
+                if (mListeners.contains(listener)) {
+                    listener.onSettingsChanged(getSettings());
+                }
+            }
+        }, mMainThreadExecutor);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Defaults until the file has been read.
+     */
+    public FaceSettings getSettings() {
+        SettingsReceiver receiver = mReceiver.getValue();
+        if (receiver == null) {
+            return FaceSettings.DEFAULT;
+        }
+        synchronized (receiver) {
+            return receiver.getSettings();
+        }
+    }
+
+    /**
+     * Applies a blob from the phone and stores the result. Blocks until the file has been read, so
+     * only call off the main thread.
+     *
+     * @return a SettingsReceiver.RESULT_ constant
+     * @throws IllegalArgumentException if blob is malformed
+     */
+    public int receive(byte[] blob) throws InterruptedException {
+        SettingsReceiver receiver = awaitReceiver();
+        int result;
+        final FaceSettings settings;
+        synchronized (receiver) {
+            result = receiver.receive(blob);
+            if (result != SettingsReceiver.RESULT_APPLIED) {
+                return result;
+            }
+            settings = receiver.getSettings();
+            write(receiver.toSnapshot());
+        }
+
+        mMainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : new ArrayList<>(mListeners)) {
+                    listener.onSettingsChanged(settings);
+                }
+            }
+        });
+        return result;
+    }
+
+    private SettingsReceiver awaitReceiver() throws InterruptedException {
+        final Object done = new Object();
+        synchronized (done) {
+            mReceiver.whenDone(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (done) {
+                        done.notifyAll();
+                    }
+                }
+            }, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+            while (!mReceiver.isDone()) {
+                done.wait();
+            }
+        }
+        return mReceiver.getValue();
+    }
+
+    private void write(byte[] snapshot) {
+        FileOutputStream out = null;
+        try {
+            out = mFile.startWrite();
+            out.write(snapshot);
+            mFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't store settings", e);
+            mFile.failWrite(out);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package chris234k.yorhawatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Everything one FaceTheme draws with: its text paints, the background with the grid tinted by
+ * its color filter, its glyph atlases and its chips. Colors are fixed when the bundle is built.
+ * Layout changes (surface and text size) rebuild the contents, theme switches never do.
+ *
+ * Bitmaps come from the BitmapBudget under this theme's name. A bundle that isn't on screen is
+ * the least recently used, so it's evicted first. If that happens, switching back rebuilds it
+ * in the first frame.
+ */
+public class ThemeBundle {
+    private final FaceTheme mTheme;
+    private final BitmapBudget<Bitmap> mBudget;
+    private final Paint mTimePaint = new Paint(), mDatePaint = new Paint();
+    // No grid in ambient, FaceRenderer clears to black instead
+    private final BackgroundCache mBackgroundCache;
+
+    // Low bit glyphs only exist in ambient
+    private GlyphAtlas mTimeAtlas, mTimeAtlasLowBit, mDateAtlas, mDateAtlasLowBit;
+    private String mTimeCharset, mDateCharset;
+    private GlyphMetricsCache mGlyphMetricsCache;
+
+    private final ChipPainter mChipPainter;
+    private final ChipCache<Bitmap> mChipCache;
+
+    private final BitmapBudget.Client mGlyphClient;
+    private final BitmapBudget.Client mChipClient;
+
+    public ThemeBundle(FaceTheme theme, BitmapBudget<Bitmap> budget) {
+        mTheme = theme;
+        mBudget = budget;
+        mBackgroundCache = theme.isAmbient() ? null : new BackgroundCache(budget, "background (" + theme + ")");
+
+        mGlyphClient = new BitmapBudget.Client("glyph atlases (" + theme + ")", BitmapBudget.TIER_LAYOUT) {
+            @Override
+            protected void onTrim() {
+                recycleGlyphAtlases();
+            }
+        };
+        mChipClient = new BitmapBudget.Client("chips (" + theme + ")", BitmapBudget.TIER_CACHED) {
+            @Override
+            protected void onTrim() {
+                recycleChips();
+            }
+        };
+        mChipPainter = new ChipPainter(mDatePaint, budget, mChipClient);
+        mChipPainter.setLabelColor(theme.getBackgroundColor());
+        mChipCache = new ChipCache<>(FaceRenderer.CHIP_SLOTS, mChipPainter);
+    }
+
+    public FaceTheme getTheme() {
+        return mTheme;
+    }
+
+    public ChipCache<Bitmap> getChipCache() {
+        return mChipCache;
+    }
+
+    public void setGrid(Bitmap grid) {
+        if (mBackgroundCache != null) {
+            mBackgroundCache.setGrid(grid);
+        }
+    }
+
+    /**
+     * Composites the background for the surface size right away, so a switch to this theme
+     * finds it ready.
+     */
+    public void setSurfaceSize(int width, int height) {
+        if (mBackgroundCache != null) {
+            mBackgroundCache.update(width, height, mTheme.getBackgroundColor(), mTheme.getGridColor());
+        }
+    }
+
+    /**
+     * Copies the font and size of the given paints in this theme's text color, then rasterizes
+     * the glyphs.
+     */
+    public void buildGlyphAtlases(Paint timePaint, Paint datePaint, String timeCharset, String dateCharset,
+                                  GlyphMetricsCache metricsCache) {
+        recycleGlyphAtlases();
+        mChipCache.invalidate();
+        mTimePaint.set(timePaint);
+        mTimePaint.setColor(mTheme.getTextColor());
+        mDatePaint.set(datePaint);
+        mDatePaint.setColor(mTheme.getTextColor());
+        mTimeCharset = timeCharset;
+        mDateCharset = dateCharset;
+        mGlyphMetricsCache = metricsCache;
+        ensureGlyphAtlases();
+    }
+
+    /**
+     * Builds the atlases again after a trim, with the last charsets.
+     */
+    private void ensureGlyphAtlases() {
+        if (mTimeAtlas != null || mTimeCharset == null) {
+            return;
+        }
+        mTimeAtlas = buildGlyphAtlas(mTimePaint, mTimeCharset);
+        mDateAtlas = buildGlyphAtlas(mDatePaint, mDateCharset);
+        if (!mTheme.isAmbient()) {
+            return;
+        }
+
+        Paint lowBitPaint = new Paint(mTimePaint);
+        lowBitPaint.setAntiAlias(false);
+        mTimeAtlasLowBit = buildGlyphAtlas(lowBitPaint, mTimeCharset);
+
+        lowBitPaint.set(mDatePaint);
+        lowBitPaint.setAntiAlias(false);
+        mDateAtlasLowBit = buildGlyphAtlas(lowBitPaint, mDateCharset);
+    }
+
+    private GlyphAtlas buildGlyphAtlas(Paint paint, String charset) {
+        // Color doesn't change the metrics, the themes share them
+        String key = GlyphMetricsCache.key(paint.getTextSize(), System.identityHashCode(paint.getTypeface()),
+                paint.isAntiAlias(), charset);
+        GlyphMetrics metrics = mGlyphMetricsCache.get(key);
+        if (metrics == null) {
+            metrics = GlyphAtlas.measure(paint, charset);
+            mGlyphMetricsCache.put(key, metrics);
+        }
+        return GlyphAtlas.build(paint, charset, metrics, mBudget, mGlyphClient);
+    }
+
+    /**
+     * Start of a frame drawn with this bundle, nothing it holds can be trimmed until endFrame.
+     */
+    public void beginFrame() {
+        mBudget.beginUse(mGlyphClient);
+        mBudget.beginUse(mChipClient);
+        ensureGlyphAtlases();
+    }
+
+    public void endFrame() {
+        mBudget.endUse(mChipClient);
+        mBudget.endUse(mGlyphClient);
+    }
+
+    public void drawBackground(Canvas canvas) {
+        if (mBackgroundCache != null) {
+            mBackgroundCache.draw(canvas);
+        } else {
+            canvas.drawColor(mTheme.getBackgroundColor());
+        }
+    }
+
+    public GlyphAtlas getAtlas(int style, boolean lowBit) {
+        // Low bit ambient gets the aliased glyphs
+        if (style == RenderTarget.TEXT_TIME) {
+            return lowBit && mTimeAtlasLowBit != null ? mTimeAtlasLowBit : mTimeAtlas;
+        }
+        return lowBit && mDateAtlasLowBit != null ? mDateAtlasLowBit : mDateAtlas;
+    }
+
+    public Bitmap getChip(int slot, ChipData chip, boolean ambient, boolean lowBit, int width, int height) {
+        if (width != mChipPainter.getWidth() || height != mChipPainter.getHeight()) {
+            mChipPainter.setSize(width, height);
+            mChipCache.invalidate();
+        }
+        // Only rendered when the data or mode changed, otherwise a blit
+        return mChipCache.get(slot, chip, ambient, lowBit);
+    }
+
+    /**
+     * Hands every bitmap back to the budget.
+     */
+    public void recycle() {
+        recycleGlyphAtlases();
+        mTimeCharset = null;
+        mDateCharset = null;
+        if (mBackgroundCache != null) {
+            mBackgroundCache.recycle();
+        }
+        recycleChips();
+    }
+
+    private void recycleChips() {
+        for (int i = 0; i < mChipCache.getSlotCount(); i++) {
+            Bitmap chip = mChipCache.peek(i);
+            if (chip != null) {
+                mBudget.release(mChipClient, chip);
+            }
+        }
+        mChipCache.clear();
+    }
+
+    private void recycleGlyphAtlases() {
+        if (mTimeAtlas != null) {
+            mTimeAtlas.recycle();
+            mDateAtlas.recycle();
+            if (mTimeAtlasLowBit != null) {
+                mTimeAtlasLowBit.recycle();
+                mDateAtlasLowBit.recycle();
+            }
+            mTimeAtlas = null;
+            mDateAtlas = null;
+            mTimeAtlasLowBit = null;
+            mDateAtlasLowBit = null;
+        }
+    }
+}
@@ -16,37 +16,41 @@
 
 package chris234k.yorhawatchface;
 
+import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.res.Resources;
+import android.database.ContentObserver;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.BitmapShader;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.ColorFilter;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
-import android.graphics.Shader;
 import android.graphics.Typeface;
+import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.Vibrator;
+import android.provider.Settings;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.SystemProviders;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.format.DateFormat;
 import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.WindowInsets;
 
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.lang.ref.WeakReference;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
@@ -55,16 +59,112 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
      * Update rate in milliseconds for interactive mode.
      */
         private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
-        private static final long TEXT_DRAW_UPDATE_RATE_MS = TimeUnit.MILLISECONDS.toMillis(1000 / 60);
 
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for rendering the next minute's ambient frame ahead of time.
+     */
+    private static final int MSG_PRERENDER_AMBIENT = 1;
+
+    /**
+     * Animation frame rate while power is fine, see FrameBudget for when it drops.
+     */
+    private static final int MAX_ANIMATION_FPS = FrameBudget.FPS_FULL;
+
+    /**
+     * Complication ids, one per chip slot, left to right, and the data types a chip can show.
+     */
+    static final int[] CHIP_IDS = {0, 1};
+    static final int[] CHIP_TYPES = {ComplicationData.TYPE_RANGED_VALUE, ComplicationData.TYPE_SHORT_TEXT};
+
+    private static final String TAG = "YoRHaWatchFace";
+
+    private static final String FONT_PATH = "fonts/FOT-RodinBokutoh Pro M.otf";
+
+    /**
+     * How often the frame stats summary is logged.
+     */
+    private static final long STATS_LOG_INTERVAL_MS = TimeUnit.MINUTES.toMillis(15);
+
+    // Shared by every engine, dumped with "adb shell dumpsys activity service YoRHaWatchFace". Add
+    // "previews" to write preview images instead, see PreviewGenerator, or "render-thread on" or
+    // "off" to switch drawing ahead on a RenderThread.
+    private final FrameStats mFrameStats = new FrameStats(SystemClock.elapsedRealtime());
+    private long mLastStatsLogTime = SystemClock.elapsedRealtime();
+    // The newest engine's startup, also dumped
+    private volatile StartupTrace mStartupTrace;
+
+    // Main thread only
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Engine> mEngines = new ArrayList<>();
+    private boolean mRenderThreadEnabled;
+
     @Override
     public Engine onCreateEngine() {
-        return new Engine();
+        // Started before the engine is constructed, so the trace covers all of its setup
+        StartupTrace trace = new StartupTrace(SystemClock.elapsedRealtime());
+        mStartupTrace = trace;
+        return new Engine(trace);
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        if (args != null && args.length > 0 && "previews".equals(args[0])) {
+            writer.println("Writing previews to " + PreviewGenerator.start(this, FONT_PATH));
+            return;
+        }
+        if (args != null && args.length > 1 && "render-thread".equals(args[0])) {
+            final boolean enabled = "on".equals(args[1]);
+            // Dumps arrive on a binder thread
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    setRenderThreadEnabled(enabled);
+                }
+            });
+            writer.println("Render thread " + (enabled ? "on" : "off"));
+            return;
+        }
+        mFrameStats.dump(writer, SystemClock.elapsedRealtime());
+        StartupTrace trace = mStartupTrace;
+        if (trace != null) {
+            writer.println(trace);
+        }
+        ResourceCache.get(this).getBitmapBudget().dump(writer);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Trimmed caches are rebuilt by the next frame that needs them
+        long freed = ResourceCache.get(this).getBitmapBudget().trim(level);
+        Log.i(TAG, "onTrimMemory(" + level + ") freed " + freed / 1024 + " KB of bitmaps");
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    private void setRenderThreadEnabled(boolean enabled) {
+        mRenderThreadEnabled = enabled;
+        for (Engine engine : mEngines) {
+            engine.setRenderThreadEnabled(enabled);
+        }
+    }
+
+    private void maybeLogFrameStats() {
+        long now = SystemClock.elapsedRealtime();
+        if (now - mLastStatsLogTime >= STATS_LOG_INTERVAL_MS) {
+            mLastStatsLogTime = now;
+            Log.i(TAG, mFrameStats.toCompactString(now));
+        }
     }
 
     private static class EngineHandler extends Handler {
@@ -82,99 +182,241 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_PRERENDER_AMBIENT:
+                        engine.handlePrerenderAmbientMessage();
+                        break;
                 }
             }
         }
     }
 
     private class Engine extends CanvasWatchFaceService.Engine {
+        private final StartupTrace mStartupTrace;
 
         final Handler mUpdateTimeHandler = new EngineHandler(this);
         boolean mRegisteredTimeZoneReceiver = false;
-        Paint mBackgroundPaint, mGridPaint, mTimePaint, mDatePaint;
-        boolean mAmbient;
-        Calendar mCalendar;
+        // Font and size only, each theme draws them in its own colors
+        Paint mTimePaint, mDatePaint;
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mFaceRenderer.setTimeZone(TimeZone.getDefault());
+                mTimeline.setTimeZone(TimeZone.getDefault());
+                mAmbientFrames.invalidate();
+                configureRenderThread();
                 invalidate();
             }
         };
+        final BroadcastReceiver mDisplayStateReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+                    if (mFaceRenderer.setLocale(Locale.getDefault())) {
+                        updateTextPaints();
+                    }
+                } else {
+                    // ACTION_TIME_CHANGED, the date may be on another day now
+                    mFaceRenderer.onTimeSet();
+                    mTimeline.onTimeSet();
+                }
+                mAmbientFrames.invalidate();
+                configureRenderThread();
+                invalidate();
+            }
+        };
+        final BroadcastReceiver mPowerReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                updateFrameBudget(intent);
+            }
+        };
+        // NOTE(chris) there's no broadcast for the 12/24 hour setting, watch the setting itself
+        final ContentObserver m24HourObserver = new ContentObserver(mUpdateTimeHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                update24Hour();
+                invalidate();
+            }
+        };
+        // Settings from the companion app, defaults until they're read
+        private FaceSettings mSettings = FaceSettings.DEFAULT;
+        final SettingsStore.Listener mSettingsListener = new SettingsStore.Listener() {
+            @Override
+            public void onSettingsChanged(FaceSettings settings) {
+                applySettings(settings);
+            }
+        };
 
         /**
          * Whether the display supports fewer bits for each color in ambient mode. When true, we
          * disable anti-aliasing in ambient mode.
          */
         private boolean mLowBitAmbient;
+
+        // Text animation, every animated element steps on the same frame
+        private FrameClock mFrameClock;
+        // When to wake up, and for what
+        private WakeupTimeline mTimeline;
+        private WakeupScheduler mScheduler;
+        // All of the drawing logic, drawn to the canvas through mRenderTarget
+        private FaceRenderer mFaceRenderer;
+        private CanvasRenderTarget mRenderTarget;
+        private AmbientFrameCache mAmbientFrames;
+        // Draws interactive seconds ahead while enabled, null otherwise
+        private RenderThread mRenderThread;
         private int mWidth, mHeight;
-        private float mCenterX, mCenterY;
-
-        private final Rect mTextBounds = new Rect();
-        private String mDateStr;
-
-        // Text animation
-        private GlitchTextWriter mGlitchTimeWriter, mGlitchDateWriter;
-        private boolean mForceAnimationStart;
-        // Don't want the text adjusting with each number changed
-        private boolean isTextPositionCalculated;
-        private float mTextX, mTextY;
-        private long mLastAnimationCompletionTime;
-        private ICompletionCallback mOnTextAnimationComplete = new ICompletionCallback() {
-            // Callback updates last animation time
-                @Override
-                public void onComplete() {
-                    mLastAnimationCompletionTime = System.currentTimeMillis();
-                }
-        };
-        
+        private final FrameBudget mFrameBudget = new FrameBudget(MAX_ANIMATION_FPS);
+
+        // Shared with other engines, a placeholder is drawn until both are loaded and applied
+        private AsyncCache.Entry<Typeface> mTypeface;
+        private AsyncCache.Entry<Bitmap> mGrid;
+        private boolean mResourcesLoaded, mReadyToDraw, mDestroyed;
+
+        // Latest data from each provider, its text is resolved into chips once a minute
+        private final ComplicationData[] mComplicationData = new ComplicationData[FaceRenderer.CHIP_SLOTS];
+
+        Engine(StartupTrace startupTrace) {
+            mStartupTrace = startupTrace;
+        }
+
         @Override
         public void onCreate(SurfaceHolder holder) {
             super.onCreate(holder);
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(YoRHaWatchFace.this)
                     .setShowUnreadCountIndicator(true)
+                    .setAcceptsTapEvents(true)
                     .build());
-            Resources resources = YoRHaWatchFace.this.getResources();
+            setActiveComplications(CHIP_IDS);
+            // Until other providers are picked in ChipConfigActivity
+            setDefaultSystemComplicationProvider(CHIP_IDS[0], SystemProviders.WATCH_BATTERY,
+                    ComplicationData.TYPE_RANGED_VALUE);
+            setDefaultSystemComplicationProvider(CHIP_IDS[1], SystemProviders.STEP_COUNT,
+                    ComplicationData.TYPE_SHORT_TEXT);
+            ResourceCache resourceCache = ResourceCache.get(YoRHaWatchFace.this);
+            BitmapBudget<Bitmap> budget = resourceCache.getBitmapBudget();
+
+            mTimePaint = createTextPaint();
+            mDatePaint = createTextPaint();
+            mDatePaint.setTextAlign(Paint.Align.CENTER);
 
-            mBackgroundPaint = new Paint();
-            mBackgroundPaint.setColor(resources.getColor(R.color.background, null));
+            mFrameClock = new ChoreographerFrameClock();
+            mFrameClock.setInvalidator(new FrameClock.Invalidator() {
+                @Override
+                public void invalidate() {
+                    Engine.this.invalidate();
+                }
+            });
 
-            mTimePaint = new Paint();
-            mTimePaint = createTextPaint(resources.getColor(R.color.text, null));
+            mFaceRenderer = new FaceRenderer(mFrameClock, TimeZone.getDefault(), Locale.getDefault(),
+                    android.text.format.DateFormat.is24HourFormat(getApplicationContext()));
+            mFaceRenderer.setFrameStats(mFrameStats);
 
-            mGridPaint = new Paint();
-            // Setting color on Paint does not affect the drawing of the bitmap.
-            // Need to create a color filter, specifying the mode.
-            ColorFilter filter = new PorterDuffColorFilter(resources.getColor(R.color.grid, null), PorterDuff.Mode.MULTIPLY);
-            mGridPaint.setColorFilter(filter);
+            mTimeline = new WakeupTimeline(new WakeupTimeline.WallClock() {
+                @Override
+                public long currentTimeMillis() {
+                    return System.currentTimeMillis();
+                }
+            }, TimeZone.getDefault());
+            // The timeline decides when to glitch, instead of the renderer checking every frame
+            mScheduler = new WakeupScheduler(mTimeline, mFaceRenderer, mFrameClock, new WakeupScheduler.Host() {
+                @Override
+                public void postTimer(long delayMillis) {
+                    mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMillis);
+                }
 
-            Bitmap bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.grid);
-            BitmapShader shader = new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
-            mGridPaint.setShader(shader);
+                @Override
+                public void cancelTimer() {
+                    mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+                }
 
-            mDatePaint = new Paint();
-            mDatePaint = createTextPaint(resources.getColor(R.color.text, null));
-            mDatePaint.setTextAlign(Paint.Align.CENTER);
+                @Override
+                public void invalidate() {
+                    Engine.this.invalidate();
+                }
 
-            mCalendar = Calendar.getInstance();
+                @Override
+                public void onEvents(int events) {
+                    handleTimelineEvents(events);
+                }
 
-            mGlitchTimeWriter = new GlitchTextWriter(TEXT_DRAW_UPDATE_RATE_MS, "1234567890:");
-            mGlitchDateWriter = new GlitchTextWriter(TEXT_DRAW_UPDATE_RATE_MS, ""); // random chars are assigned later
+                @Override
+                public long elapsedRealtime() {
+                    return SystemClock.elapsedRealtime();
+                }
+            });
+            mScheduler.setFrameStats(mFrameStats);
+            // Every theme's background is composited once the surface size is known
+            mRenderTarget = new CanvasRenderTarget(budget, mTimePaint, mDatePaint);
+            mRenderTarget.setFrameStats(mFrameStats);
+            mAmbientFrames = new AmbientFrameCache(budget, mFaceRenderer, mRenderTarget);
+
+            // Decoded off the main thread, once per process
+            mTypeface = resourceCache.loadTypeface(FONT_PATH);
+            mGrid = resourceCache.loadBitmap(R.drawable.grid);
+            Runnable onLoaded = new Runnable() {
+                @Override
+                public void run() {
+                    onResourcesLoaded();
+                }
+            };
+            mTypeface.whenDone(onLoaded, resourceCache.getMainThreadExecutor());
+            mGrid.whenDone(onLoaded, resourceCache.getMainThreadExecutor());
 
-            updateDateStr();
+            updateChips(System.currentTimeMillis());
+            // Read on the loader thread, applied when it's done
+            SettingsStore.get(YoRHaWatchFace.this).addListener(mSettingsListener);
+
+            mEngines.add(this);
+            setRenderThreadEnabled(mRenderThreadEnabled);
+
+            mStartupTrace.mark("engine created", SystemClock.elapsedRealtime());
+            // Another engine may have loaded them already
+            onResourcesLoaded();
+        }
+
+        private void onResourcesLoaded() {
+            if (mResourcesLoaded || mDestroyed || !mTypeface.isDone() || !mGrid.isDone()) {
+                return;
+            }
+            mResourcesLoaded = true;
+            mStartupTrace.mark("resources loaded", SystemClock.elapsedRealtime());
+
+            Typeface typeface = mTypeface.getValue();
+            if (typeface == null) {
+                Log.e(TAG, "Couldn't load " + FONT_PATH, mTypeface.getError());
+            }
+            mTimePaint.setTypeface(typeface);
+            mDatePaint.setTypeface(typeface);
+
+            Bitmap grid = mGrid.getValue();
+            if (grid != null) {
+                mRenderTarget.setGrid(grid);
+            } else {
+                Log.e(TAG, "Couldn't load the grid", mGrid.getError());
+            }
+            mRenderTarget.invalidateFrame();
+
+            updateTextPaints();
+            invalidate();
         }
 
         @Override
         public void onDestroy() {
+            mDestroyed = true;
+            mEngines.remove(this);
+            setRenderThreadEnabled(false);
+            SettingsStore.get(YoRHaWatchFace.this).removeListener(mSettingsListener);
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mFrameClock.stop();
+            mUpdateTimeHandler.removeMessages(MSG_PRERENDER_AMBIENT);
+            mRenderTarget.recycle();
+            mAmbientFrames.recycle();
             super.onDestroy();
         }
 
-        private Paint createTextPaint(int textColor) {
+        private Paint createTextPaint() {
             Paint paint = new Paint();
-            paint.setColor(textColor);
-            paint.setTypeface(Typeface.createFromAsset(getAssets(), "fonts/FOT-RodinBokutoh Pro M.otf"));
             paint.setAntiAlias(true);
             paint.setTextAlign(Paint.Align.LEFT);
 
@@ -189,7 +431,15 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
                 registerReceiver();
 
                 // Update time zone in case it changed while we weren't visible.
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mFaceRenderer.setTimeZone(TimeZone.getDefault());
+                mTimeline.setTimeZone(TimeZone.getDefault());
+                // Same for the rest of the display state, nothing was listening
+                boolean textChanged = mFaceRenderer.setLocale(Locale.getDefault());
+                if (textChanged) {
+                    updateTextPaints();
+                }
+                update24Hour();
+                configureRenderThread();
                 invalidate();
             } else {
                 unregisterReceiver();
@@ -197,7 +447,8 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
 
             // Whether the timer should be running depends on whether we're visible (as well as
             // whether we're in ambient mode), so we may need to start or stop the timer.
-            updateTimer();
+            mScheduler.setVisible(visible);
+            updateRenderThread();
         }
 
         private void registerReceiver() {
@@ -207,6 +458,18 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
             mRegisteredTimeZoneReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
             YoRHaWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
+
+            IntentFilter displayFilter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+            displayFilter.addAction(Intent.ACTION_LOCALE_CHANGED);
+            YoRHaWatchFace.this.registerReceiver(mDisplayStateReceiver, displayFilter);
+            getContentResolver().registerContentObserver(
+                    Settings.System.getUriFor(Settings.System.TIME_12_24), false, m24HourObserver);
+
+            IntentFilter powerFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+            powerFilter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+            // Battery changes are sticky, the current state comes straight back
+            Intent battery = YoRHaWatchFace.this.registerReceiver(mPowerReceiver, powerFilter);
+            updateFrameBudget(battery);
         }
 
         private void unregisterReceiver() {
@@ -215,6 +478,165 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = false;
             YoRHaWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
+            YoRHaWatchFace.this.unregisterReceiver(mDisplayStateReceiver);
+            YoRHaWatchFace.this.unregisterReceiver(mPowerReceiver);
+            getContentResolver().unregisterContentObserver(m24HourObserver);
+        }
+
+        /**
+         * Lowers the animation frame rate on low battery or in power save mode.
+         *
+         * @param intent a battery or power save broadcast, may be null
+         */
+        private void updateFrameBudget(Intent intent) {
+            if (intent != null && Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+                int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+                boolean charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+                if (level >= 0 && scale > 0) {
+                    mFrameBudget.setBattery(level * 100 / scale, charging);
+                }
+            }
+
+            PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+            mFrameBudget.setPowerSave(powerManager.isPowerSaveMode());
+
+            mFrameClock.setFrameInterval(mFrameBudget.getFrameIntervalMillis());
+        }
+
+        private void applySettings(FaceSettings settings) {
+            if (settings.equals(mSettings)) {
+                return;
+            }
+            mSettings = settings;
+            // Prebuilt, the next frame just draws with the other bundle
+            mRenderTarget.setTheme(settings.getTheme());
+
+            mFrameBudget.setMaxFps(settings.getMaxFps());
+            updateFrameBudget(null);
+            update24Hour();
+
+            mAmbientFrames.invalidate();
+            mScheduler.setSettings(settings);
+            configureRenderThread();
+            invalidate();
+        }
+
+        private void update24Hour() {
+            boolean is24Hour = mSettings.is24Hour(
+                    android.text.format.DateFormat.is24HourFormat(getApplicationContext()));
+            if (mFaceRenderer.getDisplayState().setIs24Hour(is24Hour)) {
+                updateTextPaints();
+            }
+        }
+
+        /**
+         * Applies the display state's text sizes to the paints and rebuilds the glyph atlases. Runs
+         * when a setting changes, never per frame.
+         */
+        private void updateTextPaints() {
+            DisplayState state = mFaceRenderer.getDisplayState();
+            if (!state.hasTextSize() || !mResourcesLoaded) {
+                return; // Insets or the font aren't there yet, both call this when they are
+            }
+
+            mTimePaint.setTextSize(state.getTimeTextSize());
+            mDatePaint.setTextSize(state.getDateTextSize());
+
+            TimeFormatter formatter = mFaceRenderer.getTimeFormatter();
+            mRenderTarget.buildGlyphAtlases(formatter.getTimeCharset(), formatter.getDateCharset());
+            // Positions are measured with the atlas
+            mFaceRenderer.invalidateLayout();
+            mAmbientFrames.invalidate();
+            mReadyToDraw = true;
+            configureRenderThread();
+        }
+
+        void setRenderThreadEnabled(boolean enabled) {
+            if (enabled == (mRenderThread != null)) {
+                return;
+            }
+            if (enabled) {
+                mRenderThread = new RenderThread();
+                configureRenderThread();
+                updateRenderThread();
+            } else {
+                mRenderThread.quit();
+                mRenderThread = null;
+            }
+        }
+
+        /**
+         * Sends the current settings to the render thread, dropping any frames it drew with the
+         * old ones.
+         */
+        private void configureRenderThread() {
+            if (mRenderThread == null || !mReadyToDraw || mWidth <= 0 || mHeight <= 0) {
+                return;
+            }
+            mRenderThread.configure(new RenderThread.Config(mWidth, mHeight,
+                    TimeZone.getDefault(), mFaceRenderer.getTimeFormatter().getLocale(),
+                    mFaceRenderer.getDisplayState().is24Hour(),
+                    mFaceRenderer.getDisplayState().getBaseTextSize(),
+                    mTimePaint, mDatePaint, mGrid.getValue(), mSettings.getTheme(), chips()));
+        }
+
+        /**
+         * Draws ahead only while visible and interactive, ambient frames come from
+         * mAmbientFrames.
+         */
+        private void updateRenderThread() {
+            if (mRenderThread != null) {
+                mRenderThread.setRunning(isVisible() && !isInAmbientMode());
+            }
+        }
+
+        private ChipData[] chips() {
+            ChipData[] chips = new ChipData[FaceRenderer.CHIP_SLOTS];
+            for (int i = 0; i < chips.length; i++) {
+                chips[i] = mFaceRenderer.getChip(i);
+            }
+            return chips;
+        }
+
+        @Override
+        public void onComplicationDataUpdate(int complicationId, ComplicationData data) {
+            super.onComplicationDataUpdate(complicationId, data);
+            mComplicationData[complicationId] = data;
+            updateChips(System.currentTimeMillis());
+        }
+
+        /**
+         * Resolves the chips for nowMillis. Frames and ambient frames drawn ahead are dropped if any
+         * of them changed, a chip that didn't is left as is.
+         */
+        private void updateChips(long nowMillis) {
+            boolean changed = false;
+            for (int i = 0; i < FaceRenderer.CHIP_SLOTS; i++) {
+                ChipData chip = ChipPainter.toChipData(YoRHaWatchFace.this, mComplicationData[i], nowMillis);
+                changed |= mFaceRenderer.setChip(i, chip);
+            }
+            if (changed) {
+                mAmbientFrames.invalidate();
+                configureRenderThread();
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onTapCommand(int tapType, int x, int y, long eventTime) {
+            if (tapType != TAP_TYPE_TAP) {
+                return;
+            }
+            int slot = mFaceRenderer.chipAt(x, y);
+            ComplicationData data = slot >= 0 ? mComplicationData[slot] : null;
+            if (data != null && data.getTapAction() != null) {
+                try {
+                    data.getTapAction().send();
+                } catch (PendingIntent.CanceledException e) {
+                    Log.w(TAG, "Chip tap action was canceled", e);
+                }
+            }
         }
 
         @Override
@@ -227,51 +649,34 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
             float textSize = resources.getDimension(isRound
                     ? R.dimen.digital_text_size_round : R.dimen.digital_text_size);
 
-            // "AM" and "PM" text makes the string just a bit too long so we need to shrink it
-            boolean is24Hour = android.text.format.DateFormat.is24HourFormat(getApplicationContext());
-            float textSizeMulti = is24Hour ? 1.0f : 0.7f;
-
-            mTimePaint.setTextSize(textSize * textSizeMulti);
-            mDatePaint.setTextSize(textSize * 0.4f);
+            mFaceRenderer.getDisplayState().setBaseTextSize(textSize);
+            updateTextPaints();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mAmbientFrames.setLowBit(mLowBitAmbient);
+            mAmbientFrames.setBurnInProtection(properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false));
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            mScheduler.onTimeTick();
         }
 
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
-            if (mAmbient != inAmbientMode) {
-                mAmbient = inAmbientMode;
-                if (mLowBitAmbient) {
-                    mTimePaint.setAntiAlias(!inAmbientMode);
-                }
-                // Allow position to be recalculated, prevents text out of position when entering / exiting ambient mode
-                isTextPositionCalculated = false;
-                invalidate();
+            if (!inAmbientMode) {
+                mUpdateTimeHandler.removeMessages(MSG_PRERENDER_AMBIENT);
             }
 
-            if(inAmbientMode){
-                mForceAnimationStart = true;
-            }
-            else{
-                // Don't allow animations in ambient mode
-                mGlitchTimeWriter.stopAnimation();
-                mGlitchDateWriter.stopAnimation();
-            }
-
-            // Whether the timer should be running depends on whether we're visible (as well as
-            // whether we're in ambient mode), so we may need to start or stop the timer.
-            updateTimer();
+            // Stops the glitch and the update timer in ambient, restarts both on the way out
+            mScheduler.setAmbient(inAmbientMode);
+            updateRenderThread();
         }
 
         @Override
@@ -279,134 +684,80 @@ public class YoRHaWatchFace extends CanvasWatchFaceService {
             super.onSurfaceChanged(holder, format, width, height);
             mWidth = width;
             mHeight = height;
-
-            /*
-             * Find the coordinates of the center point on the screen.
-             * Ignore the window insets so that, on round watches
-             * with a "chin", the watch face is centered on the entire screen,
-             * not just the usable portion.
-             */
-            mCenterX = mWidth / 2f;
-            mCenterY = mHeight / 2f;
+            mFaceRenderer.setSurfaceSize(width, height);
+            mRenderTarget.setSurfaceSize(width, height);
+            mAmbientFrames.setSize(width, height);
+            configureRenderThread();
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            long drawStart = System.nanoTime();
             boolean isAmbient = isInAmbientMode();
 
-            // Draw the background.
-            if (isAmbient) {
-                canvas.drawColor(Color.BLACK);
-            } else {
-                canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
-                canvas.drawRect(0, 0, bounds.width(), bounds.height(), mGridPaint);
-
-                updateDateStr();
+            if (!mReadyToDraw) {
+                // Cheap stand in while the font and grid load
+                canvas.drawColor(isAmbient ? FaceRenderer.COLOR_AMBIENT_BACKGROUND
+                        : mRenderTarget.getTheme().getBackgroundColor());
+                return;
             }
+            // The frame clock also runs while a glitch waits to start, those frames are ticks
+            int statsMode = isAmbient ? FrameStats.MODE_AMBIENT
+                    : mFaceRenderer.isPlaying() ? FrameStats.MODE_ANIMATING : FrameStats.MODE_INTERACTIVE;
 
             long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-
-            final String formatString;
-            // NOTE(chris) "HH" refers to 00-23, while "h" gives us 1-12
-            // https://developer.android.com/reference/java/text/SimpleDateFormat
-            if(android.text.format.DateFormat.is24HourFormat(getApplicationContext())) {
-                if(mAmbient) {
-                    formatString = "HH:mm";                    
-                } else {
-                    formatString = "HH:mm:ss";
+            if (isAmbient) {
+                // Usually rendered during the last minute, see handlePrerenderAmbientMessage
+                if (!mAmbientFrames.draw(canvas, now)) {
+                    mAmbientFrames.render(now);
+                    mAmbientFrames.draw(canvas, now);
                 }
+                mUpdateTimeHandler.sendEmptyMessage(MSG_PRERENDER_AMBIENT);
             } else {
-                if(mAmbient) {
-                    formatString = "h:mm a";
-                } else {
-                    formatString = "h:mm:ss a";
+                // Keeps the glitch on schedule even when the frame comes from the render thread
+                mFaceRenderer.update(now, false);
+                // Glitch frames are drawn here, the render thread only draws the steady face
+                if (mRenderThread == null || mFaceRenderer.isPlaying() || !mRenderThread.draw(canvas, now)) {
+                    mRenderTarget.setCanvas(canvas);
+                    mFaceRenderer.draw(mRenderTarget, false, false);
+                    mRenderTarget.setCanvas(null);
                 }
             }
 
-            String timeString = DateFormat.format(formatString, mCalendar).toString();
-
-            updateTextPositions(timeString);
-
-            if(!isAmbient) {
-                // If the ones digit is a 9 and enough time since the last animation has passed
-                boolean canStart = mCalendar.get(Calendar.SECOND) % 10 == 9 && System.currentTimeMillis() - mLastAnimationCompletionTime >= TimeUnit.SECONDS.toMillis(5);
-
-                if (canStart || mForceAnimationStart) {
-                    mForceAnimationStart = false;
-
-                    mGlitchTimeWriter.animateText(timeString, INTERACTIVE_UPDATE_RATE_MS, mOnTextAnimationComplete);
-
-                    mGlitchDateWriter.setRandomCharacterSet(mDateStr.replace(" ", "")); // Pass in the current string to use as the random set of characters
-                    mGlitchDateWriter.animateText(mDateStr, INTERACTIVE_UPDATE_RATE_MS, null);
-                }
+            mFrameStats.recordDraw(statsMode, System.nanoTime() - drawStart);
 
-                // Draw text using animated text values
-                if(mGlitchTimeWriter.getIsAnimating()){
-                    canvas.drawText(mGlitchTimeWriter.getTextValue(), mTextX, mTextY, mTimePaint);
-                }
-
-                if(mGlitchDateWriter.getIsAnimating()){
-                    canvas.drawText(mGlitchDateWriter.getTextValue(), mCenterX, mTextY + mHeight * 0.1f, mDatePaint);
-                }
-            } 
-            
-            if (isAmbient || !mGlitchTimeWriter.getIsAnimating()) {
-                canvas.drawText(timeString, mTextX, mTextY, mTimePaint);
-            }
-
-            if(isAmbient || !mGlitchDateWriter.getIsAnimating()) {
-                canvas.drawText(mDateStr, mCenterX, mTextY + mHeight * 0.1f, mDatePaint);
+            if (mStartupTrace.finish(SystemClock.elapsedRealtime())) {
+                Log.i(TAG, mStartupTrace.toString());
             }
         }
 
         /**
-         * Starts the {@link #mUpdateTimeHandler} timer if it should be running and isn't currently
-         * or stops it if it shouldn't be running but currently is.
+         * Handle the timeline's events in interactive mode, then sleep until the next ones.
          */
-        private void updateTimer() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
-            if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
-            }
+        private void handleUpdateTimeMessage() {
+            mScheduler.onTimer();
         }
 
         /**
-         * Returns whether the {@link #mUpdateTimeHandler} timer should be running. The timer should
-         * only run when we're visible and in interactive mode.
+         * The engine's part of a wakeup, WakeupScheduler already started the glitch and redraws.
          */
-        private boolean shouldTimerBeRunning() {
-            return isVisible() && !isInAmbientMode();
+        private void handleTimelineEvents(int events) {
+            if ((events & WakeupTimeline.EVENT_MINUTE) != 0) {
+                maybeLogFrameStats();
+                // Time dependent chip text (e.g. countdowns) is resolved again
+                updateChips(System.currentTimeMillis());
+            }
+            if ((events & WakeupTimeline.EVENT_HOUR) != 0) {
+                vibrate();
+            }
         }
 
         /**
-         * Handle updating the time periodically in interactive mode.
+         * Renders the next minute's ambient frame, after the current one is on screen.
          */
-        private void handleUpdateTimeMessage() {
-            invalidate();
-            if (shouldTimerBeRunning()) {
-                long updateRate = (mGlitchTimeWriter.getIsAnimating() || mGlitchDateWriter.getIsAnimating()) ? TEXT_DRAW_UPDATE_RATE_MS : INTERACTIVE_UPDATE_RATE_MS;
-                long timeMs = System.currentTimeMillis();
-                long delayMs = updateRate - (timeMs % updateRate);
-                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
-            }
-        }
-
-        private void updateDateStr() {
-            mDateStr = DateFormat.format("EEE d", mCalendar).toString().toUpperCase();
-        }
-
-        private void updateTextPositions(String text) {
-            // https://stackoverflow.com/a/24969713
-            // Draw text centered vertically (accounts for any vertical text pivot variation)
-            // Pre calc x and y pos of text (also prevents height variation based on text contents)
-            if (!isTextPositionCalculated) {
-                isTextPositionCalculated = true;
-
-                mTimePaint.getTextBounds(text, 0, text.length(), mTextBounds);
-                float width = mTimePaint.measureText(text);
-                mTextX = (mWidth - width) / 2;
-                mTextY = mCenterY - mTextBounds.exactCenterY();
+        private void handlePrerenderAmbientMessage() {
+            if (isInAmbientMode()) {
+                mAmbientFrames.renderNext(System.currentTimeMillis());
             }
         }
 